@@ -0,0 +1,67 @@
+package dev.alpari.fujitsutrialtask.benchmark;
+
+import dev.alpari.fujitsutrialtask.database.SyntheticStations;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+/**
+ * Observations documents benchmarks are run on.
+ */
+public final class BenchmarkData {
+
+    // Observations timestamp of the bundled feed.
+    public static final long BUNDLED_TIMESTAMP = 1679169028;
+
+    private BenchmarkData() {
+    }
+
+    /**
+     * @return bundled observations document, copied into the benchmarks jar.
+     */
+    public static byte[] bundledFeed() {
+
+        try (InputStream inputStream = BenchmarkData.class.getResourceAsStream("/weather-data.xml")) {
+            if (inputStream == null) throw new IllegalStateException("weather-data.xml is not on the classpath.");
+            return inputStream.readAllBytes();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Generate an observations document in the format of the feed, readings are random but repeatable.
+     * Stations come from the load tests' generator, shipped in the test jar of the application.
+     *
+     * @param stationCount number of stations.
+     * @param timestamp observations timestamp (seconds since epoch).
+     * @return observations document.
+     */
+    public static byte[] syntheticFeed(int stationCount, long timestamp) {
+
+        String xml = "<?xml version=\"1.0\" encoding=\"UTF-8\" standalone=\"no\"?><observations timestamp=\""
+                + timestamp + "\">\n" + SyntheticStations.generate(stationCount, stationCount) + "</observations>\n";
+        return xml.getBytes(StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Write document to a temporary file, deleted on exit.
+     *
+     * @param xml document.
+     * @return path of the file.
+     */
+    public static Path writeTempFile(byte[] xml) {
+
+        try {
+            Path path = Files.createTempFile("weather-data-", ".xml");
+            path.toFile().deleteOnExit();
+            return Files.write(path, xml);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
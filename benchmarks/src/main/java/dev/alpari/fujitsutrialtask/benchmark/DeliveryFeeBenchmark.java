@@ -0,0 +1,74 @@
+package dev.alpari.fujitsutrialtask.benchmark;
+
+import dev.alpari.fujitsutrialtask.delivery.DeliveryManager;
+import dev.alpari.fujitsutrialtask.service.DeliveryDataService;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Delivery fee lookups on the bundled feed, through the manager and through the service as the controller calls it.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class DeliveryFeeBenchmark {
+
+    @Param({"CAR", "SCOOTER", "BIKE"})
+    public String vehicle;
+
+    @Param({"TALLINN", "TARTU", "PÄRNU"})
+    public String location;
+
+    private DeliveryManager deliveryManager;
+    private DeliveryDataService deliveryDataService;
+    private DeliveryManager.Vehicle vehicleType;
+    private DeliveryManager.Location deliveryLocation;
+
+    // Request parameters as received by the controller.
+    private String locationParameter;
+    private String vehicleParameter;
+
+    @Setup
+    public void setup() {
+
+        deliveryManager = new DeliveryManager();
+        deliveryManager.getWeatherDataManager().readXmlFromFile(
+                BenchmarkData.writeTempFile(BenchmarkData.bundledFeed()).toString(), false);
+        deliveryDataService = new DeliveryDataService(deliveryManager);
+
+        vehicleType = DeliveryManager.Vehicle.valueOf(vehicle);
+        deliveryLocation = deliveryManager.getLocation(location);
+        locationParameter = location.toLowerCase();
+        vehicleParameter = vehicle.toLowerCase();
+    }
+
+    @Benchmark
+    public String calculateAndGetDeliveryFee() {
+        // Some combinations are forbidden by the weather, the description is returned either way.
+        return deliveryManager.calculateAndGetDeliveryFee(vehicleType, deliveryLocation);
+    }
+
+    @Benchmark
+    public String getDeliveryFee() {
+        return deliveryDataService.getDeliveryFee(locationParameter, vehicleParameter);
+    }
+
+    @Benchmark
+    public byte[] getDeliveryFeeJson() {
+        return deliveryDataService.getDeliveryFeeJson(locationParameter, vehicleParameter);
+    }
+}
@@ -0,0 +1,40 @@
+package dev.alpari.fujitsutrialtask.benchmark;
+
+import dev.alpari.fujitsutrialtask.model.WeatherData;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * WeatherData.toJson of a Tallinn-Harku observation from the bundled feed.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class WeatherDataJsonBenchmark {
+
+    private final WeatherData weatherData = WeatherData.builder()
+            .stationName("TALLINN-HARKU")
+            .stationWmoCode("26038")
+            .airTemperature(4.8f)
+            .windSpeed(4.2f)
+            .weatherPhenomenon("Light rain")
+            .observationTimestamp(BenchmarkData.BUNDLED_TIMESTAMP)
+            .build();
+
+    @Benchmark
+    public String toJson() {
+        return weatherData.toJson();
+    }
+}
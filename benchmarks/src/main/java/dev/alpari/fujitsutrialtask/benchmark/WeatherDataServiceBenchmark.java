@@ -0,0 +1,91 @@
+package dev.alpari.fujitsutrialtask.benchmark;
+
+import dev.alpari.fujitsutrialtask.FujitsuTrialTaskApplication;
+import dev.alpari.fujitsutrialtask.dto.WeatherDataDto;
+import dev.alpari.fujitsutrialtask.service.WeatherDataService;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * WeatherDataService.add against the in-memory H2 database of the application.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class WeatherDataServiceBenchmark {
+
+    private ConfigurableApplicationContext context;
+    private WeatherDataService weatherDataService;
+    private WeatherDataDto weatherDataDto;
+    private WeatherDataDto storedWeatherDataDto;
+
+    @Setup(Level.Trial)
+    public void startApplication() {
+
+        context = new SpringApplicationBuilder(FujitsuTrialTaskApplication.class)
+                .web(WebApplicationType.NONE)
+                .run("--spring.datasource.name=benchmark",
+                        "--logging.level.root=WARN",
+                        "--logging.level.org.springframework.jdbc=WARN",
+                        "--weather.compaction.enabled=false");
+
+        weatherDataService = context.getBean(WeatherDataService.class);
+
+        weatherDataDto = newWeatherDataDto();
+        storedWeatherDataDto = newWeatherDataDto();
+        weatherDataService.add(storedWeatherDataDto);
+    }
+
+    @TearDown(Level.Trial)
+    public void stopApplication() {
+        context.close();
+    }
+
+    /**
+     * Store a new observation, every call is a minute later than the previous one.
+     */
+    @Benchmark
+    public boolean add() {
+
+        weatherDataDto.setObservationTimestamp(weatherDataDto.getObservationTimestamp() + 60);
+        return weatherDataService.add(weatherDataDto);
+    }
+
+    /**
+     * Add an observation that is already stored, nothing is written.
+     */
+    @Benchmark
+    public boolean addStored() {
+        return weatherDataService.add(storedWeatherDataDto);
+    }
+
+    private static WeatherDataDto newWeatherDataDto() {
+
+        return WeatherDataDto.builder()
+                .stationName("TALLINN-HARKU")
+                .stationWmoCode("26038")
+                .airTemperature(4.8f)
+                .windSpeed(4.2f)
+                .weatherPhenomenon("Light rain")
+                .observationTimestamp(BenchmarkData.BUNDLED_TIMESTAMP)
+                .build();
+    }
+}
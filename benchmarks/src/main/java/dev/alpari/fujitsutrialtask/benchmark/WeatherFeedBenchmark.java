@@ -0,0 +1,85 @@
+package dev.alpari.fujitsutrialtask.benchmark;
+
+import dev.alpari.fujitsutrialtask.database.WeatherDataManager;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import javax.xml.stream.XMLStreamException;
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.io.SequenceInputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * WeatherDataManager.readXmlFromStream: parsing, building the weather snapshot and history, without the database.
+ *
+ * Documents are kept in memory, every invocation reads the next observations an hour after the previous ones.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class WeatherFeedBenchmark {
+
+    /**
+     * BUNDLED - bundled feed (155 stations), SYNTHETIC_10K - generated feed with 10 000 stations.
+     */
+    @Param({"BUNDLED", "SYNTHETIC_10K"})
+    public String feed;
+
+    // Document split around the observations timestamp.
+    private byte[] head;
+    private byte[] tail;
+
+    private long timestamp;
+    private WeatherDataManager weatherDataManager;
+
+    @Setup(Level.Trial)
+    public void setup() {
+
+        byte[] xml = feed.equals("BUNDLED") ? BenchmarkData.bundledFeed()
+                : BenchmarkData.syntheticFeed(10_000, BenchmarkData.BUNDLED_TIMESTAMP);
+
+        String document = new String(xml, StandardCharsets.UTF_8);
+        String attribute = "timestamp=\"" + BenchmarkData.BUNDLED_TIMESTAMP + "\"";
+        int start = document.indexOf(attribute) + "timestamp=\"".length();
+        head = document.substring(0, start).getBytes(StandardCharsets.UTF_8);
+        tail = document.substring(start + Long.toString(BenchmarkData.BUNDLED_TIMESTAMP).length())
+                .getBytes(StandardCharsets.UTF_8);
+
+        timestamp = BenchmarkData.BUNDLED_TIMESTAMP;
+        weatherDataManager = new WeatherDataManager();
+        // History keeps two observations of every station, as with hourly updates and an hour of retention.
+        weatherDataManager.setHistoryRetention(Duration.ofHours(1));
+    }
+
+    @Benchmark
+    public WeatherDataManager readXmlFromStream() throws XMLStreamException {
+
+        // Older observations would be skipped, every document is newer than the previous one.
+        timestamp += 3600;
+        InputStream inputStream = new SequenceInputStream(Collections.enumeration(List.of(
+                new ByteArrayInputStream(head),
+                new ByteArrayInputStream(Long.toString(timestamp).getBytes(StandardCharsets.US_ASCII)),
+                new ByteArrayInputStream(tail))));
+
+        weatherDataManager.readXmlFromStream(inputStream, false);
+        return weatherDataManager;
+    }
+}
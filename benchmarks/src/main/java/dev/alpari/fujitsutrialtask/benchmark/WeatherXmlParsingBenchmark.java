@@ -0,0 +1,138 @@
+package dev.alpari.fujitsutrialtask.benchmark;
+
+import dev.alpari.fujitsutrialtask.database.WeatherDataXmlParser;
+import dev.alpari.fujitsutrialtask.model.WeatherData;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.w3c.dom.Document;
+import org.w3c.dom.Element;
+import org.w3c.dom.Node;
+import org.w3c.dom.NodeList;
+
+import javax.xml.parsers.DocumentBuilder;
+import javax.xml.parsers.DocumentBuilderFactory;
+import java.io.ByteArrayInputStream;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compare the streaming parser with the DOM parsing previously done in WeatherDataManager.readXmlFromFile.
+ *
+ * Run main() (e.g. from the IDE) or BenchmarkMain, allocation rates are reported by the gc profiler.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class WeatherXmlParsingBenchmark {
+
+    /**
+     * TRACKED - only three stations used for delivery fees, ALL - every station, some have empty readings.
+     */
+    @Param({"TRACKED", "ALL"})
+    public String stations;
+
+    private byte[] xml;
+    private Set<String> stationsToCheck;
+    private final WeatherDataXmlParser weatherDataXmlParser = new WeatherDataXmlParser();
+
+    @Setup
+    public void setup() throws Exception {
+
+        xml = BenchmarkData.bundledFeed();
+
+        if (stations.equals("TRACKED")) {
+            stationsToCheck = Set.of("TALLINN-HARKU", "TARTU-TÕRAVERE", "PÄRNU");
+            return;
+        }
+
+        stationsToCheck = new HashSet<>();
+        NodeList nodeList = parseDocument().getElementsByTagName("station");
+        for (int i = 0; i < nodeList.getLength(); i++) {
+            Element element = (Element) nodeList.item(i);
+            stationsToCheck.add(element.getElementsByTagName("name").item(0).getTextContent().toUpperCase());
+        }
+    }
+
+    @Benchmark
+    public List<WeatherData> stax() throws Exception {
+        return weatherDataXmlParser.parse(new ByteArrayInputStream(xml), stationsToCheck::contains);
+    }
+
+    @Benchmark
+    public List<WeatherData> dom() throws Exception {
+
+        List<WeatherData> result = new ArrayList<>();
+
+        Document document = parseDocument();
+        NodeList nodeList = document.getElementsByTagName("station");
+
+        long observationTimestamp = Long.parseLong(document.getDocumentElement().getAttribute("timestamp"));
+
+        for (int i = 0; i < nodeList.getLength(); i++) {
+
+            Node node = nodeList.item(i);
+
+            if (node.getNodeType() == Node.ELEMENT_NODE) {
+                Element element = (Element) node;
+
+                String stationName = element.getElementsByTagName("name").item(0).getTextContent().toUpperCase();
+
+                if (stationsToCheck.contains(stationName)) {
+                    result.add(WeatherData.builder()
+                            .stationName(stationName)
+                            .stationWmoCode(element.getElementsByTagName("wmocode").item(0).getTextContent())
+                            .airTemperature(parseReading(element, "airtemperature"))
+                            .windSpeed(parseReading(element, "windspeed"))
+                            .weatherPhenomenon(element.getElementsByTagName("phenomenon").item(0).getTextContent())
+                            .observationTimestamp(observationTimestamp)
+                            .build());
+                }
+            }
+        }
+
+        return result;
+    }
+
+    // Empty readings are missing (NaN), as in the streaming parser.
+    private static float parseReading(Element element, String tagName) {
+        String reading = element.getElementsByTagName(tagName).item(0).getTextContent();
+        return reading.isEmpty() ? Float.NaN : Float.parseFloat(reading);
+    }
+
+    private Document parseDocument() throws Exception {
+
+        DocumentBuilderFactory factory = DocumentBuilderFactory.newInstance();
+        DocumentBuilder builder = factory.newDocumentBuilder();
+        return builder.parse(new ByteArrayInputStream(xml));
+    }
+
+    public static void main(String[] args) throws RunnerException {
+
+        Options options = new OptionsBuilder()
+                .include(WeatherXmlParsingBenchmark.class.getSimpleName())
+                .addProfiler(GCProfiler.class)
+                .build();
+
+        new Runner(options).run();
+    }
+}
@@ -0,0 +1,124 @@
+package dev.alpari.fujitsutrialtask;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Threads that request handling, weather fetching and persistence run on.
+ *
+ * The application is built for Java 17, virtual threads are looked up at runtime and are available
+ * only when running on Java 21 or later.
+ */
+public enum ExecutionMode {
+
+    /**
+     * Platform threads, request handling uses the default Tomcat pool.
+     */
+    PLATFORM,
+
+    /**
+     * A new virtual thread for every task, blocking I/O does not hold an OS thread.
+     */
+    VIRTUAL;
+
+    // Thread.ofVirtual().name(prefix, 0).factory(), null if virtual threads are not available.
+    private static final MethodHandle VIRTUAL_THREAD_FACTORY = findVirtualThreadFactory();
+
+    // Executors.newThreadPerTaskExecutor(ThreadFactory).
+    private static final MethodHandle THREAD_PER_TASK_EXECUTOR = findThreadPerTaskExecutor();
+
+    public boolean isSupported() {
+        return this == PLATFORM || (VIRTUAL_THREAD_FACTORY != null && THREAD_PER_TASK_EXECUTOR != null);
+    }
+
+    /**
+     * Create a thread factory, platform threads are daemon threads.
+     *
+     * @param namePrefix prefix of thread names, thread number is appended to it.
+     * @return thread factory.
+     * @throws IllegalStateException if mode is not supported by the running JVM.
+     */
+    public ThreadFactory threadFactory(String namePrefix) {
+
+        requireSupported();
+
+        if (this == PLATFORM) {
+            AtomicInteger threadNumber = new AtomicInteger();
+            return runnable -> {
+                Thread thread = new Thread(runnable, namePrefix + threadNumber.getAndIncrement());
+                thread.setDaemon(true);
+                return thread;
+            };
+        }
+
+        try {
+            return (ThreadFactory) VIRTUAL_THREAD_FACTORY.invoke(namePrefix);
+        } catch (Throwable e) {
+            throw new IllegalStateException("Could not create virtual thread factory.", e);
+        }
+    }
+
+    /**
+     * Create an executor that starts a new thread for every task, meant for virtual threads.
+     *
+     * @param namePrefix prefix of thread names, thread number is appended to it.
+     * @return executor.
+     * @throws IllegalStateException if mode is not supported by the running JVM.
+     */
+    public ExecutorService newThreadPerTaskExecutor(String namePrefix) {
+
+        ThreadFactory threadFactory = threadFactory(namePrefix);
+        if (this == PLATFORM) return Executors.newCachedThreadPool(threadFactory);
+
+        try {
+            return (ExecutorService) THREAD_PER_TASK_EXECUTOR.invoke(threadFactory);
+        } catch (Throwable e) {
+            throw new IllegalStateException("Could not create virtual thread executor.", e);
+        }
+    }
+
+    /**
+     * @throws IllegalStateException if mode is not supported by the running JVM.
+     */
+    public void requireSupported() {
+        if (!isSupported()) throw new IllegalStateException("Execution mode " + this + " requires Java 21 or later, running on "
+                + Runtime.version() + ".");
+    }
+
+    private static MethodHandle findVirtualThreadFactory() {
+
+        try {
+            MethodHandles.Lookup lookup = MethodHandles.publicLookup();
+            Class<?> builderClass = Class.forName("java.lang.Thread$Builder");
+            Class<?> virtualBuilderClass = Class.forName("java.lang.Thread$Builder$OfVirtual");
+
+            MethodHandle ofVirtual = lookup.findStatic(Thread.class, "ofVirtual", MethodType.methodType(virtualBuilderClass));
+            MethodHandle name = lookup.findVirtual(virtualBuilderClass, "name",
+                    MethodType.methodType(virtualBuilderClass, String.class, long.class));
+            MethodHandle factory = lookup.findVirtual(builderClass, "factory", MethodType.methodType(ThreadFactory.class));
+
+            // (String prefix) -> Thread.ofVirtual().name(prefix, 0).factory()
+            MethodHandle named = MethodHandles.insertArguments(
+                    MethodHandles.collectArguments(name, 0, ofVirtual), 1, 0L);
+            return MethodHandles.filterReturnValue(named, factory.asType(MethodType.methodType(ThreadFactory.class,
+                    virtualBuilderClass)));
+        } catch (ReflectiveOperationException e) {
+            return null;
+        }
+    }
+
+    private static MethodHandle findThreadPerTaskExecutor() {
+
+        try {
+            return MethodHandles.publicLookup().findStatic(Executors.class, "newThreadPerTaskExecutor",
+                    MethodType.methodType(ExecutorService.class, ThreadFactory.class));
+        } catch (ReflectiveOperationException e) {
+            return null;
+        }
+    }
+}
@@ -1,14 +1,37 @@
 package dev.alpari.fujitsutrialtask;
 
+import dev.alpari.fujitsutrialtask.archive.WeatherArchive;
+import dev.alpari.fujitsutrialtask.database.WeatherDataManager;
+import dev.alpari.fujitsutrialtask.database.WeatherPhenomenonClassifier;
+import dev.alpari.fujitsutrialtask.database.WeatherUpdateScheduler;
 import dev.alpari.fujitsutrialtask.delivery.DeliveryManager;
+import dev.alpari.fujitsutrialtask.delivery.FeeRules;
 import dev.alpari.fujitsutrialtask.dto.WeatherDataDto;
+import dev.alpari.fujitsutrialtask.dto.WeatherDataRollupDto;
 import dev.alpari.fujitsutrialtask.mapper.WeatherDataMapper;
 import dev.alpari.fujitsutrialtask.model.WeatherData;
+import dev.alpari.fujitsutrialtask.model.WeatherDataRollup;
+import dev.alpari.fujitsutrialtask.service.RegionalBaseFeeService;
+import dev.alpari.fujitsutrialtask.service.WeatherDataService;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.apache.coyote.ProtocolHandler;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.ApplicationRunner;
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.web.embedded.tomcat.TomcatProtocolHandlerCustomizer;
 import org.springframework.context.annotation.Bean;
 import org.springframework.scheduling.annotation.EnableScheduling;
 
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Clock;
+import java.time.Duration;
+
 @SpringBootApplication
 @EnableScheduling
 public class FujitsuTrialTaskApplication {
@@ -18,16 +41,134 @@ public class FujitsuTrialTaskApplication {
     }
 
     @Bean
-    public DeliveryManager deliveryManager() {
-        return new DeliveryManager();
+    public WeatherPhenomenonClassifier weatherPhenomenonClassifier() {
+        return new WeatherPhenomenonClassifier();
+    }
+
+    @Bean
+    public ExecutionMode executionMode(@Value("${weather.execution.mode:PLATFORM}") ExecutionMode executionMode) {
+
+        // Fail on startup rather than on the first request.
+        executionMode.requireSupported();
+        return executionMode;
+    }
+
+    @Bean
+    @ConditionalOnProperty(name = "weather.execution.mode", havingValue = "virtual")
+    public TomcatProtocolHandlerCustomizer<ProtocolHandler> virtualThreadRequestExecutor(ExecutionMode executionMode) {
+        // Every request on its own virtual thread instead of the Tomcat pool.
+        return protocolHandler -> protocolHandler.setExecutor(executionMode.newThreadPerTaskExecutor("http-"));
+    }
+
+    @Bean
+    public DeliveryManager deliveryManager(WeatherDataService weatherDataService,
+                                           WeatherPhenomenonClassifier weatherPhenomenonClassifier,
+                                           ObjectProvider<WeatherArchive> weatherArchiveProvider,
+                                           ExecutionMode executionMode,
+                                           MeterRegistry meterRegistry,
+                                           @Value("${weather.feed.url:" + WeatherDataManager.DEFAULT_WEATHER_DATA_URL + "}")
+                                           String weatherDataUrl,
+                                           @Value("${delivery.fee-rules.path:}") String feeRulesPath,
+                                           @Value("${weather.compaction.retention:P30D}") Duration retention,
+                                           @Value("${delivery.location.max-count:" + DeliveryManager.DEFAULT_MAX_LOCATION_COUNT + "}")
+                                           int maxLocationCount)
+            throws IOException {
+
+        HttpRequester httpRequester = executionMode == ExecutionMode.VIRTUAL
+                ? new HttpRequester(executionMode.newThreadPerTaskExecutor("weather-fetch-")) : new HttpRequester();
+
+        DeliveryManager deliveryManager = new DeliveryManager(new WeatherDataManager(weatherPhenomenonClassifier,
+                httpRequester, meterRegistry));
+        deliveryManager.getWeatherDataManager().setWeatherDataUrl(weatherDataUrl);
+        deliveryManager.setMaxLocationCount(maxLocationCount);
+
+        // History covers the same time as the raw weather data left by compaction.
+        deliveryManager.getWeatherDataManager().setHistoryRetention(retention);
+
+        // Bundled rules unless overridden, invalid rules fail on startup.
+        if (!feeRulesPath.isBlank()) {
+            try (InputStream inputStream = Files.newInputStream(Path.of(feeRulesPath))) {
+                deliveryManager.setFeeRules(FeeRules.read(inputStream));
+            }
+        }
+
+        WeatherArchive weatherArchive = weatherArchiveProvider.getIfAvailable();
+        if (weatherArchive == null) {
+            deliveryManager.getWeatherDataManager().setWeatherDataSink(weatherDataService::addAll);
+        } else {
+            deliveryManager.getWeatherDataManager().setWeatherDataSink(weatherData -> {
+                int storedRows = weatherDataService.addAll(weatherData);
+                weatherArchive.append(weatherData);
+                return storedRows;
+            });
+        }
+
+        return deliveryManager;
+    }
+
+    @Bean(destroyMethod = "stop")
+    public WeatherUpdateScheduler weatherUpdateScheduler(DeliveryManager deliveryManager,
+                                                         @Value("${weather.update.period:PT1H}") Duration period,
+                                                         @Value("${weather.update.min-interval:PT15S}") Duration minInterval,
+                                                         @Value("${weather.update.max-interval:PT5M}") Duration maxInterval,
+                                                         @Value("${weather.update.auto-start:false}") boolean autoStart,
+                                                         ExecutionMode executionMode) {
+
+        // Polls fetch and store weather data, both on this thread.
+        WeatherUpdateScheduler weatherUpdateScheduler = new WeatherUpdateScheduler(
+                deliveryManager.getWeatherDataManager(), true, period, minInterval, maxInterval, Clock.systemUTC(),
+                executionMode.threadFactory("weather-update-"));
+
+        if (autoStart) weatherUpdateScheduler.start();
+        return weatherUpdateScheduler;
+    }
+
+    @Bean(destroyMethod = "close")
+    @ConditionalOnProperty(name = "weather.archive.enabled", havingValue = "true")
+    public WeatherArchive weatherArchive(@Value("${weather.archive.directory}") String directory) throws IOException {
+        return new WeatherArchive(Path.of(directory));
+    }
+
+    @Bean
+    public ApplicationRunner weatherHistoryLoader(DeliveryManager deliveryManager, WeatherDataService weatherDataService) {
+        // Make stored weather data available for fees at past instants, as far back as the history keeps it.
+        return args -> {
+            WeatherDataManager weatherDataManager = deliveryManager.getWeatherDataManager();
+            Duration retention = weatherDataManager.getHistoryRetention();
+            Long latestTimestamp = weatherDataService.getLatestObservationTimestamp();
+
+            if (retention == null || latestTimestamp == null) {
+                weatherDataService.forEach(weatherDataManager::addToHistory);
+            } else {
+                weatherDataService.forEachNeededFrom(latestTimestamp - retention.getSeconds(),
+                        weatherDataManager::addToHistory);
+            }
+        };
     }
 
     @Bean
-    public WeatherDataMapper weatherDataMapper() {
+    public ApplicationRunner regionalBaseFeeLoader(RegionalBaseFeeService regionalBaseFeeService) {
+        // Regional base fees of the database replace the built-in ones.
+        return args -> regionalBaseFeeService.initialize();
+    }
+
+    @Bean
+    public WeatherDataMapper weatherDataMapper(WeatherPhenomenonClassifier weatherPhenomenonClassifier) {
         return new WeatherDataMapper() {
             @Override
             public WeatherDataDto entityToDto(WeatherData weatherData) {
-                return null;
+                return WeatherDataDto.builder()
+                        .id(weatherData.getId())
+                        .stationName(weatherData.getStationName())
+                        .stationWmoCode(weatherData.getStationWmoCode())
+                        .airTemperature(weatherData.getAirTemperature())
+                        .windSpeed(weatherData.getWindSpeed())
+                        .weatherPhenomenon(weatherData.getWeatherPhenomenon())
+                        .latitude(weatherData.getLatitude())
+                        .longitude(weatherData.getLongitude())
+                        .weatherPhenomenonCategory(weatherData.getWeatherPhenomenonCategory())
+                        .observationTimestamp(weatherData.getObservationTimestamp())
+                        .build();
             }
 
             @Override
@@ -38,9 +179,31 @@ public class FujitsuTrialTaskApplication {
                         .airTemperature(weatherDataDto.getAirTemperature())
                         .windSpeed(weatherDataDto.getWindSpeed())
                         .weatherPhenomenon(weatherDataDto.getWeatherPhenomenon())
+                        .latitude(weatherDataDto.getLatitude())
+                        .longitude(weatherDataDto.getLongitude())
+                        .weatherPhenomenonCategory(weatherPhenomenonClassifier.classify(weatherDataDto.getWeatherPhenomenon()))
                         .observationTimestamp(weatherDataDto.getObservationTimestamp())
                         .build();
             }
+
+            @Override
+            public WeatherDataRollupDto rollupToDto(WeatherDataRollup rollup) {
+                return WeatherDataRollupDto.builder()
+                        .granularity(rollup.getGranularity())
+                        .stationName(rollup.getStationName())
+                        .stationWmoCode(rollup.getStationWmoCode())
+                        .periodStart(rollup.getPeriodStart())
+                        .observationCount(rollup.getObservationCount())
+                        .minAirTemperature(rollup.getMinAirTemperature())
+                        .maxAirTemperature(rollup.getMaxAirTemperature())
+                        .avgAirTemperature(rollup.getAvgAirTemperature())
+                        .minWindSpeed(rollup.getMinWindSpeed())
+                        .maxWindSpeed(rollup.getMaxWindSpeed())
+                        .avgWindSpeed(rollup.getAvgWindSpeed())
+                        .weatherPhenomenon(rollup.getWeatherPhenomenon())
+                        .weatherPhenomenonCategory(rollup.getWeatherPhenomenonCategory())
+                        .build();
+            }
         };
     }
 }
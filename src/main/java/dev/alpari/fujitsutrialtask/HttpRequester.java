@@ -1,51 +1,61 @@
 package dev.alpari.fujitsutrialtask;
 
+import java.io.IOException;
+import java.io.InputStream;
 import java.net.URI;
 import java.net.URISyntaxException;
 import java.net.http.HttpClient;
-import java.net.http.HttpHeaders;
 import java.net.http.HttpRequest;
 import java.net.http.HttpResponse;
 import java.time.Duration;
-import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
 
 public class HttpRequester {
 
-    private final HttpClient httpClient = HttpClient.newBuilder()
-            .version(HttpClient.Version.HTTP_2)
-            .connectTimeout(Duration.ofSeconds(10))
-            .build();
+    private final HttpClient httpClient;
+
+    public HttpRequester() {
+        this(null);
+    }
 
     /**
-     * Make http request to the server's api by url and provide weather data as .json file.
+     * @param executor executor for the client's asynchronous tasks or null for the default one.
+     */
+    public HttpRequester(Executor executor) {
+
+        HttpClient.Builder builder = HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_2)
+                .connectTimeout(Duration.ofSeconds(10));
+
+        if (executor != null) builder.executor(executor);
+        httpClient = builder.build();
+    }
+
+    /**
+     * Make conditional http GET request, server answers with 304 (Not Modified) and no body if resource
+     * has not changed since the provided validators were received.
      *
-     * @param url api url
-     * @param json json data (weather data)
+     * @param url resource url
+     * @param eTag value of ETag header from the previous response or null
+     * @param lastModified value of Last-Modified header from the previous response or null
+     * @return response with body as a stream, it must be closed by the caller
      */
-    public void makeHttpPostRequest(String url, String json) {
+    public HttpResponse<InputStream> makeConditionalHttpGetRequest(String url, String eTag, String lastModified)
+            throws IOException, InterruptedException {
 
         try {
-            HttpRequest request = HttpRequest.newBuilder()
+            HttpRequest.Builder requestBuilder = HttpRequest.newBuilder()
                     .uri(new URI(url))
-                    .header("Content-Type", "application/json")
-                    .POST(HttpRequest.BodyPublishers.ofString(json))
-                    .build();
-
-            CompletableFuture<HttpResponse<String>> future = httpClient.sendAsync(request, HttpResponse.BodyHandlers.ofString());
+                    .timeout(Duration.ofSeconds(30))
+                    .GET();
 
-            // Get response
-            HttpResponse<String> response = future.join();
-            int statusCode = response.statusCode();
-            HttpHeaders headers = response.headers();
-            String responseBody = response.body();
+            if (eTag != null) requestBuilder.header("If-None-Match", eTag);
+            if (lastModified != null) requestBuilder.header("If-Modified-Since", lastModified);
 
-            System.out.println("Status code: " + statusCode);
-            System.out.println("Headers: " + headers);
-            System.out.println("Response body: " + responseBody);
+            return httpClient.send(requestBuilder.build(), HttpResponse.BodyHandlers.ofInputStream());
 
         } catch (URISyntaxException e) {
-            e.printStackTrace();
-            throw new RuntimeException(e);
+            throw new IllegalArgumentException(e);
         }
     }
 }
@@ -0,0 +1,49 @@
+package dev.alpari.fujitsutrialtask.archive;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Reads bits written by BitWriter from a buffer, the buffer position is not changed. Not thread safe.
+ */
+class BitReader {
+
+    private final ByteBuffer buffer;
+    private final int offset;
+    private long position;
+
+    /**
+     * @param buffer buffer with the bits.
+     * @param offset index of the first byte of the bits in the buffer.
+     */
+    BitReader(ByteBuffer buffer, int offset) {
+        this.buffer = buffer;
+        this.offset = offset;
+    }
+
+    /**
+     * Read count bits as the lowest bits of the result.
+     *
+     * @param count number of bits (0 - 64).
+     */
+    long readBits(int count) {
+
+        long result = 0;
+
+        while (count > 0) {
+
+            int available = 8 - (int) (position & 7);
+            int n = Math.min(available, count);
+            int bits = ((buffer.get(offset + (int) (position >>> 3)) & 0xFF) >>> (available - n)) & ((1 << n) - 1);
+
+            result = (result << n) | bits;
+            position += n;
+            count -= n;
+        }
+
+        return result;
+    }
+
+    boolean readBit() {
+        return readBits(1) == 1;
+    }
+}
@@ -0,0 +1,50 @@
+package dev.alpari.fujitsutrialtask.archive;
+
+import java.util.Arrays;
+
+/**
+ * Growable bit buffer, bits are written most significant first. Not thread safe.
+ */
+class BitWriter {
+
+    private byte[] bytes = new byte[256];
+    private long bitLength;
+
+    /**
+     * Write the lowest count bits of the value.
+     *
+     * @param value value.
+     * @param count number of bits (0 - 64).
+     */
+    void writeBits(long value, int count) {
+
+        while (count > 0) {
+
+            int byteIndex = (int) (bitLength >>> 3);
+            if (byteIndex == bytes.length) bytes = Arrays.copyOf(bytes, bytes.length * 2);
+
+            int free = 8 - (int) (bitLength & 7);
+            int n = Math.min(free, count);
+            int bits = (int) (value >>> (count - n)) & ((1 << n) - 1);
+
+            bytes[byteIndex] |= (byte) (bits << (free - n));
+            bitLength += n;
+            count -= n;
+        }
+    }
+
+    void writeBit(boolean bit) {
+        writeBits(bit ? 1 : 0, 1);
+    }
+
+    long getBitLength() {
+        return bitLength;
+    }
+
+    /**
+     * Copy of the written bytes, the last byte is padded with zeros.
+     */
+    byte[] toByteArray() {
+        return Arrays.copyOf(bytes, (int) ((bitLength + 7) >>> 3));
+    }
+}
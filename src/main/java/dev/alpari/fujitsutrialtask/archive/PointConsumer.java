@@ -0,0 +1,14 @@
+package dev.alpari.fujitsutrialtask.archive;
+
+/**
+ * Receives points of a time series without boxing.
+ */
+@FunctionalInterface
+public interface PointConsumer {
+
+    /**
+     * @param timestamp timestamp (seconds since epoch).
+     * @param value value, NaN if the reading was missing.
+     */
+    void accept(long timestamp, float value);
+}
@@ -0,0 +1,113 @@
+package dev.alpari.fujitsutrialtask.archive;
+
+import lombok.Getter;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Immutable block of a compressed time series.
+ *
+ * Layout: magic (int), point count (int), first and last timestamp (long), encoded series (TimeSeriesEncoder).
+ * Sealed segments are stored in files named after the first timestamp and memory-mapped for reading.
+ */
+@Getter
+class Segment {
+
+    static final String FILE_EXTENSION = ".seg";
+
+    private static final int MAGIC = 0x57584131;  // WXA1
+    private static final int HEADER_SIZE = 24;
+
+    private final int count;
+    private final long firstTimestamp;
+    private final long lastTimestamp;
+
+    // Whole segment including the header, shared by readers: only absolute gets are used.
+    private final ByteBuffer buffer;
+
+    private Segment(ByteBuffer buffer) {
+
+        if (buffer.getInt(0) != MAGIC) throw new IllegalArgumentException("Not a time series segment.");
+
+        this.buffer = buffer;
+        this.count = buffer.getInt(4);
+        this.firstTimestamp = buffer.getLong(8);
+        this.lastTimestamp = buffer.getLong(16);
+    }
+
+    /**
+     * Create in-memory segment with points appended to the encoder so far.
+     */
+    static Segment of(TimeSeriesEncoder encoder) {
+
+        byte[] series = encoder.toByteArray();
+
+        ByteBuffer buffer = ByteBuffer.allocate(HEADER_SIZE + series.length)
+                .putInt(MAGIC)
+                .putInt(encoder.getCount())
+                .putLong(encoder.getFirstTimestamp())
+                .putLong(encoder.getLastTimestamp())
+                .put(series);
+
+        return new Segment(buffer.flip());
+    }
+
+    /**
+     * Write segment with points appended to the encoder to the directory and map it.
+     *
+     * File is written under a temporary name and then renamed, so a segment file is never seen partially written.
+     */
+    static Segment write(Path directory, TimeSeriesEncoder encoder) throws IOException {
+
+        Segment segment = of(encoder);
+
+        Path file = directory.resolve(encoder.getFirstTimestamp() + FILE_EXTENSION);
+        Path temporaryFile = directory.resolve(encoder.getFirstTimestamp() + FILE_EXTENSION + ".tmp");
+
+        try (FileChannel channel = FileChannel.open(temporaryFile, StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+
+            ByteBuffer buffer = segment.buffer.duplicate();
+            while (buffer.hasRemaining()) channel.write(buffer);
+            channel.force(true);
+        }
+
+        Files.move(temporaryFile, file, StandardCopyOption.ATOMIC_MOVE);
+        return read(file);
+    }
+
+    /**
+     * Map segment file.
+     */
+    static Segment read(Path file) throws IOException {
+
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            // Mapping stays valid after the channel is closed.
+            return new Segment(channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()));
+        }
+    }
+
+    /**
+     * Pass points in the time range to the consumer.
+     *
+     * @param fromTimestamp start of the range (inclusive).
+     * @param toTimestamp end of the range (inclusive).
+     * @param consumer receives points.
+     */
+    void scan(long fromTimestamp, long toTimestamp, PointConsumer consumer) {
+
+        if (count == 0 || lastTimestamp < fromTimestamp || firstTimestamp > toTimestamp) return;
+
+        new TimeSeriesDecoder(buffer, HEADER_SIZE, count).scan(fromTimestamp, toTimestamp, consumer);
+    }
+
+    long getSizeInBytes() {
+        return buffer.capacity();
+    }
+}
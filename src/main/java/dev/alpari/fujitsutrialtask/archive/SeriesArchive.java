@@ -0,0 +1,168 @@
+package dev.alpari.fujitsutrialtask.archive;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.stream.Stream;
+
+/**
+ * Append-only compressed time series of one field of one station.
+ *
+ * Points are appended to an in-memory head, which is sealed into a segment file once it has the configured
+ * number of points or the archive is flushed. Points of the head are also written to a head file, which is
+ * replayed when the series is opened, so unsealed points survive a crash once synced.
+ *
+ * Head file layout: timestamp (long) and value (float) of every point of the head.
+ */
+class SeriesArchive implements Closeable {
+
+    static final String HEAD_FILE_NAME = "head.wal";
+
+    private static final int HEAD_RECORD_SIZE = Long.BYTES + Float.BYTES;
+
+    private final Path directory;
+    private final int pointsPerSegment;
+
+    private final FileChannel headChannel;
+    private final ByteBuffer headRecord = ByteBuffer.allocate(HEAD_RECORD_SIZE);
+
+    // Sorted by timestamps, copied on write.
+    private volatile List<Segment> segments;
+
+    private TimeSeriesEncoder head = new TimeSeriesEncoder();
+    private long lastTimestamp = Long.MIN_VALUE;
+
+    /**
+     * Open series in the directory, creating the directory if needed.
+     */
+    SeriesArchive(Path directory, int pointsPerSegment) throws IOException {
+
+        this.directory = Files.createDirectories(directory);
+        this.pointsPerSegment = pointsPerSegment;
+
+        List<Segment> openedSegments = new ArrayList<>();
+        try (Stream<Path> files = Files.list(directory)) {
+            for (Path file : files.filter(file -> file.toString().endsWith(Segment.FILE_EXTENSION)).toList()) {
+                openedSegments.add(Segment.read(file));
+            }
+        }
+        openedSegments.sort(Comparator.comparingLong(Segment::getFirstTimestamp));
+
+        segments = List.copyOf(openedSegments);
+        if (!segments.isEmpty()) lastTimestamp = segments.get(segments.size() - 1).getLastTimestamp();
+
+        headChannel = FileChannel.open(directory.resolve(HEAD_FILE_NAME), StandardOpenOption.CREATE,
+                StandardOpenOption.READ, StandardOpenOption.WRITE);
+        replayHead();
+    }
+
+    /**
+     * Read points of the head file into the head.
+     *
+     * Points already sealed (left when a crash comes between sealing and truncating the head file) are skipped and
+     * a partially written last point is truncated.
+     */
+    private void replayHead() throws IOException {
+
+        ByteBuffer buffer = ByteBuffer.allocate((int) (headChannel.size() / HEAD_RECORD_SIZE * HEAD_RECORD_SIZE));
+        while (buffer.hasRemaining()) {
+            if (headChannel.read(buffer, buffer.position()) < 0) break;
+        }
+        buffer.flip();
+
+        while (buffer.remaining() >= HEAD_RECORD_SIZE) {
+            long timestamp = buffer.getLong();
+            float value = buffer.getFloat();
+            if (timestamp <= lastTimestamp) continue;
+
+            head.append(timestamp, value);
+            lastTimestamp = timestamp;
+        }
+
+        headChannel.truncate(head.getCount() == 0 ? 0 : buffer.limit());
+    }
+
+    /**
+     * Append a point, points not newer than the last appended one are ignored. The point is durable after sync().
+     *
+     * @return true if point was appended.
+     */
+    synchronized boolean append(long timestamp, float value) throws IOException {
+
+        if (timestamp <= lastTimestamp) return false;
+
+        head.append(timestamp, value);
+        lastTimestamp = timestamp;
+
+        headRecord.clear().putLong(timestamp).putFloat(value).flip();
+        while (headRecord.hasRemaining()) headChannel.write(headRecord, headChannel.size());
+
+        if (head.getCount() >= pointsPerSegment) seal();
+        return true;
+    }
+
+    /**
+     * Force points appended to the head file to disk.
+     */
+    synchronized void sync() throws IOException {
+        headChannel.force(false);
+    }
+
+    /**
+     * Write points of the head into a segment file.
+     */
+    synchronized void seal() throws IOException {
+
+        if (head.getCount() == 0) return;
+
+        List<Segment> updatedSegments = new ArrayList<>(segments);
+        updatedSegments.add(Segment.write(directory, head));
+        segments = List.copyOf(updatedSegments);
+
+        // Segment file is already forced, points left in the head file after a crash here are dropped on replay.
+        head = new TimeSeriesEncoder();
+        headChannel.truncate(0);
+        headChannel.force(false);
+    }
+
+    /**
+     * Pass points in the time range to the consumer, oldest first.
+     */
+    void scan(long fromTimestamp, long toTimestamp, PointConsumer consumer) {
+
+        List<Segment> currentSegments;
+        Segment currentHead;
+
+        // Segments and head must be taken together, otherwise points sealed in between would be missed.
+        synchronized (this) {
+            currentSegments = segments;
+            currentHead = head.getCount() == 0 ? null : Segment.of(head);
+        }
+
+        for (Segment segment : currentSegments) segment.scan(fromTimestamp, toTimestamp, consumer);
+        if (currentHead != null) currentHead.scan(fromTimestamp, toTimestamp, consumer);
+    }
+
+    /**
+     * Get size of sealed segments.
+     */
+    long getSizeInBytes() {
+        return segments.stream().mapToLong(Segment::getSizeInBytes).sum();
+    }
+
+    /**
+     * Seal the head and close the head file.
+     */
+    @Override
+    public synchronized void close() throws IOException {
+        seal();
+        headChannel.close();
+    }
+}
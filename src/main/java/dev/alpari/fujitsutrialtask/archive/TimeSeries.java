@@ -0,0 +1,44 @@
+package dev.alpari.fujitsutrialtask.archive;
+
+import java.util.Arrays;
+
+/**
+ * Points read from the archive, in parallel arrays.
+ */
+public class TimeSeries implements PointConsumer {
+
+    private long[] observationTimestamps = new long[64];
+    private float[] values = new float[64];
+    private int size;
+
+    @Override
+    public void accept(long timestamp, float value) {
+
+        if (size == observationTimestamps.length) {
+            observationTimestamps = Arrays.copyOf(observationTimestamps, size * 2);
+            values = Arrays.copyOf(values, size * 2);
+        }
+
+        observationTimestamps[size] = timestamp;
+        values[size] = value;
+        size++;
+    }
+
+    /**
+     * Observation timestamps (seconds since epoch).
+     */
+    public long[] getObservationTimestamps() {
+        return Arrays.copyOf(observationTimestamps, size);
+    }
+
+    /**
+     * Values, NaN if the reading was missing.
+     */
+    public float[] getValues() {
+        return Arrays.copyOf(values, size);
+    }
+
+    public int size() {
+        return size;
+    }
+}
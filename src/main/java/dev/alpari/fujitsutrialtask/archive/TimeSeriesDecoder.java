@@ -0,0 +1,86 @@
+package dev.alpari.fujitsutrialtask.archive;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Decompresses a time series written by TimeSeriesEncoder. Not thread safe.
+ */
+class TimeSeriesDecoder {
+
+    private final BitReader bitReader;
+    private final int count;
+
+    private int read;
+    private long timestamp;
+    private long interval;
+    private int valueBits;
+    private int leadingZeros;
+    private int trailingZeros;
+
+    /**
+     * @param buffer buffer with the encoded series.
+     * @param offset index of the first byte of the series in the buffer.
+     * @param count number of points in the series.
+     */
+    TimeSeriesDecoder(ByteBuffer buffer, int offset, int count) {
+        this.bitReader = new BitReader(buffer, offset);
+        this.count = count;
+    }
+
+    /**
+     * Pass points in the time range to the consumer, stops reading after the end of the range.
+     *
+     * @param fromTimestamp start of the range (inclusive).
+     * @param toTimestamp end of the range (inclusive).
+     * @param consumer receives points.
+     */
+    void scan(long fromTimestamp, long toTimestamp, PointConsumer consumer) {
+
+        while (read < count) {
+
+            next();
+
+            if (timestamp > toTimestamp) return;
+            if (timestamp >= fromTimestamp) consumer.accept(timestamp, Float.intBitsToFloat(valueBits));
+        }
+    }
+
+    private void next() {
+
+        if (read == 0) {
+            timestamp = bitReader.readBits(64);
+            valueBits = (int) bitReader.readBits(32);
+        } else {
+            interval += readDeltaOfDelta();
+            timestamp += interval;
+            valueBits ^= readXor();
+        }
+
+        read++;
+    }
+
+    private long readDeltaOfDelta() {
+
+        if (!bitReader.readBit()) return 0;
+        if (!bitReader.readBit()) return signExtend(bitReader.readBits(7), 7);
+        if (!bitReader.readBit()) return signExtend(bitReader.readBits(9), 9);
+        if (!bitReader.readBit()) return signExtend(bitReader.readBits(12), 12);
+        return signExtend(bitReader.readBits(32), 32);
+    }
+
+    private int readXor() {
+
+        if (!bitReader.readBit()) return 0;
+
+        if (bitReader.readBit()) {
+            leadingZeros = (int) bitReader.readBits(5);
+            trailingZeros = 32 - leadingZeros - ((int) bitReader.readBits(5) + 1);
+        }
+
+        return (int) bitReader.readBits(32 - leadingZeros - trailingZeros) << trailingZeros;
+    }
+
+    private static long signExtend(long value, int bits) {
+        return (value << (64 - bits)) >> (64 - bits);
+    }
+}
@@ -0,0 +1,124 @@
+package dev.alpari.fujitsutrialtask.archive;
+
+/**
+ * Compresses a time series of float values as described in the Gorilla paper (Pelkonen et al., VLDB 2015).
+ *
+ * The first timestamp takes 64 bits, every further timestamp is stored as the change of the interval between
+ * timestamps (delta-of-delta): '0' if interval is the same, otherwise a prefix and 7, 9, 12 or 32 bits.
+ * The first value takes 32 bits, every further value is XORed with the previous one: '0' if value did not change,
+ * otherwise only the bits that changed, within the leading and trailing zero window of the previous value if
+ * they fit. Hourly observations of slowly changing readings take a few bits per point.
+ *
+ * Timestamps must be strictly increasing. Not thread safe.
+ */
+class TimeSeriesEncoder {
+
+    private final BitWriter bitWriter = new BitWriter();
+
+    private int count;
+    private long firstTimestamp;
+    private long lastTimestamp;
+    private long lastInterval;
+    private int lastValueBits;
+    private int lastLeadingZeros = Integer.MAX_VALUE;
+    private int lastTrailingZeros;
+
+    /**
+     * Append a point.
+     *
+     * @param timestamp timestamp (seconds since epoch), greater than the last appended one.
+     * @param value value.
+     */
+    void append(long timestamp, float value) {
+
+        int valueBits = Float.floatToRawIntBits(value);
+
+        if (count == 0) {
+            bitWriter.writeBits(timestamp, 64);
+            bitWriter.writeBits(valueBits, 32);
+            firstTimestamp = timestamp;
+        } else {
+            if (timestamp <= lastTimestamp) throw new IllegalArgumentException("Timestamps must be increasing.");
+
+            long interval = timestamp - lastTimestamp;
+            writeTimestamp(interval - lastInterval);
+            writeValue(valueBits ^ lastValueBits);
+            lastInterval = interval;
+        }
+
+        lastTimestamp = timestamp;
+        lastValueBits = valueBits;
+        count++;
+    }
+
+    private void writeTimestamp(long deltaOfDelta) {
+
+        if (deltaOfDelta == 0) {
+            bitWriter.writeBits(0b0, 1);
+        } else if (deltaOfDelta >= -64 && deltaOfDelta < 64) {
+            bitWriter.writeBits(0b10, 2);
+            bitWriter.writeBits(deltaOfDelta, 7);
+        } else if (deltaOfDelta >= -256 && deltaOfDelta < 256) {
+            bitWriter.writeBits(0b110, 3);
+            bitWriter.writeBits(deltaOfDelta, 9);
+        } else if (deltaOfDelta >= -2048 && deltaOfDelta < 2048) {
+            bitWriter.writeBits(0b1110, 4);
+            bitWriter.writeBits(deltaOfDelta, 12);
+        } else {
+            if (deltaOfDelta < Integer.MIN_VALUE || deltaOfDelta > Integer.MAX_VALUE)
+                throw new IllegalArgumentException("Gap between timestamps is too large.");
+
+            bitWriter.writeBits(0b1111, 4);
+            bitWriter.writeBits(deltaOfDelta, 32);
+        }
+    }
+
+    private void writeValue(int xor) {
+
+        if (xor == 0) {
+            bitWriter.writeBit(false);
+            return;
+        }
+
+        bitWriter.writeBit(true);
+
+        int leadingZeros = Integer.numberOfLeadingZeros(xor);
+        int trailingZeros = Integer.numberOfTrailingZeros(xor);
+
+        if (leadingZeros >= lastLeadingZeros && trailingZeros >= lastTrailingZeros) {
+            // Changed bits fit into the previous window.
+            bitWriter.writeBit(false);
+            bitWriter.writeBits(xor >>> lastTrailingZeros, 32 - lastLeadingZeros - lastTrailingZeros);
+        } else {
+            int meaningfulBits = 32 - leadingZeros - trailingZeros;
+
+            bitWriter.writeBit(true);
+            bitWriter.writeBits(leadingZeros, 5);
+            bitWriter.writeBits(meaningfulBits - 1, 5);
+            bitWriter.writeBits(xor >>> trailingZeros, meaningfulBits);
+
+            lastLeadingZeros = leadingZeros;
+            lastTrailingZeros = trailingZeros;
+        }
+    }
+
+    int getCount() {
+        return count;
+    }
+
+    long getFirstTimestamp() {
+        return firstTimestamp;
+    }
+
+    long getLastTimestamp() {
+        return lastTimestamp;
+    }
+
+    long getBitLength() {
+        return bitWriter.getBitLength();
+    }
+
+    byte[] toByteArray() {
+        return bitWriter.toByteArray();
+    }
+}
@@ -0,0 +1,177 @@
+package dev.alpari.fujitsutrialtask.archive;
+
+import dev.alpari.fujitsutrialtask.model.WeatherData;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.net.URLDecoder;
+import java.net.URLEncoder;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.ToDoubleFunction;
+import java.util.stream.Stream;
+
+/**
+ * Compressed on-disk archive of air temperature and wind speed of every station.
+ *
+ * Every station and field is a separate append-only series in directory/station/field, stored in memory-mapped
+ * segment files (see TimeSeriesEncoder for the compression). Points of a series that are not sealed yet are kept
+ * in memory until flush() and in a head file of the series, which is synced on every append and replayed when the
+ * archive is opened.
+ */
+public class WeatherArchive implements Closeable {
+
+    public static final int DEFAULT_POINTS_PER_SEGMENT = 4096;
+
+    public enum Field {
+        AIR_TEMPERATURE(WeatherData::getAirTemperature),
+        WIND_SPEED(WeatherData::getWindSpeed);
+
+        private final ToDoubleFunction<WeatherData> reading;
+
+        Field(ToDoubleFunction<WeatherData> reading) {
+            this.reading = reading;
+        }
+    }
+
+    private static final Field[] FIELDS = Field.values();
+
+    private final Path directory;
+    private final int pointsPerSegment;
+
+    // Series of a station by field ordinal.
+    private final Map<String, SeriesArchive[]> stations = new ConcurrentHashMap<>();
+
+    public WeatherArchive(Path directory) throws IOException {
+        this(directory, DEFAULT_POINTS_PER_SEGMENT);
+    }
+
+    /**
+     * Open archive in the directory, creating the directory if needed.
+     *
+     * @param directory archive directory.
+     * @param pointsPerSegment number of points in a sealed segment.
+     */
+    public WeatherArchive(Path directory, int pointsPerSegment) throws IOException {
+
+        this.directory = Files.createDirectories(directory);
+        this.pointsPerSegment = pointsPerSegment;
+
+        try (Stream<Path> stationDirectories = Files.list(directory)) {
+            for (Path stationDirectory : stationDirectories.filter(Files::isDirectory).toList()) {
+                String stationName = URLDecoder.decode(stationDirectory.getFileName().toString(), StandardCharsets.UTF_8);
+                stations.put(stationName, openStation(stationName));
+            }
+        }
+    }
+
+    /**
+     * Append weather data, observations not newer than the last archived one of the station are ignored.
+     *
+     * Appended observations are on disk when this returns.
+     *
+     * @param weatherData weather data read from one observations document.
+     */
+    public void append(List<WeatherData> weatherData) {
+
+        try {
+            List<SeriesArchive> appendedSeries = new ArrayList<>();
+            for (WeatherData stationWeatherData : weatherData) {
+
+                SeriesArchive[] series = stations.computeIfAbsent(stationWeatherData.getStationName(),
+                        this::openStationUnchecked);
+
+                for (Field field : FIELDS) {
+                    if (series[field.ordinal()].append(stationWeatherData.getObservationTimestamp(),
+                            (float) field.reading.applyAsDouble(stationWeatherData))) {
+                        appendedSeries.add(series[field.ordinal()]);
+                    }
+                }
+            }
+
+            for (SeriesArchive series : appendedSeries) series.sync();
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    /**
+     * Pass archived points of the station in the time range to the consumer, oldest first.
+     *
+     * @param stationName station name (upper case).
+     * @param field field to read.
+     * @param fromTimestamp start of the range (seconds since epoch, inclusive).
+     * @param toTimestamp end of the range (seconds since epoch, inclusive).
+     * @param consumer receives points.
+     */
+    public void scan(String stationName, Field field, long fromTimestamp, long toTimestamp, PointConsumer consumer) {
+
+        SeriesArchive[] series = stations.get(stationName);
+        if (series != null) series[field.ordinal()].scan(fromTimestamp, toTimestamp, consumer);
+    }
+
+    /**
+     * Read archived points of the station in the time range.
+     */
+    public TimeSeries read(String stationName, Field field, long fromTimestamp, long toTimestamp) {
+
+        TimeSeries timeSeries = new TimeSeries();
+        scan(stationName, field, fromTimestamp, toTimestamp, timeSeries);
+        return timeSeries;
+    }
+
+    /**
+     * Seal points kept in memory into segment files.
+     */
+    public void flush() throws IOException {
+        for (SeriesArchive[] series : stations.values()) {
+            for (SeriesArchive fieldSeries : series) fieldSeries.seal();
+        }
+    }
+
+    /**
+     * Seal points kept in memory and close the head files.
+     */
+    @Override
+    public void close() throws IOException {
+        for (SeriesArchive[] series : stations.values()) {
+            for (SeriesArchive fieldSeries : series) fieldSeries.close();
+        }
+    }
+
+    /**
+     * Get size of the sealed segment files.
+     */
+    public long getSizeInBytes() {
+        return stations.values().stream()
+                .flatMap(Stream::of)
+                .mapToLong(SeriesArchive::getSizeInBytes)
+                .sum();
+    }
+
+    private SeriesArchive[] openStation(String stationName) throws IOException {
+
+        Path stationDirectory = directory.resolve(URLEncoder.encode(stationName, StandardCharsets.UTF_8));
+
+        SeriesArchive[] series = new SeriesArchive[FIELDS.length];
+        for (Field field : FIELDS) {
+            series[field.ordinal()] = new SeriesArchive(stationDirectory.resolve(field.name().toLowerCase(Locale.ROOT)),
+                    pointsPerSegment);
+        }
+        return series;
+    }
+
+    private SeriesArchive[] openStationUnchecked(String stationName) {
+        try {
+            return openStation(stationName);
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+    }
+}
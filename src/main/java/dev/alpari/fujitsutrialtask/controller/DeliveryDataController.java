@@ -1,17 +1,45 @@
 package dev.alpari.fujitsutrialtask.controller;
 
+import dev.alpari.fujitsutrialtask.archive.TimeSeries;
+import dev.alpari.fujitsutrialtask.archive.WeatherArchive;
+import dev.alpari.fujitsutrialtask.database.WeatherUpdateScheduler;
+import dev.alpari.fujitsutrialtask.dto.FeeGridDto;
+import dev.alpari.fujitsutrialtask.dto.FeeGridRequestDto;
+import dev.alpari.fujitsutrialtask.dto.FeeRulesDto;
 import dev.alpari.fujitsutrialtask.dto.WeatherDataDto;
-import dev.alpari.fujitsutrialtask.model.WeatherData;
+import dev.alpari.fujitsutrialtask.dto.WeatherDataPageDto;
+import dev.alpari.fujitsutrialtask.dto.WeatherDataRollupDto;
+import dev.alpari.fujitsutrialtask.dto.WeatherUpdateSchedulerStatusDto;
+import dev.alpari.fujitsutrialtask.mapper.WeatherDataMapper;
+import dev.alpari.fujitsutrialtask.model.RollupGranularity;
 import dev.alpari.fujitsutrialtask.service.DeliveryDataService;
+import dev.alpari.fujitsutrialtask.service.RegionalBaseFeeService;
+import dev.alpari.fujitsutrialtask.service.WeatherDataRollupService;
 import dev.alpari.fujitsutrialtask.service.WeatherDataService;
+import jakarta.servlet.http.HttpServletResponse;
 import lombok.Getter;
 import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
+import org.springframework.web.bind.annotation.DeleteMapping;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.PutMapping;
 import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.context.request.WebRequest;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.time.Instant;
+import java.util.List;
+import java.util.NoSuchElementException;
 
 @RequiredArgsConstructor
 @Getter
@@ -21,25 +49,282 @@ public class DeliveryDataController {
 
     private final WeatherDataService weatherDataService;
     private final DeliveryDataService deliveryDataService;
+    private final RegionalBaseFeeService regionalBaseFeeService;
+    private final WeatherDataRollupService weatherDataRollupService;
+    private final WeatherDataMapper weatherDataMapper;
+    private final ObjectProvider<WeatherArchive> weatherArchiveProvider;
+    private final WeatherUpdateScheduler weatherUpdateScheduler;
 
     @GetMapping("/weatherdata/getall")
-    public Iterable<WeatherData> findAll() {
-        System.out.println("Called /api/weatherdata");
-        return weatherDataService.getAll();
+    public WeatherDataPageDto findAll(@RequestParam(required = false) String station,
+                                      @RequestParam(required = false) Instant from,
+                                      @RequestParam(required = false) Instant to,
+                                      @RequestParam(required = false) String cursor,
+                                      @RequestParam(defaultValue = "100") int limit) {
+        try {
+            return weatherDataService.getPage(station == null ? null : station.toUpperCase(), from, to, cursor, limit);
+        } catch (IllegalArgumentException e) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, e.getMessage());
+        }
+    }
+
+    @GetMapping("/weatherdata/export")
+    public void exportWeatherData(@RequestParam(required = false) String station,
+                                  @RequestParam(required = false) Instant from,
+                                  @RequestParam(required = false) Instant to,
+                                  HttpServletResponse response) throws IOException {
+        response.setContentType(MediaType.APPLICATION_JSON_VALUE);
+        weatherDataService.writeAll(station == null ? null : station.toUpperCase(), from, to, response.getOutputStream());
+    }
+
+    @GetMapping("/weatherdata/latest")
+    public List<WeatherDataDto> findLatest() {
+        return weatherDataService.getLatestOfEveryStation();
+    }
+
+    @GetMapping("/weatherdata/history")
+    public List<WeatherDataDto> findHistory(@RequestParam String station, @RequestParam Instant from,
+                                         @RequestParam Instant to) {
+        return weatherDataService.getByStationNameBetween(station.toUpperCase(), from, to);
+    }
+
+    @GetMapping("/weatherdata/rollups")
+    public List<WeatherDataRollupDto> findRollups(@RequestParam String station,
+                                                  @RequestParam(defaultValue = "HOUR") RollupGranularity granularity,
+                                                  @RequestParam Instant from, @RequestParam Instant to) {
+        return weatherDataRollupService.getRollups(station.toUpperCase(), granularity, from, to).stream()
+                .map(weatherDataMapper::rollupToDto).toList();
+    }
+
+    @GetMapping("/weatherdata/archive")
+    public TimeSeries findArchived(@RequestParam String station, @RequestParam WeatherArchive.Field field,
+                                   @RequestParam Instant from, @RequestParam Instant to) {
+
+        WeatherArchive weatherArchive = weatherArchiveProvider.getIfAvailable();
+        if (weatherArchive == null) throw new ResponseStatusException(HttpStatus.NOT_FOUND, "Archive is not enabled.");
+
+        return weatherArchive.read(station.toUpperCase(), field, from.getEpochSecond(), to.getEpochSecond());
     }
 
     @PostMapping(value = "/weatherdata/add", produces = MediaType.APPLICATION_JSON_VALUE)
     public void addWeatherData(@RequestBody WeatherDataDto weatherDataDto) {
-        weatherDataService.add(weatherDataDto);
+
+        // Adding the same observation again does nothing.
+        try {
+            weatherDataService.add(weatherDataDto);
+        } catch (IllegalArgumentException e) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, e.getMessage());
+        }
     }
 
     @PostMapping(value = "/weatherdata/scheduler")
-    public void setWeatherUpdateSchedulerParameters(boolean start) {
-        if (start) deliveryDataService.getDeliveryManager().getWeatherDataManager().beginScheduledWeatherUpdate(true);
+    public WeatherUpdateSchedulerStatusDto setWeatherUpdateSchedulerParameters(boolean start) {
+
+        if (start) weatherUpdateScheduler.start();
+        else weatherUpdateScheduler.stop();
+
+        return weatherUpdateScheduler.getStatus();
+    }
+
+    @GetMapping("/weatherdata/scheduler")
+    public WeatherUpdateSchedulerStatusDto getWeatherUpdateSchedulerStatus() {
+        return weatherUpdateScheduler.getStatus();
+    }
+
+    @PostMapping("/weatherdata/scheduler/start")
+    public WeatherUpdateSchedulerStatusDto startWeatherUpdateScheduler() {
+        weatherUpdateScheduler.start();
+        return weatherUpdateScheduler.getStatus();
+    }
+
+    @PostMapping("/weatherdata/scheduler/stop")
+    public WeatherUpdateSchedulerStatusDto stopWeatherUpdateScheduler() {
+        weatherUpdateScheduler.stop();
+        return weatherUpdateScheduler.getStatus();
+    }
+
+    @PostMapping("/weatherdata/scheduler/poll")
+    public WeatherUpdateSchedulerStatusDto requestWeatherUpdate() {
+
+        // Requests arriving before the poll starts share it.
+        try {
+            weatherUpdateScheduler.requestUpdate();
+        } catch (IllegalStateException e) {
+            throw new ResponseStatusException(HttpStatus.CONFLICT, e.getMessage());
+        }
+
+        return weatherUpdateScheduler.getStatus();
     }
 
     @GetMapping("/delivery/getfee/")
-    public String getDeliveryFee(String location, String vehicle) {
-        return deliveryDataService.getDeliveryFee(location, vehicle);
+    public String getDeliveryFee(String location, String vehicle, WebRequest webRequest, HttpServletResponse response) {
+
+        String entityTag = deliveryDataService.getDeliveryFeeEntityTag();
+        if (isDeliveryFeeNotModified(webRequest, response, entityTag)) return null;
+
+        String deliveryFee = deliveryDataService.getDeliveryFee(location, vehicle);
+        setDeliveryFeeCacheHeaders(response, entityTag);
+        return deliveryFee;
+    }
+
+    @PostMapping(value = "/delivery/fees")
+    public void getDeliveryFees(InputStream requestBody, HttpServletResponse response) throws IOException {
+        response.setContentType("application/x-ndjson");
+        deliveryDataService.writeDeliveryFees(requestBody, response.getOutputStream());
+    }
+
+    @GetMapping(value = "/delivery/fee", produces = MediaType.APPLICATION_JSON_VALUE)
+    public byte[] getDeliveryFeeBreakdown(@RequestParam String location, @RequestParam String vehicle,
+                                          WebRequest webRequest, HttpServletResponse response) {
+
+        String entityTag = deliveryDataService.getDeliveryFeeEntityTag();
+        if (isDeliveryFeeNotModified(webRequest, response, entityTag)) return null;
+
+        try {
+            byte[] json = deliveryDataService.getDeliveryFeeJson(location, vehicle);
+            setDeliveryFeeCacheHeaders(response, entityTag);
+            return json;
+        } catch (IllegalArgumentException e) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, e.getMessage());
+        } catch (NoSuchElementException e) {
+            throw new ResponseStatusException(HttpStatus.NOT_FOUND, e.getMessage());
+        }
+    }
+
+    @GetMapping(value = "/delivery/fee/at", produces = MediaType.APPLICATION_JSON_VALUE)
+    public byte[] getDeliveryFeeBreakdownAt(@RequestParam String location, @RequestParam String vehicle,
+                                            @RequestParam Instant time) {
+
+        try {
+            return deliveryDataService.getDeliveryFeeJsonAt(location, vehicle, time);
+        } catch (IllegalArgumentException e) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, e.getMessage());
+        } catch (NoSuchElementException e) {
+            throw new ResponseStatusException(HttpStatus.NOT_FOUND, e.getMessage());
+        }
+    }
+
+    @GetMapping(value = "/delivery/fee/nearest", produces = MediaType.APPLICATION_JSON_VALUE)
+    public byte[] getDeliveryFeeBreakdownNearest(@RequestParam double latitude, @RequestParam double longitude,
+                                                 @RequestParam String vehicle, WebRequest webRequest,
+                                                 HttpServletResponse response) {
+
+        String entityTag = deliveryDataService.getDeliveryFeeEntityTag();
+        if (isDeliveryFeeNotModified(webRequest, response, entityTag)) return null;
+
+        try {
+            byte[] json = deliveryDataService.getDeliveryFeeJsonNear(latitude, longitude, vehicle);
+            setDeliveryFeeCacheHeaders(response, entityTag);
+            return json;
+        } catch (IllegalArgumentException e) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, e.getMessage());
+        } catch (NoSuchElementException e) {
+            throw new ResponseStatusException(HttpStatus.NOT_FOUND, e.getMessage());
+        }
+    }
+
+    @PutMapping("/delivery/location")
+    public String putLocation(@RequestParam String location, @RequestParam String station) {
+
+        try {
+            String registeredLocation = deliveryDataService.addLocation(location, station);
+            // Regional base fees stored for the location apply at once.
+            regionalBaseFeeService.reload();
+            return registeredLocation;
+        } catch (IllegalArgumentException e) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, e.getMessage());
+        } catch (IllegalStateException e) {
+            throw new ResponseStatusException(HttpStatus.CONFLICT, e.getMessage());
+        }
+    }
+
+    @DeleteMapping("/delivery/location")
+    public String deleteLocation(@RequestParam String location) {
+
+        try {
+            return deliveryDataService.removeLocation(location);
+        } catch (NoSuchElementException e) {
+            throw new ResponseStatusException(HttpStatus.NOT_FOUND, e.getMessage());
+        }
+    }
+
+    @PutMapping("/delivery/regionalbasefee")
+    public void putRegionalBaseFee(@RequestParam String location, @RequestParam String vehicle,
+                                   @RequestParam float fee) {
+
+        try {
+            regionalBaseFeeService.setRegionalBaseFee(location, vehicle, fee);
+        } catch (IllegalArgumentException e) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, e.getMessage());
+        }
+    }
+
+    @GetMapping(value = "/delivery/rules", produces = MediaType.APPLICATION_JSON_VALUE)
+    public FeeRulesDto getFeeRules() {
+        return deliveryDataService.getFeeRules();
+    }
+
+    @PutMapping("/delivery/rules")
+    public long putFeeRules(@RequestBody FeeRulesDto feeRulesDto) {
+
+        try {
+            return deliveryDataService.setFeeRules(feeRulesDto);
+        } catch (IllegalArgumentException e) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, e.getMessage());
+        }
+    }
+
+    @PostMapping(value = "/delivery/rules/evaluate", produces = MediaType.APPLICATION_JSON_VALUE)
+    public FeeGridDto evaluateFeeGrid(@RequestBody FeeGridRequestDto feeGridRequestDto) {
+
+        try {
+            return deliveryDataService.evaluateFeeGrid(feeGridRequestDto);
+        } catch (IllegalArgumentException e) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, e.getMessage());
+        } catch (NoSuchElementException e) {
+            throw new ResponseStatusException(HttpStatus.NOT_FOUND, e.getMessage());
+        }
+    }
+
+    /**
+     * Check conditional request against the current delivery fees, before any fee is read.
+     *
+     * Entity tag changes with weather, regional base fees, fee rules and locations, and is the same on every node
+     * serving the same fees. Headers are only set here if the client has current fees, otherwise once the fee is
+     * found, so that errors are not cached.
+     *
+     * @param entityTag entity tag of the current delivery fees.
+     * @return true if the client has current fees, response is then 304 Not Modified.
+     */
+    private boolean isDeliveryFeeNotModified(WebRequest webRequest, HttpServletResponse response, String entityTag) {
+
+        if (!matchesEntityTag(webRequest.getHeader(HttpHeaders.IF_NONE_MATCH), entityTag)) return false;
+
+        setDeliveryFeeCacheHeaders(response, entityTag);
+        return webRequest.checkNotModified(entityTag);
+    }
+
+    /**
+     * Responses may be cached until the next observations are expected, other fee changes before that reach caches
+     * on revalidation only.
+     */
+    private void setDeliveryFeeCacheHeaders(HttpServletResponse response, String entityTag) {
+
+        response.setHeader(HttpHeaders.ETAG, entityTag);
+        response.setHeader(HttpHeaders.CACHE_CONTROL,
+                CacheControl.maxAge(weatherUpdateScheduler.getTimeToNextPublish()).getHeaderValue());
+    }
+
+    // Weak comparison of If-None-Match, as for GET requests.
+    private static boolean matchesEntityTag(String ifNoneMatch, String entityTag) {
+
+        if (ifNoneMatch == null) return false;
+
+        String opaqueTag = entityTag.startsWith("W/") ? entityTag.substring(2) : entityTag;
+        for (String tag : ifNoneMatch.split(",")) {
+            tag = tag.trim();
+            if (tag.equals("*") || (tag.startsWith("W/") ? tag.substring(2) : tag).equals(opaqueTag)) return true;
+        }
+        return false;
     }
 }
@@ -0,0 +1,171 @@
+package dev.alpari.fujitsutrialtask.database;
+
+/**
+ * Immutable nearest neighbour index of named points on the Earth's surface.
+ *
+ * Points are kept as unit vectors in a k-d tree laid out in flat arrays: the median of every range is its root,
+ * split axes cycle x, y, z. Straight-line distance between unit vectors grows with great-circle distance,
+ * so the nearest vector is the nearest point. Lookups allocate nothing.
+ */
+public class GeoIndex {
+
+    public static final GeoIndex EMPTY = new GeoIndex(new String[0]);
+
+    private static final int DIMENSIONS = 3;
+
+    // Tree order.
+    private final String[] names;
+
+    // Unit vectors, coordinates[axis][i].
+    private final double[][] coordinates;
+
+    private GeoIndex(String[] names) {
+        this.names = names;
+        this.coordinates = new double[DIMENSIONS][names.length];
+    }
+
+    /**
+     * Build an index.
+     *
+     * @param names point names.
+     * @param latitudes latitudes of the points (degrees).
+     * @param longitudes longitudes of the points (degrees).
+     * @return index.
+     */
+    public static GeoIndex of(String[] names, double[] latitudes, double[] longitudes) {
+
+        int size = names.length;
+        if (latitudes.length != size || longitudes.length != size)
+            throw new IllegalArgumentException("Every point must have a name, latitude and longitude.");
+
+        if (size == 0) return EMPTY;
+
+        GeoIndex index = new GeoIndex(names.clone());
+        for (int i = 0; i < size; i++) index.setVector(i, latitudes[i], longitudes[i]);
+
+        index.build(0, size, 0);
+        return index;
+    }
+
+    /**
+     * Find the nearest point.
+     *
+     * @param latitude latitude (degrees).
+     * @param longitude longitude (degrees).
+     * @return name of the nearest point or null if the index is empty.
+     */
+    public String findNearest(double latitude, double longitude) {
+
+        if (names.length == 0) return null;
+
+        double latitudeRadians = Math.toRadians(latitude);
+        double longitudeRadians = Math.toRadians(longitude);
+        double cosLatitude = Math.cos(latitudeRadians);
+
+        return names[nearest(0, names.length, 0, cosLatitude * Math.cos(longitudeRadians),
+                cosLatitude * Math.sin(longitudeRadians), Math.sin(latitudeRadians), -1)];
+    }
+
+    public int size() {
+        return names.length;
+    }
+
+    private int nearest(int from, int to, int axis, double x, double y, double z, int best) {
+
+        if (from >= to) return best;
+
+        int median = (from + to) >>> 1;
+        double distance = distanceSquared(median, x, y, z);
+        if (best < 0 || distance < distanceSquared(best, x, y, z)) best = median;
+
+        double difference = (axis == 0 ? x : axis == 1 ? y : z) - coordinates[axis][median];
+        int nextAxis = (axis + 1) % DIMENSIONS;
+
+        // Search the side of the query first, the other side only if it can be closer than the best so far.
+        if (difference < 0) {
+            best = nearest(from, median, nextAxis, x, y, z, best);
+            if (difference * difference < distanceSquared(best, x, y, z))
+                best = nearest(median + 1, to, nextAxis, x, y, z, best);
+        } else {
+            best = nearest(median + 1, to, nextAxis, x, y, z, best);
+            if (difference * difference < distanceSquared(best, x, y, z))
+                best = nearest(from, median, nextAxis, x, y, z, best);
+        }
+
+        return best;
+    }
+
+    private double distanceSquared(int i, double x, double y, double z) {
+
+        double dx = coordinates[0][i] - x;
+        double dy = coordinates[1][i] - y;
+        double dz = coordinates[2][i] - z;
+        return dx * dx + dy * dy + dz * dz;
+    }
+
+    private void setVector(int i, double latitude, double longitude) {
+
+        double latitudeRadians = Math.toRadians(latitude);
+        double longitudeRadians = Math.toRadians(longitude);
+        double cosLatitude = Math.cos(latitudeRadians);
+
+        coordinates[0][i] = cosLatitude * Math.cos(longitudeRadians);
+        coordinates[1][i] = cosLatitude * Math.sin(longitudeRadians);
+        coordinates[2][i] = Math.sin(latitudeRadians);
+    }
+
+    /**
+     * Arrange points of the range so that its median splits it by the axis, then arrange both halves.
+     */
+    private void build(int from, int to, int axis) {
+
+        if (to - from <= 1) return;
+
+        int median = (from + to) >>> 1;
+        select(from, to - 1, median, axis);
+
+        int nextAxis = (axis + 1) % DIMENSIONS;
+        build(from, median, nextAxis);
+        build(median + 1, to, nextAxis);
+    }
+
+    /**
+     * Quickselect: put the k-th smallest point by the axis to position k, smaller ones before and larger ones after it.
+     */
+    private void select(int left, int right, int k, int axis) {
+
+        double[] values = coordinates[axis];
+
+        while (left < right) {
+
+            double pivot = values[(left + right) >>> 1];
+            int i = left;
+            int j = right;
+
+            while (i <= j) {
+                while (values[i] < pivot) i++;
+                while (values[j] > pivot) j--;
+                if (i <= j) swap(i++, j--);
+            }
+
+            if (k <= j) right = j;
+            else if (k >= i) left = i;
+            else return;
+        }
+    }
+
+    private void swap(int i, int j) {
+
+        String name = names[i];
+        names[i] = names[j];
+        names[j] = name;
+
+        for (double[] axisCoordinates : coordinates) swap(axisCoordinates, i, j);
+    }
+
+    private static void swap(double[] values, int i, int j) {
+        double value = values[i];
+        values[i] = values[j];
+        values[j] = value;
+    }
+}
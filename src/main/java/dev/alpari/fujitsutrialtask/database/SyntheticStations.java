@@ -0,0 +1,61 @@
+package dev.alpari.fujitsutrialtask.database;
+
+import java.util.Locale;
+import java.util.Random;
+
+/**
+ * Generated stations in the format of the observations feed, used by load tests and benchmarks. Not used by the
+ * application itself.
+ *
+ * Stations (names, codes, coordinates) are the same for the same count, readings are random but repeatable for the
+ * same seed.
+ */
+public final class SyntheticStations {
+
+    private static final String[] PHENOMENA = {"", "Clear", "Few clouds", "Overcast", "Light rain", "Moderate shower",
+            "Light snow shower", "Light sleet", "Glaze", "Thunderstorm"};
+
+    private SyntheticStations() {
+    }
+
+    /**
+     * @param stationCount number of stations.
+     * @param seed seed of the readings.
+     * @return station elements, to be placed inside the observations element.
+     */
+    public static String generate(int stationCount, long seed) {
+
+        Random random = new Random(seed);
+        StringBuilder stations = new StringBuilder(stationCount * 600);
+
+        for (int i = 0; i < stationCount; i++) {
+
+            // Every tenth station reports no wind speed, like some of the real ones.
+            String windSpeed = i % 10 == 9 ? "" : format(random.nextDouble() * 20);
+
+            stations.append("\t<station>\n")
+                    .append("\t\t<name>Station-").append(i).append("</name>\n")
+                    .append("\t\t<wmocode>").append(30000 + i).append("</wmocode>\n")
+                    .append("\t\t<longitude>").append(21.5 + 6.5 * i / stationCount).append("</longitude>\n")
+                    .append("\t\t<latitude>").append(57.5 + 2.2 * (i * 7919L % stationCount) / stationCount).append("</latitude>\n")
+                    .append("\t\t<phenomenon>").append(PHENOMENA[random.nextInt(PHENOMENA.length)]).append("</phenomenon>\n")
+                    .append("\t\t<visibility>35.0</visibility>\n")
+                    .append("\t\t<precipitations>0</precipitations>\n")
+                    .append("\t\t<airpressure>1016.2</airpressure>\n")
+                    .append("\t\t<relativehumidity>55</relativehumidity>\n")
+                    .append("\t\t<airtemperature>").append(format(random.nextDouble() * 40 - 20)).append("</airtemperature>\n")
+                    .append("\t\t<winddirection>235</winddirection>\n")
+                    .append("\t\t<windspeed>").append(windSpeed).append("</windspeed>\n")
+                    .append("\t\t<windspeedmax/>\t\t<waterlevel/>\t\t<waterlevel_eh2000/>\n")
+                    .append("\t\t<watertemperature/>\n")
+                    .append("\t\t<uvindex/>\n")
+                    .append("\t</station>\n");
+        }
+
+        return stations.toString();
+    }
+
+    private static String format(double reading) {
+        return String.format(Locale.ROOT, "%.1f", reading);
+    }
+}
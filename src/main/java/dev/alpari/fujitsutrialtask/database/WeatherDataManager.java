@@ -2,96 +2,204 @@ package dev.alpari.fujitsutrialtask.database;
 
 import dev.alpari.fujitsutrialtask.HttpRequester;
 import dev.alpari.fujitsutrialtask.model.WeatherData;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import lombok.Getter;
+import lombok.Setter;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.w3c.dom.Document;
-import org.w3c.dom.Element;
-import org.w3c.dom.Node;
-import org.w3c.dom.NodeList;
 import org.xml.sax.SAXException;
 
 import javax.xml.parsers.DocumentBuilder;
 import javax.xml.parsers.DocumentBuilderFactory;
 import javax.xml.parsers.ParserConfigurationException;
+import javax.xml.stream.XMLStreamException;
 import javax.xml.transform.Transformer;
 import javax.xml.transform.TransformerException;
 import javax.xml.transform.TransformerFactory;
 import javax.xml.transform.dom.DOMSource;
 import javax.xml.transform.stream.StreamResult;
-import java.io.File;
+import java.io.BufferedInputStream;
+import java.io.FileInputStream;
 import java.io.FileOutputStream;
 import java.io.IOException;
+import java.io.InputStream;
 import java.io.OutputStreamWriter;
+import java.net.HttpURLConnection;
 import java.net.URL;
 import java.net.URLConnection;
+import java.net.http.HttpResponse;
 import java.nio.charset.StandardCharsets;
-import java.text.SimpleDateFormat;
-import java.util.Date;
+import java.time.Duration;
+import java.time.Instant;
 import java.util.HashMap;
-import java.util.HashSet;
+import java.util.List;
 import java.util.Map;
 import java.util.NoSuchElementException;
-import java.util.Set;
-import java.util.concurrent.Executors;
-import java.util.concurrent.ScheduledExecutorService;
-import java.util.concurrent.TimeUnit;
+import java.util.concurrent.CopyOnWriteArrayList;
 
 @Getter
 public class WeatherDataManager {
 
-    private final Set<String> stationsToCheck = new HashSet<>(Set.of("TALLINN-HARKU", "TARTU-TÕRAVERE", "PÄRNU"));
-    private final Map<String, WeatherData> latestWeatherData = new HashMap<>();
+    private static final Logger LOGGER = LoggerFactory.getLogger(WeatherDataManager.class);
 
-    private final HttpRequester httpRequester = new HttpRequester();
+    public static final String DEFAULT_WEATHER_DATA_URL = "https://www.ilmateenistus.ee/ilma_andmed/xml/observations.php";
+
+    // Copy of the feed bundled with the application (classpath resource), used only until the first successful fetch.
+    private static final String FALLBACK_WEATHER_DATA_RESOURCE = "weather-data.xml";
+
+    /*
+     Latest weather data of every station. Replaced as a whole once per ingested observations document,
+     readers take no locks and always see a consistent set of stations.
+     */
+    private volatile WeatherSnapshot weatherSnapshot = WeatherSnapshot.EMPTY;
+
+    // All weather data of every station by observation time, for fees at past instants.
+    private final WeatherHistory weatherHistory = new WeatherHistory();
+
+    // How long observations are kept in the history, counted back from the latest observations. Null keeps all.
+    @Setter
+    private volatile Duration historyRetention;
+
+    private final HttpRequester httpRequester;
+    private final WeatherPhenomenonClassifier weatherPhenomenonClassifier;
+    private final WeatherDataXmlParser weatherDataXmlParser;
+
+    // Meters of this manager and of the delivery fees computed from its weather data.
+    private final MeterRegistry meterRegistry;
+    private final WeatherDataMetrics weatherDataMetrics;
+
+    // Called after weather snapshot or locations change.
+    private final List<Runnable> updateListeners = new CopyOnWriteArrayList<>();
+
+    // Observations feed polled by updateWeatherData, e.g. a local stub in load tests.
+    @Setter
+    private volatile String weatherDataUrl = DEFAULT_WEATHER_DATA_URL;
+
+    // Where weather data is stored when updates are done with saveDataToDatabase set.
+    @Setter
+    private WeatherDataSink weatherDataSink;
 
     /*
      Store here information about which location's weather data is available in which station.
 
      e.g. Tartu: Tartu-Tõravere station, Tõravere: Tartu-Tõravere station.
+
+     Unmodifiable, copied on write.
      */
-    private final Map<String, String> locations = new HashMap<>();
+    private volatile Map<String, String> locations = Map.of();
+
+    /*
+     Validators of the last fetched feed response, used to skip work when the feed has not changed
+     since the previous update.
+     */
+    private String weatherDataETag;
+    private String weatherDataLastModified;
+
+    /*
+     Held while a document is fetched, parsed and stored, so updates run one at a time. Locations can change
+     meanwhile: only publishing the new snapshot takes the lock of the manager.
+     */
+    private final Object updateLock = new Object();
 
 
     public WeatherDataManager() {
-        setLocationToWeatherStation("TALLINN", "TALLINN-HARKU");
-        setLocationToWeatherStation("TARTU", "TARTU-TÕRAVERE");
-        setLocationToWeatherStation("PÄRNU", "PÄRNU");
+        this(new WeatherPhenomenonClassifier());
     }
 
     /**
-     * Start scheduler to update weather every fixed interval.
-     *
-     * @param saveDataToDatabase store read weather data to database or not
+     * @param weatherPhenomenonClassifier classifies weather phenomenons when weather data is read.
      */
-    public void beginScheduledWeatherUpdate(boolean saveDataToDatabase) {
-        // Create a new scheduled cronjob task.
-        ScheduledExecutorService executorService = Executors.newScheduledThreadPool(1);
-        Runnable task = () -> updateWeatherData(saveDataToDatabase);
-//        executorService.scheduleAtFixedRate(task, getSchedulerInitialDelay(), 1, TimeUnit.HOURS);
-        executorService.scheduleAtFixedRate(task, 0, 5, TimeUnit.SECONDS);
+    public WeatherDataManager(WeatherPhenomenonClassifier weatherPhenomenonClassifier) {
+        this(weatherPhenomenonClassifier, new HttpRequester());
     }
 
     /**
-     * Calculate an offset (initial delay) for scheduler to start to hit the update interval of HH:15:00.
-     *
-     * @return initial delay until next interval start.
+     * @param weatherPhenomenonClassifier classifies weather phenomenons when weather data is read.
+     * @param httpRequester fetches the observations feed.
+     */
+    public WeatherDataManager(WeatherPhenomenonClassifier weatherPhenomenonClassifier, HttpRequester httpRequester) {
+        this(weatherPhenomenonClassifier, httpRequester, new SimpleMeterRegistry());
+    }
+
+    /**
+     * @param weatherPhenomenonClassifier classifies weather phenomenons when weather data is read.
+     * @param httpRequester fetches the observations feed.
+     * @param meterRegistry registry of ingestion, persistence and delivery fee meters.
      */
-    public long getSchedulerInitialDelay() {
+    public WeatherDataManager(WeatherPhenomenonClassifier weatherPhenomenonClassifier, HttpRequester httpRequester,
+                              MeterRegistry meterRegistry) {
 
-        long currentTimeMillis = System.currentTimeMillis();
-        long hourMillis = TimeUnit.HOURS.toMillis(1);
-        long fifteenMinutesInMillis = TimeUnit.MINUTES.toMillis(15);
+        this.weatherPhenomenonClassifier = weatherPhenomenonClassifier;
+        this.httpRequester = httpRequester;
+        this.weatherDataXmlParser = new WeatherDataXmlParser(weatherPhenomenonClassifier);
+        this.meterRegistry = meterRegistry;
+        this.weatherDataMetrics = new WeatherDataMetrics(meterRegistry, this::getWeatherSnapshot);
 
-        long untilNextHour = currentTimeMillis - (currentTimeMillis % hourMillis) + hourMillis;
-        return untilNextHour + fifteenMinutesInMillis - currentTimeMillis;
+        setLocationToWeatherStation("TALLINN", "TALLINN-HARKU");
+        setLocationToWeatherStation("TARTU", "TARTU-TÕRAVERE");
+        setLocationToWeatherStation("PÄRNU", "PÄRNU");
     }
 
     /**
-     * Update weather data.
+     * Update weather data, polled by WeatherUpdateScheduler.
+     *
+     * Feed is requested conditionally and parsed straight from the response stream. If the feed is not modified
+     * or its observations are not newer than the last ingested ones, nothing else is done.
      */
     public void updateWeatherData(boolean saveDataToDatabase) {
-        System.out.println("Weather updated");
-        readXmlFromLink("https://www.ilmateenistus.ee/ilma_andmed/xml/observations.php", "weather-data.xml");
-        readXmlFromFile("src/main/java/dev/alpari/fujitsutrialtask/database/weather-data.xml", saveDataToDatabase);
+
+        synchronized (updateLock) {
+            long fetchStart = System.nanoTime();
+            int statusCode = -1;
+            try {
+                HttpResponse<InputStream> response = httpRequester.makeConditionalHttpGetRequest(weatherDataUrl,
+                        weatherDataETag, weatherDataLastModified);
+                statusCode = response.statusCode();
+                weatherDataMetrics.recordFetch(statusCode, fetchStart);
+
+                try (InputStream inputStream = response.body()) {
+
+                    if (response.statusCode() == HttpURLConnection.HTTP_NOT_MODIFIED) return;
+                    if (response.statusCode() != HttpURLConnection.HTTP_OK)
+                        throw new IOException("Unexpected response status code: " + response.statusCode());
+
+                    readXml(inputStream, saveDataToDatabase);
+
+                    weatherDataETag = response.headers().firstValue("ETag").orElse(null);
+                    weatherDataLastModified = response.headers().firstValue("Last-Modified").orElse(null);
+                }
+            } catch (IOException | XMLStreamException e) {
+                // Request failed without a response.
+                if (statusCode == -1) weatherDataMetrics.recordFetch(statusCode, fetchStart);
+
+                weatherDataMetrics.recordUpdateFailure();
+
+                // Keep serving the latest data, but do not start empty if the feed is unreachable.
+                if (weatherSnapshot.isEmpty()) {
+                    LOGGER.warn("Weather update failed, reading the bundled feed instead.", e);
+                    readBundledXml();
+                } else {
+                    LOGGER.warn("Weather update failed, keeping the latest weather data.", e);
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    /**
+     * Read the feed bundled with the application. Its observations are old, they are never stored.
+     */
+    private void readBundledXml() {
+
+        try (InputStream inputStream = WeatherDataManager.class.getResourceAsStream(FALLBACK_WEATHER_DATA_RESOURCE)) {
+            if (inputStream == null) throw new IOException(FALLBACK_WEATHER_DATA_RESOURCE + " is not on the classpath.");
+            readXml(new BufferedInputStream(inputStream), false);
+        } catch (IOException | XMLStreamException e) {
+            LOGGER.error("Could not read the bundled feed, there is no weather data until the next update.", e);
+        }
     }
 
     /**
@@ -121,87 +229,98 @@ public class WeatherDataManager {
             transformer.transform(new DOMSource(doc), result);
 
         } catch (IOException | ParserConfigurationException | TransformerException e) {
-            e.printStackTrace();
+            weatherDataMetrics.recordExportFailure();
+            LOGGER.error("Could not save weather data from {} to {}.", urlString, outputFileName, e);
         } catch (SAXException e) {
             throw new RuntimeException(e);
         }
     }
 
     /**
-     * Parse string value of timestamp to human-readable format.
+     * Read data from .xml file.
      *
-     * 1678738197 -> 2023-03-13 22:09:57 PM.
-     * @param timestampString string value of timestamp.
-     * @return Human-readable timestamp.
+     * @param path path to .xml file.
      */
-    public String parseTimestamp(String timestampString) {
+    public void readXmlFromFile(String path, boolean saveDataToDatabase) {
 
-        long timestamp = Long.parseLong(timestampString) * 1000L;  // Convert to milliseconds.
-        Date date = new Date(timestamp);
-        SimpleDateFormat formatter = new SimpleDateFormat("yyyy-MM-dd HH:mm:ss a");
-        return formatter.format(date);
+        synchronized (updateLock) {
+            try (InputStream inputStream = new BufferedInputStream(new FileInputStream(path))) {
+                readXml(inputStream, saveDataToDatabase);
+            } catch (IOException | XMLStreamException e) {
+                throw new RuntimeException(e);
+            }
+        }
     }
 
     /**
-     * Read data from .xml file.
+     * Read data from an .xml document in a stream, e.g. one kept in memory.
      *
-     * @param path path to .xml file.
+     * @param inputStream stream with .xml document, not closed.
      */
-    public void readXmlFromFile(String path, boolean saveDataToDatabase) {
-
-        try {
+    public void readXmlFromStream(InputStream inputStream, boolean saveDataToDatabase) throws XMLStreamException {
 
-            File xmlInputFile = new File(path);
+        synchronized (updateLock) {
+            readXml(inputStream, saveDataToDatabase);
+        }
+    }
 
-            DocumentBuilderFactory factory = DocumentBuilderFactory.newInstance();
-            DocumentBuilder builder = factory.newDocumentBuilder();
+    /**
+     * Read observations .xml document and publish a new weather snapshot, called holding updateLock.
+     *
+     * Document is skipped right after its root element if its observations are not newer than the latest ones,
+     * e.g. unchanged or served by a stale cache.
+     *
+     * @param inputStream stream with .xml document.
+     */
+    private void readXml(InputStream inputStream, boolean saveDataToDatabase) throws XMLStreamException {
 
-            Document document = builder.parse(xmlInputFile);
-            NodeList nodeList = document.getElementsByTagName("station");
+        // Read every station, so any of them can be mapped to a location later.
+        long parseStart = System.nanoTime();
+        WeatherObservations observations = weatherDataXmlParser.parse(inputStream,
+                timestamp -> timestamp > weatherSnapshot.getObservationTimestamp(), stationName -> true);
+        weatherDataMetrics.recordParse(observations, parseStart);
 
-            String observationTimestamp = parseTimestamp(document.getDocumentElement().getAttribute("timestamp"));
+        if (observations == null) return;
 
-            for (int i = 0; i < nodeList.getLength(); i++) {
+        // Save all stations to the database at once.
+        if (saveDataToDatabase) {
+            if (weatherDataSink == null) throw new IllegalStateException("Weather data sink is not set.");
 
-                Node node = nodeList.item(i);
+            long persistenceStart = System.nanoTime();
+            int storedRows = weatherDataSink.save(observations.getWeatherData());
+            weatherDataMetrics.recordPersistence(storedRows, persistenceStart);
+        }
 
-                if (node.getNodeType() == Node.ELEMENT_NODE) {
-                    Element element = (Element) node;
+        publish(observations);
+    }
 
-                    String stationName = element.getElementsByTagName("name").item(0).getTextContent().toUpperCase();
+    /**
+     * Update the latest weather data and history, then notify listeners.
+     */
+    private synchronized void publish(WeatherObservations observations) {
 
-                    if (stationsToCheck.contains(stationName)) {
-                        // Read data for specified stations only.
+        weatherSnapshot = weatherSnapshot.next(observations.getTimestamp(), observations.getWeatherData());
+        for (WeatherData weatherData : observations.getWeatherData()) weatherHistory.add(weatherData);
 
-                        String stationWmoCode = element.getElementsByTagName("wmocode").item(0).getTextContent();
-                        float airTemperature = Float.parseFloat(element.getElementsByTagName("airtemperature")
-                                .item(0).getTextContent());
-                        float windSpeed = Float.parseFloat(element.getElementsByTagName("windspeed").item(0).getTextContent());
-                        String weatherPhenomenon = element.getElementsByTagName("phenomenon").item(0).getTextContent();
+        Duration retention = historyRetention;
+        if (retention != null) weatherHistory.prune(observations.getTimestamp() - retention.getSeconds());
 
-                        // Build WeatherData object.
-                        WeatherData weatherData = WeatherData.builder()
-                                .stationName(stationName)
-                                .stationWmoCode(stationWmoCode)
-                                .airTemperature(airTemperature)
-                                .windSpeed(windSpeed)
-                                .weatherPhenomenon(weatherPhenomenon)
-                                .observationTimestamp(observationTimestamp)
-                                .build();
+        notifyUpdateListeners();
+    }
 
-                        // Save it to the database.
-                        if (saveDataToDatabase) httpRequester.makeHttpPostRequest("http://localhost:8080/api/weatherdata/add", weatherData.toJson());
+    /**
+     * Add listener to be called after a new weather snapshot is published or locations change.
+     *
+     * Listeners are called on the updating thread.
+     *
+     * @param listener listener.
+     */
+    public void addUpdateListener(Runnable listener) {
+        updateListeners.add(listener);
+    }
 
-                        // Update the latest weather data.
-                        latestWeatherData.put(stationName, weatherData);
-                    }
-                }
-            }
-        } catch (ParserConfigurationException e) {
-            e.printStackTrace();
-        } catch (IOException | SAXException e) {
-            throw new RuntimeException(e);
-        }
+    private void notifyUpdateListeners() {
+        for (Runnable listener : updateListeners) listener.run();
     }
 
     /**
@@ -213,25 +332,74 @@ public class WeatherDataManager {
     public WeatherData getLatestWeatherDataForLocation(String locationName) {
 
         locationName = locationName.toUpperCase();
-        String stationName = locations.get(locationName);
+        WeatherData weatherData = weatherSnapshot.getWeatherData(locations.get(locationName));
 
-        if (!latestWeatherData.containsKey(stationName))
-            throw new NoSuchElementException("Could not find data for location: " + locationName);
+        if (weatherData == null) throw new NoSuchElementException("Could not find data for location: " + locationName);
 
-        return latestWeatherData.get(stationName);
+        return weatherData;
     }
 
     /**
-     * Set location to weather station.
+     * Get weather data for specified location observed at or before specified time.
+     *
+     * Location is resolved to a weather station by the current location mapping.
+     *
+     * @param locationName name of the location to get data for.
+     * @param time time to get data at.
+     * @return WeatherData object.
+     */
+    public WeatherData getWeatherDataForLocationAt(String locationName, Instant time) {
+
+        locationName = locationName.toUpperCase();
+        WeatherData weatherData = weatherHistory.find(locations.get(locationName), time.getEpochSecond());
+
+        if (weatherData == null) throw new NoSuchElementException("Could not find data for location: " + locationName
+                + " at " + time);
+
+        return weatherData;
+    }
+
+    /**
+     * Add stored weather data to the history, e.g. rows read from the database on startup.
+     *
+     * @param weatherData weather data.
+     */
+    public void addToHistory(WeatherData weatherData) {
+        weatherHistory.add(weatherData);
+    }
+
+    /**
+     * Set location to weather station, location that already exists is moved to the new station.
      *
      * setLocationToWeatherStation("Tartu", "Tartu-Tõravere") -> Tartu city is now bonded to weather station "Tartu-Tõravere".
      *
      * @param stationName name of the weather station
      * @param location name of the location: city, town, village, etc.
      */
-    public void setLocationToWeatherStation(String location, String stationName) {
+    public synchronized void setLocationToWeatherStation(String location, String stationName) {
+
+        if (stationName.toUpperCase().equals(locations.get(location.toUpperCase()))) return;
+
+        Map<String, String> updatedLocations = new HashMap<>(locations);
+        updatedLocations.put(location.toUpperCase(), stationName.toUpperCase());
+        locations = Map.copyOf(updatedLocations);
+
+        notifyUpdateListeners();
+    }
+
+    /**
+     * Remove location from its weather station.
+     *
+     * @param location name of the location: city, town, village, etc.
+     */
+    public synchronized void removeLocation(String location) {
+
+        if (!locations.containsKey(location.toUpperCase())) return;
+
+        Map<String, String> updatedLocations = new HashMap<>(locations);
+        updatedLocations.remove(location.toUpperCase());
+        locations = Map.copyOf(updatedLocations);
 
-        if (locations.containsKey(location.toUpperCase())) throw new IllegalArgumentException("This location already exists.");
-        else locations.put(location.toUpperCase(), stationName.toUpperCase());
+        notifyUpdateListeners();
     }
 }
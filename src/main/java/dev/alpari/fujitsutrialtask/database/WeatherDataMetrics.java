@@ -0,0 +1,168 @@
+package dev.alpari.fujitsutrialtask.database;
+
+import dev.alpari.fujitsutrialtask.model.WeatherData;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+
+import java.net.HttpURLConnection;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * Meters of weather data ingestion and persistence.
+ *
+ * Every meter is registered up front, recording only updates it.
+ */
+public class WeatherDataMetrics {
+
+    private final Timer fetchOk;
+    private final Timer fetchNotModified;
+    private final Timer fetchError;
+    private final Timer parse;
+    private final Counter documentsIngested;
+    private final Counter documentsUnchanged;
+    private final Counter stationsIngested;
+    private final Counter stationsSkipped;
+    private final Timer persistence;
+    private final DistributionSummary persistedRows;
+    private final Counter updateFailures;
+    private final Counter exportFailures;
+
+    /**
+     * @param meterRegistry registry to register meters in.
+     * @param weatherSnapshot latest weather snapshot, for its age.
+     */
+    public WeatherDataMetrics(MeterRegistry meterRegistry, Supplier<WeatherSnapshot> weatherSnapshot) {
+
+        fetchOk = fetchTimer(meterRegistry, "ok");
+        fetchNotModified = fetchTimer(meterRegistry, "not_modified");
+        fetchError = fetchTimer(meterRegistry, "error");
+
+        parse = Timer.builder("weather.feed.parse")
+                .description("Reading and parsing an observations document, response body included")
+                .register(meterRegistry);
+
+        documentsIngested = documentCounter(meterRegistry, "ingested");
+        documentsUnchanged = documentCounter(meterRegistry, "unchanged");
+
+        stationsIngested = Counter.builder("weather.stations.ingested")
+                .description("Stations read from ingested observations documents")
+                .register(meterRegistry);
+        stationsSkipped = Counter.builder("weather.stations.skipped")
+                .description("Ingested stations without air temperature or wind speed, not usable for fees")
+                .register(meterRegistry);
+
+        persistence = Timer.builder("weather.persistence.batch")
+                .description("Storing weather data of one observations document")
+                .register(meterRegistry);
+        persistedRows = DistributionSummary.builder("weather.persistence.batch.size")
+                .description("Rows stored from one observations document")
+                .baseUnit("rows")
+                .register(meterRegistry);
+
+        updateFailures = failureCounter(meterRegistry, "update");
+        exportFailures = failureCounter(meterRegistry, "export");
+
+        Gauge.builder("weather.snapshot.age", weatherSnapshot, WeatherDataMetrics::getAgeInSeconds)
+                .description("Time since the observations of the latest weather snapshot, NaN before the first one")
+                .baseUnit("seconds")
+                .strongReference(true)
+                .register(meterRegistry);
+    }
+
+    /**
+     * @param statusCode response status code or -1 if the request failed.
+     * @param startNanos System.nanoTime() before the request.
+     */
+    public void recordFetch(int statusCode, long startNanos) {
+
+        Timer timer = switch (statusCode) {
+            case HttpURLConnection.HTTP_OK -> fetchOk;
+            case HttpURLConnection.HTTP_NOT_MODIFIED -> fetchNotModified;
+            default -> fetchError;
+        };
+
+        timer.record(System.nanoTime() - startNanos, TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * @param observations parsed observations or null if the document was skipped as unchanged.
+     * @param startNanos System.nanoTime() before parsing.
+     */
+    public void recordParse(WeatherObservations observations, long startNanos) {
+
+        if (observations == null) {
+            documentsUnchanged.increment();
+            return;
+        }
+
+        parse.record(System.nanoTime() - startNanos, TimeUnit.NANOSECONDS);
+        documentsIngested.increment();
+        stationsIngested.increment(observations.getWeatherData().size());
+
+        int skipped = 0;
+        for (WeatherData weatherData : observations.getWeatherData()) {
+            if (Float.isNaN(weatherData.getAirTemperature()) || Float.isNaN(weatherData.getWindSpeed())) skipped++;
+        }
+        stationsSkipped.increment(skipped);
+    }
+
+    /**
+     * @param storedRows number of stored rows.
+     * @param startNanos System.nanoTime() before storing.
+     */
+    public void recordPersistence(int storedRows, long startNanos) {
+
+        persistence.record(System.nanoTime() - startNanos, TimeUnit.NANOSECONDS);
+        persistedRows.record(storedRows);
+    }
+
+    /**
+     * Record a weather update that failed and kept the latest weather data.
+     */
+    public void recordUpdateFailure() {
+        updateFailures.increment();
+    }
+
+    /**
+     * Record a feed export to an .xml file that failed.
+     */
+    public void recordExportFailure() {
+        exportFailures.increment();
+    }
+
+    private static Timer fetchTimer(MeterRegistry meterRegistry, String status) {
+
+        return Timer.builder("weather.feed.fetch")
+                .description("Observations feed request until response headers")
+                .tag("status", status)
+                .register(meterRegistry);
+    }
+
+    private static Counter documentCounter(MeterRegistry meterRegistry, String result) {
+
+        return Counter.builder("weather.documents")
+                .description("Observations documents read, unchanged or older ones are skipped after the root element")
+                .tag("result", result)
+                .register(meterRegistry);
+    }
+
+    private static Counter failureCounter(MeterRegistry meterRegistry, String operation) {
+
+        return Counter.builder("weather.failures")
+                .description("Failed weather data operations, logged and otherwise ignored")
+                .tag("operation", operation)
+                .register(meterRegistry);
+    }
+
+    private static double getAgeInSeconds(Supplier<WeatherSnapshot> weatherSnapshotSupplier) {
+
+        WeatherSnapshot weatherSnapshot = weatherSnapshotSupplier.get();
+        if (weatherSnapshot.isEmpty()) return Double.NaN;
+
+        return System.currentTimeMillis() / 1000.0 - weatherSnapshot.getObservationTimestamp();
+    }
+}
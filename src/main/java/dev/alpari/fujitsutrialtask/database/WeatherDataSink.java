@@ -0,0 +1,20 @@
+package dev.alpari.fujitsutrialtask.database;
+
+import dev.alpari.fujitsutrialtask.model.WeatherData;
+
+import java.util.List;
+
+/**
+ * Destination for weather data read from the feed, receives all stations of one observations document at once.
+ */
+@FunctionalInterface
+public interface WeatherDataSink {
+
+    /**
+     * Store weather data.
+     *
+     * @param weatherData weather data of all stations read from a single observations document.
+     * @return number of stored rows.
+     */
+    int save(List<WeatherData> weatherData);
+}
@@ -0,0 +1,209 @@
+package dev.alpari.fujitsutrialtask.database;
+
+import dev.alpari.fujitsutrialtask.model.WeatherData;
+
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.LongPredicate;
+import java.util.function.Predicate;
+
+/**
+ * Single-pass streaming (StAX) parser for the observations feed.
+ *
+ * Only the fields used for delivery fee calculation are read, stations that are not tracked are skipped
+ * without materializing any of their elements. Empty readings are read as NaN and empty WMO code as null.
+ */
+public class WeatherDataXmlParser {
+
+    private static final String ELEMENT_OBSERVATIONS = "observations";
+    private static final String ELEMENT_STATION = "station";
+    private static final String ELEMENT_NAME = "name";
+    private static final String ELEMENT_WMO_CODE = "wmocode";
+    private static final String ELEMENT_AIR_TEMPERATURE = "airtemperature";
+    private static final String ELEMENT_WIND_SPEED = "windspeed";
+    private static final String ELEMENT_PHENOMENON = "phenomenon";
+    private static final String ELEMENT_LONGITUDE = "longitude";
+    private static final String ELEMENT_LATITUDE = "latitude";
+    private static final String ATTRIBUTE_TIMESTAMP = "timestamp";
+
+    private final XMLInputFactory xmlInputFactory = XMLInputFactory.newInstance();
+    private final WeatherPhenomenonClassifier weatherPhenomenonClassifier;
+
+    public WeatherDataXmlParser() {
+        this(new WeatherPhenomenonClassifier());
+    }
+
+    /**
+     * @param weatherPhenomenonClassifier classifies weather phenomenon of every read station.
+     */
+    public WeatherDataXmlParser(WeatherPhenomenonClassifier weatherPhenomenonClassifier) {
+
+        this.weatherPhenomenonClassifier = weatherPhenomenonClassifier;
+
+        // The feed has no DTD, do not resolve anything external.
+        xmlInputFactory.setProperty(XMLInputFactory.SUPPORT_DTD, false);
+        xmlInputFactory.setProperty(XMLInputFactory.IS_SUPPORTING_EXTERNAL_ENTITIES, false);
+        xmlInputFactory.setProperty(XMLInputFactory.IS_COALESCING, true);
+    }
+
+    /**
+     * Parse observations feed.
+     *
+     * @param inputStream stream with observations .xml document.
+     * @param stationFilter which stations (upper case names) to read.
+     * @return weather data of every matching station, in document order.
+     * @throws XMLStreamException if document is malformed.
+     */
+    public List<WeatherData> parse(InputStream inputStream, Predicate<String> stationFilter) throws XMLStreamException {
+        return parse(inputStream, timestamp -> true, stationFilter).getWeatherData();
+    }
+
+    /**
+     * Parse observations feed, stop right after the root element if its timestamp is not accepted.
+     *
+     * @param inputStream stream with observations .xml document.
+     * @param timestampFilter which observations timestamps (seconds since epoch) to read stations for.
+     * @param stationFilter which stations (upper case names) to read.
+     * @return observations or null if timestamp was not accepted.
+     * @throws XMLStreamException if document is malformed.
+     */
+    public WeatherObservations parse(InputStream inputStream, LongPredicate timestampFilter,
+                                     Predicate<String> stationFilter) throws XMLStreamException {
+
+        List<WeatherData> result = new ArrayList<>();
+        XMLStreamReader reader = xmlInputFactory.createXMLStreamReader(inputStream);
+
+        try {
+            long observationTimestamp = 0;
+
+            while (reader.hasNext()) {
+
+                if (reader.next() != XMLStreamConstants.START_ELEMENT) continue;
+
+                String elementName = reader.getLocalName();
+
+                if (ELEMENT_OBSERVATIONS.equals(elementName)) {
+                    observationTimestamp = Long.parseLong(reader.getAttributeValue(null, ATTRIBUTE_TIMESTAMP));
+                    if (!timestampFilter.test(observationTimestamp)) return null;
+                } else if (ELEMENT_STATION.equals(elementName)) {
+                    WeatherData weatherData = readStation(reader, stationFilter, observationTimestamp);
+                    if (weatherData != null) result.add(weatherData);
+                }
+            }
+
+            return new WeatherObservations(observationTimestamp, result);
+        } finally {
+            reader.close();
+        }
+    }
+
+    /**
+     * Read a single station element, reader must be positioned at its start tag.
+     *
+     * Returns as soon as station name is known not to be tracked, leaving the reader at the end tag of the station.
+     *
+     * @return WeatherData object or null if station is not tracked.
+     */
+    private WeatherData readStation(XMLStreamReader reader, Predicate<String> stationFilter,
+                                    long observationTimestamp) throws XMLStreamException {
+
+        String stationName = null;
+        String stationWmoCode = null;
+        String airTemperature = null;
+        String windSpeed = null;
+        String weatherPhenomenon = null;
+        String longitude = null;
+        String latitude = null;
+
+        while (reader.hasNext()) {
+
+            int event = reader.next();
+
+            if (event == XMLStreamConstants.END_ELEMENT && ELEMENT_STATION.equals(reader.getLocalName())) break;
+            if (event != XMLStreamConstants.START_ELEMENT) continue;
+
+            switch (reader.getLocalName()) {
+                case ELEMENT_NAME -> {
+                    stationName = reader.getElementText().toUpperCase();
+                    if (!stationFilter.test(stationName)) {
+                        skipToEndOfElement(reader);
+                        return null;
+                    }
+                }
+                case ELEMENT_WMO_CODE -> stationWmoCode = emptyToNull(reader.getElementText());
+                case ELEMENT_AIR_TEMPERATURE -> airTemperature = reader.getElementText();
+                case ELEMENT_WIND_SPEED -> windSpeed = reader.getElementText();
+                case ELEMENT_PHENOMENON -> weatherPhenomenon = reader.getElementText();
+                case ELEMENT_LONGITUDE -> longitude = reader.getElementText();
+                case ELEMENT_LATITUDE -> latitude = reader.getElementText();
+                default -> skipToEndOfElement(reader);
+            }
+        }
+
+        if (stationName == null) return null;
+
+        return WeatherData.builder()
+                .stationName(stationName)
+                .stationWmoCode(stationWmoCode)
+                .airTemperature(parseReading(airTemperature))
+                .windSpeed(parseReading(windSpeed))
+                .weatherPhenomenon(weatherPhenomenon)
+                .latitude(parseCoordinate(latitude))
+                .longitude(parseCoordinate(longitude))
+                .weatherPhenomenonCategory(weatherPhenomenonClassifier.classify(weatherPhenomenon))
+                .observationTimestamp(observationTimestamp)
+                .build();
+    }
+
+    /**
+     * Parse a numeric reading, stations leave readings they do not measure empty.
+     *
+     * @return reading or NaN if it is missing.
+     */
+    private static float parseReading(String reading) {
+
+        if (reading == null || reading.isBlank()) return Float.NaN;
+
+        try {
+            return Float.parseFloat(reading);
+        } catch (NumberFormatException e) {
+            return Float.NaN;
+        }
+    }
+
+    /**
+     * @return coordinate (degrees) or null if it is missing.
+     */
+    private static Double parseCoordinate(String coordinate) {
+
+        if (coordinate == null || coordinate.isBlank()) return null;
+
+        try {
+            return Double.parseDouble(coordinate);
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+
+    private static String emptyToNull(String value) {
+        return value.isBlank() ? null : value;
+    }
+
+    /**
+     * Skip to the end tag of the element reader is currently in, including all of its remaining children.
+     */
+    private void skipToEndOfElement(XMLStreamReader reader) throws XMLStreamException {
+
+        int depth = 1;
+        while (depth > 0) {
+            int event = reader.next();
+            if (event == XMLStreamConstants.START_ELEMENT) depth++;
+            else if (event == XMLStreamConstants.END_ELEMENT) depth--;
+        }
+    }
+}
@@ -0,0 +1,239 @@
+package dev.alpari.fujitsutrialtask.database;
+
+import dev.alpari.fujitsutrialtask.model.WeatherData;
+import dev.alpari.fujitsutrialtask.model.WeatherPhenomenonCategory;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * In-memory history of weather data of every station, indexed by observation time.
+ *
+ * Every station keeps its observations in sorted primitive arrays, so finding weather data at any instant
+ * is a binary search. Writers are serialized, readers take no locks. Old observations are removed by prune.
+ */
+public class WeatherHistory {
+
+    private static final int INITIAL_CAPACITY = 64;
+
+    private final Map<String, StationHistory> stations = new ConcurrentHashMap<>();
+
+    /**
+     * Add weather data of a station, observation with the same timestamp is replaced.
+     *
+     * @param weatherData weather data of the station.
+     */
+    public void add(WeatherData weatherData) {
+        stations.computeIfAbsent(weatherData.getStationName(), StationHistory::new).add(weatherData);
+    }
+
+    /**
+     * Find the latest weather data of the station observed at or before specified time.
+     *
+     * @param stationName station name (upper case).
+     * @param epochSecond time (seconds since epoch).
+     * @return WeatherData object or null if there are no observations of the station at or before that time.
+     */
+    public WeatherData find(String stationName, long epochSecond) {
+
+        StationHistory stationHistory = stationName == null ? null : stations.get(stationName);
+        return stationHistory == null ? null : stationHistory.find(epochSecond);
+    }
+
+    /**
+     * Remove observations no longer needed to find weather data at or after specified time.
+     *
+     * The latest observation of every station at or before that time is kept, so lookups at or after it
+     * return the same weather data as before.
+     *
+     * @param epochSecond time (seconds since epoch).
+     * @return number of removed observations.
+     */
+    public int prune(long epochSecond) {
+
+        int removed = 0;
+        for (StationHistory stationHistory : stations.values()) removed += stationHistory.prune(epochSecond);
+        return removed;
+    }
+
+    /**
+     * Get number of observations of the station.
+     */
+    public int size(String stationName) {
+
+        StationHistory stationHistory = stations.get(stationName);
+        return stationHistory == null ? 0 : stationHistory.columns.size;
+    }
+
+    /**
+     * Observations of a single station.
+     */
+    private static class StationHistory {
+
+        private final String stationName;
+
+        // Phenomenon strings repeat a lot, keep one instance of each.
+        private final Map<String, String> weatherPhenomenons = new HashMap<>();
+
+        // Replaced on every change, only the first size elements of the arrays are ever read.
+        private volatile Columns columns = new Columns(INITIAL_CAPACITY);
+
+        StationHistory(String stationName) {
+            this.stationName = stationName;
+        }
+
+        synchronized void add(WeatherData weatherData) {
+
+            long observationTimestamp = weatherData.getObservationTimestamp();
+            Columns current = columns;
+            int index = Arrays.binarySearch(current.observationTimestamps, 0, current.size, observationTimestamp);
+
+            String weatherPhenomenon = weatherData.getWeatherPhenomenon() == null ? null
+                    : weatherPhenomenons.computeIfAbsent(weatherData.getWeatherPhenomenon(), phenomenon -> phenomenon);
+
+            Columns next;
+            if (index >= 0) {
+                // Same observation again, replace it without touching arrays readers may be using.
+                next = current.copy(current.size);
+            } else {
+                index = -index - 1;
+
+                if (index == current.size && current.size < current.observationTimestamps.length) {
+                    // Appending to the end is the common case, elements past size are not visible to readers.
+                    next = current.withSize(current.size + 1);
+                } else {
+                    next = current.copyWithGap(index);
+                }
+            }
+
+            next.set(index, weatherData, weatherPhenomenon);
+            columns = next;
+        }
+
+        synchronized int prune(long epochSecond) {
+
+            Columns current = columns;
+            int index = Arrays.binarySearch(current.observationTimestamps, 0, current.size, epochSecond);
+
+            // Index of the latest observation at or before the time, everything before it goes.
+            int keepFrom = index >= 0 ? index : -index - 2;
+            if (keepFrom <= 0) return 0;
+
+            columns = current.copyFrom(keepFrom);
+            return keepFrom;
+        }
+
+        WeatherData find(long epochSecond) {
+
+            Columns current = columns;
+            int index = Arrays.binarySearch(current.observationTimestamps, 0, current.size, epochSecond);
+
+            // Not found: take the previous observation.
+            if (index < 0) index = -index - 2;
+            if (index < 0) return null;
+
+            return WeatherData.builder()
+                    .stationName(stationName)
+                    .stationWmoCode(current.stationWmoCodes[index])
+                    .airTemperature(current.airTemperatures[index])
+                    .windSpeed(current.windSpeeds[index])
+                    .weatherPhenomenon(current.weatherPhenomenons[index])
+                    .weatherPhenomenonCategory(current.weatherPhenomenonCategories[index])
+                    .observationTimestamp(current.observationTimestamps[index])
+                    .build();
+        }
+    }
+
+    /**
+     * Parallel arrays of observations sorted by timestamp.
+     */
+    private static class Columns {
+
+        private final int size;
+        private final long[] observationTimestamps;
+        private final float[] airTemperatures;
+        private final float[] windSpeeds;
+        private final WeatherPhenomenonCategory[] weatherPhenomenonCategories;
+        private final String[] weatherPhenomenons;
+        private final String[] stationWmoCodes;
+
+        Columns(int capacity) {
+            this(0, new long[capacity], new float[capacity], new float[capacity],
+                    new WeatherPhenomenonCategory[capacity], new String[capacity], new String[capacity]);
+        }
+
+        private Columns(int size, long[] observationTimestamps, float[] airTemperatures, float[] windSpeeds,
+                        WeatherPhenomenonCategory[] weatherPhenomenonCategories, String[] weatherPhenomenons,
+                        String[] stationWmoCodes) {
+            this.size = size;
+            this.observationTimestamps = observationTimestamps;
+            this.airTemperatures = airTemperatures;
+            this.windSpeeds = windSpeeds;
+            this.weatherPhenomenonCategories = weatherPhenomenonCategories;
+            this.weatherPhenomenons = weatherPhenomenons;
+            this.stationWmoCodes = stationWmoCodes;
+        }
+
+        Columns withSize(int newSize) {
+            return new Columns(newSize, observationTimestamps, airTemperatures, windSpeeds, weatherPhenomenonCategories,
+                    weatherPhenomenons, stationWmoCodes);
+        }
+
+        Columns copy(int newSize) {
+
+            int capacity = observationTimestamps.length;
+            return new Columns(newSize, Arrays.copyOf(observationTimestamps, capacity),
+                    Arrays.copyOf(airTemperatures, capacity), Arrays.copyOf(windSpeeds, capacity),
+                    Arrays.copyOf(weatherPhenomenonCategories, capacity), Arrays.copyOf(weatherPhenomenons, capacity),
+                    Arrays.copyOf(stationWmoCodes, capacity));
+        }
+
+        /**
+         * Copy of the elements from index on, into new arrays.
+         */
+        Columns copyFrom(int index) {
+
+            int newSize = size - index;
+            int capacity = Math.max(INITIAL_CAPACITY, newSize * 2);
+            Columns next = new Columns(newSize, new long[capacity], new float[capacity], new float[capacity],
+                    new WeatherPhenomenonCategory[capacity], new String[capacity], new String[capacity]);
+
+            copyRange(this, index, next, 0, newSize);
+            return next;
+        }
+
+        /**
+         * Copy with one more element, elements from index on are moved one position further.
+         */
+        Columns copyWithGap(int index) {
+
+            int capacity = size < observationTimestamps.length ? observationTimestamps.length : observationTimestamps.length * 2;
+            Columns next = new Columns(size + 1, new long[capacity], new float[capacity], new float[capacity],
+                    new WeatherPhenomenonCategory[capacity], new String[capacity], new String[capacity]);
+
+            copyRange(this, 0, next, 0, index);
+            copyRange(this, index, next, index + 1, size - index);
+            return next;
+        }
+
+        void set(int index, WeatherData weatherData, String weatherPhenomenon) {
+            observationTimestamps[index] = weatherData.getObservationTimestamp();
+            airTemperatures[index] = weatherData.getAirTemperature();
+            windSpeeds[index] = weatherData.getWindSpeed();
+            weatherPhenomenonCategories[index] = weatherData.getWeatherPhenomenonCategory();
+            weatherPhenomenons[index] = weatherPhenomenon;
+            stationWmoCodes[index] = weatherData.getStationWmoCode();
+        }
+
+        private static void copyRange(Columns from, int fromIndex, Columns to, int toIndex, int length) {
+            System.arraycopy(from.observationTimestamps, fromIndex, to.observationTimestamps, toIndex, length);
+            System.arraycopy(from.airTemperatures, fromIndex, to.airTemperatures, toIndex, length);
+            System.arraycopy(from.windSpeeds, fromIndex, to.windSpeeds, toIndex, length);
+            System.arraycopy(from.weatherPhenomenonCategories, fromIndex, to.weatherPhenomenonCategories, toIndex, length);
+            System.arraycopy(from.weatherPhenomenons, fromIndex, to.weatherPhenomenons, toIndex, length);
+            System.arraycopy(from.stationWmoCodes, fromIndex, to.stationWmoCodes, toIndex, length);
+        }
+    }
+}
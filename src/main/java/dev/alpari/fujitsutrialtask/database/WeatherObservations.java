@@ -0,0 +1,21 @@
+package dev.alpari.fujitsutrialtask.database;
+
+import dev.alpari.fujitsutrialtask.model.WeatherData;
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+
+import java.util.List;
+
+/**
+ * Result of parsing a single observations document.
+ */
+@Getter
+@RequiredArgsConstructor
+public class WeatherObservations {
+
+    /**
+     * Observations timestamp (seconds since epoch).
+     */
+    private final long timestamp;
+    private final List<WeatherData> weatherData;
+}
@@ -0,0 +1,93 @@
+package dev.alpari.fujitsutrialtask.database;
+
+import dev.alpari.fujitsutrialtask.model.WeatherPhenomenonCategory;
+
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Maps weather phenomenons reported by the feed to their categories.
+ *
+ * Default table covers every phenomenon listed in the feed description
+ * (https://www.ilmateenistus.ee/teenused/ilmainfo/eesti-vaatlusandmed-xml/). Unknown phenomenons fall to
+ * {@link WeatherPhenomenonCategory#NONE}.
+ */
+public class WeatherPhenomenonClassifier {
+
+    // Lower case phenomenon -> category. Unmodifiable, copied on write.
+    private volatile Map<String, WeatherPhenomenonCategory> categories;
+
+    public WeatherPhenomenonClassifier() {
+
+        Map<String, WeatherPhenomenonCategory> defaultCategories = new HashMap<>();
+
+        putAll(defaultCategories, WeatherPhenomenonCategory.NONE, "clear", "few clouds", "variable clouds",
+                "cloudy with clear spells", "overcast", "mist", "fog");
+        putAll(defaultCategories, WeatherPhenomenonCategory.RAIN, "light rain", "moderate rain", "heavy rain",
+                "light shower", "moderate shower", "heavy shower");
+        putAll(defaultCategories, WeatherPhenomenonCategory.SNOW, "light snow shower", "moderate snow shower",
+                "heavy snow shower", "light snowfall", "moderate snowfall", "heavy snowfall", "blowing snow",
+                "drifting snow");
+        putAll(defaultCategories, WeatherPhenomenonCategory.SLEET, "light sleet", "moderate sleet");
+        putAll(defaultCategories, WeatherPhenomenonCategory.GLAZE, "glaze");
+        putAll(defaultCategories, WeatherPhenomenonCategory.HAIL, "hail");
+        putAll(defaultCategories, WeatherPhenomenonCategory.THUNDER, "thunder", "thunderstorm");
+
+        categories = Map.copyOf(defaultCategories);
+    }
+
+    /**
+     * Create classifier with custom table.
+     *
+     * @param categories phenomenon -> category, phenomenons are matched case-insensitively.
+     */
+    public WeatherPhenomenonClassifier(Map<String, WeatherPhenomenonCategory> categories) {
+
+        Map<String, WeatherPhenomenonCategory> customCategories = new HashMap<>();
+        categories.forEach((phenomenon, category) -> customCategories.put(normalize(phenomenon), category));
+
+        this.categories = Map.copyOf(customCategories);
+    }
+
+    /**
+     * Get category of the weather phenomenon.
+     *
+     * @param weatherPhenomenon phenomenon as reported by the feed, may be null or empty.
+     * @return category, NONE if phenomenon is unknown.
+     */
+    public WeatherPhenomenonCategory classify(String weatherPhenomenon) {
+
+        if (weatherPhenomenon == null || weatherPhenomenon.isEmpty()) return WeatherPhenomenonCategory.NONE;
+
+        return categories.getOrDefault(normalize(weatherPhenomenon), WeatherPhenomenonCategory.NONE);
+    }
+
+    /**
+     * Add phenomenon to the table or change its category.
+     *
+     * Affects only weather data read after the change.
+     *
+     * @param weatherPhenomenon phenomenon, matched case-insensitively.
+     * @param category category.
+     */
+    public synchronized void setCategory(String weatherPhenomenon, WeatherPhenomenonCategory category) {
+
+        Map<String, WeatherPhenomenonCategory> updatedCategories = new HashMap<>(categories);
+        updatedCategories.put(normalize(weatherPhenomenon), category);
+        categories = Map.copyOf(updatedCategories);
+    }
+
+    public Map<String, WeatherPhenomenonCategory> getCategories() {
+        return categories;
+    }
+
+    private static String normalize(String weatherPhenomenon) {
+        return weatherPhenomenon.trim().toLowerCase(Locale.ROOT);
+    }
+
+    private static void putAll(Map<String, WeatherPhenomenonCategory> categories, WeatherPhenomenonCategory category,
+                               String... weatherPhenomenons) {
+        for (String weatherPhenomenon : weatherPhenomenons) categories.put(weatherPhenomenon, category);
+    }
+}
@@ -0,0 +1,140 @@
+package dev.alpari.fujitsutrialtask.database;
+
+import dev.alpari.fujitsutrialtask.model.WeatherData;
+import lombok.Getter;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Immutable set of the latest weather data of every station.
+ *
+ * A new snapshot is created for every ingested observations document, so everything read from one snapshot
+ * is consistent. Version is increased by one with every snapshot, empty snapshot has version 0.
+ *
+ * Stations with coordinates, air temperature and wind speed are indexed by location. The index is rebuilt only
+ * when that set of stations changes.
+ */
+@Getter
+public class WeatherSnapshot {
+
+    public static final WeatherSnapshot EMPTY = new WeatherSnapshot(0, 0, Map.of(), GeoIndex.EMPTY);
+
+    private final long version;
+
+    /**
+     * Timestamp of the latest observations document (seconds since epoch).
+     */
+    private final long observationTimestamp;
+
+    /**
+     * Weather data by station name (upper case), unmodifiable.
+     */
+    private final Map<String, WeatherData> weatherData;
+
+    /**
+     * Names of stations with valid weather data by their location.
+     */
+    private final GeoIndex stationIndex;
+
+    private WeatherSnapshot(long version, long observationTimestamp, Map<String, WeatherData> weatherData,
+                            GeoIndex stationIndex) {
+        this.version = version;
+        this.observationTimestamp = observationTimestamp;
+        this.weatherData = weatherData;
+        this.stationIndex = stationIndex;
+    }
+
+    /**
+     * Create next snapshot, stations missing from the new observations keep their previous data.
+     *
+     * @param observationTimestamp timestamp of the observations document (seconds since epoch).
+     * @param stationsWeatherData weather data read from the observations document.
+     * @return new snapshot with version increased by one.
+     */
+    public WeatherSnapshot next(long observationTimestamp, List<WeatherData> stationsWeatherData) {
+
+        Map<String, WeatherData> nextWeatherData = new HashMap<>(weatherData);
+        for (WeatherData stationWeatherData : stationsWeatherData) {
+            nextWeatherData.put(stationWeatherData.getStationName(), stationWeatherData);
+        }
+
+        return new WeatherSnapshot(version + 1, observationTimestamp, Map.copyOf(nextWeatherData),
+                nextStationIndex(nextWeatherData));
+    }
+
+    /**
+     * Get weather data of the station nearest to the specified point that has valid weather data.
+     *
+     * @param latitude latitude (degrees).
+     * @param longitude longitude (degrees).
+     * @return WeatherData object or null if no station has valid weather data.
+     */
+    public WeatherData getNearestWeatherData(double latitude, double longitude) {
+        return getWeatherData(stationIndex.findNearest(latitude, longitude));
+    }
+
+    /**
+     * Get station index of the next snapshot, this snapshot's index is reused if valid stations did not change.
+     */
+    private GeoIndex nextStationIndex(Map<String, WeatherData> nextWeatherData) {
+
+        List<WeatherData> validWeatherData = new ArrayList<>();
+        boolean changed = false;
+
+        for (WeatherData stationWeatherData : nextWeatherData.values()) {
+
+            if (!isValid(stationWeatherData)) continue;
+            validWeatherData.add(stationWeatherData);
+
+            WeatherData previous = weatherData.get(stationWeatherData.getStationName());
+            changed |= previous == null || !isValid(previous)
+                    || !previous.getLatitude().equals(stationWeatherData.getLatitude())
+                    || !previous.getLongitude().equals(stationWeatherData.getLongitude());
+        }
+
+        if (!changed && validWeatherData.size() == stationIndex.size()) return stationIndex;
+
+        int size = validWeatherData.size();
+        String[] names = new String[size];
+        double[] latitudes = new double[size];
+        double[] longitudes = new double[size];
+
+        for (int i = 0; i < size; i++) {
+            names[i] = validWeatherData.get(i).getStationName();
+            latitudes[i] = validWeatherData.get(i).getLatitude();
+            longitudes[i] = validWeatherData.get(i).getLongitude();
+        }
+
+        return GeoIndex.of(names, latitudes, longitudes);
+    }
+
+    /**
+     * Check if weather data has coordinates and readings delivery fees depend on.
+     */
+    private static boolean isValid(WeatherData stationWeatherData) {
+        return stationWeatherData.getLatitude() != null && stationWeatherData.getLongitude() != null
+                && !Float.isNaN(stationWeatherData.getAirTemperature()) && !Float.isNaN(stationWeatherData.getWindSpeed());
+    }
+
+    /**
+     * Get weather data of the station.
+     *
+     * @param stationName station name (upper case).
+     * @return WeatherData object or null if there is no data for the station.
+     */
+    public WeatherData getWeatherData(String stationName) {
+        return stationName == null ? null : weatherData.get(stationName);
+    }
+
+    public Instant getObservationTime() {
+        return Instant.ofEpochSecond(observationTimestamp);
+    }
+
+    public boolean isEmpty() {
+        return version == 0;
+    }
+}
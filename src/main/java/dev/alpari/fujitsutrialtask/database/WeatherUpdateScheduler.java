@@ -0,0 +1,264 @@
+package dev.alpari.fujitsutrialtask.database;
+
+import dev.alpari.fujitsutrialtask.ExecutionMode;
+import dev.alpari.fujitsutrialtask.dto.WeatherUpdateSchedulerStatusDto;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Polls the observations feed on a single thread, a poll never overlaps the previous one.
+ *
+ * The feed publishes observations once per period. After the observations timestamp advances, the next poll is
+ * at the time the next observations are expected. While they are late, the feed is polled often at first and then
+ * less and less often, from the minimum interval doubling up to the maximum one.
+ *
+ * Updates requested while one is already waiting to start are served by that same update.
+ */
+public class WeatherUpdateScheduler {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(WeatherUpdateScheduler.class);
+
+    private final WeatherDataManager weatherDataManager;
+    private final boolean saveDataToDatabase;
+    private final Duration period;
+    private final Duration minInterval;
+    private final Duration maxInterval;
+    private final Clock clock;
+    private final ThreadFactory threadFactory;
+
+    // Everything below is guarded by this, except for the volatile status fields.
+    private ScheduledExecutorService executorService;
+    private ScheduledFuture<?> nextPoll;
+
+    // Increased whenever a poll is scheduled, a scheduled poll runs only if it is still the latest one.
+    private long scheduleGeneration;
+
+    private boolean polling;
+    private CompletableFuture<Void> requestedUpdate;
+    private Duration retryInterval;
+
+    private volatile Instant nextPollTime;
+    private volatile Instant lastPollTime;
+    private volatile Instant lastUpdateTime;
+    private volatile long pollCount;
+    private volatile long failedPollCount;
+
+    /**
+     * @param weatherDataManager manager to update weather data of.
+     * @param saveDataToDatabase store read weather data to database or not.
+     * @param period how often the feed publishes observations.
+     * @param minInterval first interval between polls while observations are late.
+     * @param maxInterval longest interval between polls.
+     * @param clock clock.
+     */
+    public WeatherUpdateScheduler(WeatherDataManager weatherDataManager, boolean saveDataToDatabase, Duration period,
+                                  Duration minInterval, Duration maxInterval, Clock clock) {
+        this(weatherDataManager, saveDataToDatabase, period, minInterval, maxInterval, clock,
+                ExecutionMode.PLATFORM.threadFactory("weather-update-"));
+    }
+
+    /**
+     * @param weatherDataManager manager to update weather data of.
+     * @param saveDataToDatabase store read weather data to database or not.
+     * @param period how often the feed publishes observations.
+     * @param minInterval first interval between polls while observations are late.
+     * @param maxInterval longest interval between polls.
+     * @param clock clock.
+     * @param threadFactory creates the thread polls (fetching and storing weather data) run on.
+     */
+    public WeatherUpdateScheduler(WeatherDataManager weatherDataManager, boolean saveDataToDatabase, Duration period,
+                                  Duration minInterval, Duration maxInterval, Clock clock, ThreadFactory threadFactory) {
+
+        if (minInterval.isNegative() || minInterval.isZero() || maxInterval.compareTo(minInterval) < 0)
+            throw new IllegalArgumentException("Poll intervals must be positive, maximum at least minimum.");
+
+        this.weatherDataManager = weatherDataManager;
+        this.saveDataToDatabase = saveDataToDatabase;
+        this.period = period;
+        this.minInterval = minInterval;
+        this.maxInterval = maxInterval;
+        this.clock = clock;
+        this.threadFactory = threadFactory;
+        this.retryInterval = minInterval;
+    }
+
+    /**
+     * Start polling, first poll is done right away. Does nothing if already started.
+     */
+    public synchronized void start() {
+
+        if (executorService != null) return;
+
+        executorService = Executors.newSingleThreadScheduledExecutor(threadFactory);
+
+        retryInterval = minInterval;
+        schedule(Duration.ZERO);
+    }
+
+    /**
+     * Stop polling, a poll in progress is interrupted and no longer counts as in progress. Does nothing if not
+     * started.
+     */
+    public synchronized void stop() {
+
+        if (executorService == null) return;
+
+        executorService.shutdownNow();
+        executorService = null;
+        nextPoll = null;
+        nextPollTime = null;
+        scheduleGeneration++;
+        polling = false;
+
+        if (requestedUpdate != null) {
+            requestedUpdate.cancel(false);
+            requestedUpdate = null;
+        }
+    }
+
+    public synchronized boolean isRunning() {
+        return executorService != null;
+    }
+
+    /**
+     * Poll as soon as the poll in progress (if any) is done.
+     *
+     * @return future completed after the poll.
+     * @throws IllegalStateException if not started.
+     */
+    public synchronized CompletableFuture<Void> requestUpdate() {
+
+        if (executorService == null) throw new IllegalStateException("Weather update scheduler is not running.");
+
+        if (requestedUpdate == null) {
+            requestedUpdate = new CompletableFuture<>();
+
+            // A poll in progress schedules the requested one when it is done.
+            if (!polling) schedule(Duration.ZERO);
+        }
+
+        return requestedUpdate;
+    }
+
+    public WeatherUpdateSchedulerStatusDto getStatus() {
+
+        WeatherSnapshot weatherSnapshot = weatherDataManager.getWeatherSnapshot();
+
+        synchronized (this) {
+            return WeatherUpdateSchedulerStatusDto.builder()
+                    .running(executorService != null)
+                    .polling(polling)
+                    .pollCount(pollCount)
+                    .failedPollCount(failedPollCount)
+                    .lastPollTime(lastPollTime)
+                    .lastUpdateTime(lastUpdateTime)
+                    .nextPollTime(nextPollTime)
+                    .observationTime(weatherSnapshot.isEmpty() ? null : weatherSnapshot.getObservationTime())
+                    .build();
+        }
+    }
+
+    /**
+     * Get time until the feed is expected to publish observations newer than the latest ones.
+     *
+     * @return time until the next publish, zero if observations are late or there are none yet.
+     */
+    public Duration getTimeToNextPublish() {
+
+        WeatherSnapshot weatherSnapshot = weatherDataManager.getWeatherSnapshot();
+        if (weatherSnapshot.isEmpty()) return Duration.ZERO;
+
+        Duration timeToNextPublish = Duration.between(clock.instant(), weatherSnapshot.getObservationTime().plus(period));
+        return timeToNextPublish.isNegative() ? Duration.ZERO : timeToNextPublish;
+    }
+
+    /**
+     * Get delay until the next poll and adjust the retry interval.
+     *
+     * @param advanced whether the last poll read newer observations.
+     * @param now current time.
+     * @return delay until the next poll.
+     */
+    synchronized Duration nextDelay(boolean advanced, Instant now) {
+
+        if (advanced) retryInterval = minInterval;
+
+        WeatherSnapshot weatherSnapshot = weatherDataManager.getWeatherSnapshot();
+        Instant expected = weatherSnapshot.isEmpty() ? now : weatherSnapshot.getObservationTime().plus(period);
+
+        if (expected.isAfter(now)) {
+            retryInterval = minInterval;
+            return Duration.between(now, expected);
+        }
+
+        // Observations are late (or the feed is unreachable).
+        Duration delay = retryInterval;
+        Duration doubled = retryInterval.multipliedBy(2);
+        retryInterval = doubled.compareTo(maxInterval) > 0 ? maxInterval : doubled;
+        return delay;
+    }
+
+    private void schedule(Duration delay) {
+
+        long generation = ++scheduleGeneration;
+
+        if (nextPoll != null) nextPoll.cancel(false);
+
+        nextPollTime = clock.instant().plus(delay);
+        nextPoll = executorService.schedule(() -> poll(generation), delay.toMillis(), TimeUnit.MILLISECONDS);
+    }
+
+    private void poll(long generation) {
+
+        CompletableFuture<Void> servedUpdate;
+        ScheduledExecutorService pollExecutorService;
+        synchronized (this) {
+            if (executorService == null || generation != scheduleGeneration) return;
+
+            pollExecutorService = executorService;
+            polling = true;
+            nextPollTime = null;
+            servedUpdate = requestedUpdate;
+            requestedUpdate = null;
+        }
+
+        long version = weatherDataManager.getWeatherSnapshot().getVersion();
+        boolean failed = false;
+        try {
+            weatherDataManager.updateWeatherData(saveDataToDatabase);
+        } catch (RuntimeException e) {
+            // Keep polling, the next poll may succeed.
+            failed = true;
+            LOGGER.warn("Weather update failed, polling continues.", e);
+        }
+
+        Instant now = clock.instant();
+        boolean advanced = weatherDataManager.getWeatherSnapshot().getVersion() != version;
+
+        lastPollTime = now;
+        if (advanced) lastUpdateTime = now;
+
+        synchronized (this) {
+            pollCount++;
+            if (failed) failedPollCount++;
+
+            // Stopped while polling: stop() already reset the state, a scheduler started since then has its own polls.
+            if (executorService == pollExecutorService) {
+                polling = false;
+                schedule(requestedUpdate != null ? Duration.ZERO : nextDelay(advanced, now));
+            }
+        }
+
+        if (servedUpdate != null) servedUpdate.complete(null);
+    }
+}
@@ -0,0 +1,55 @@
+package dev.alpari.fujitsutrialtask.delivery;
+
+import lombok.Builder;
+import lombok.Getter;
+import lombok.ToString;
+
+import java.math.BigDecimal;
+
+/**
+ * Delivery fee for one vehicle type and location, computed from a single weather snapshot.
+ *
+ * Total delivery fee = RBF + ATEF + WSEF + WPEF
+ */
+@ToString
+@Getter
+@Builder
+public class DeliveryFee {
+
+    private final DeliveryManager.Vehicle vehicleType;
+    private final DeliveryManager.Location location;
+
+    /**
+     * Usage of the vehicle type is forbidden in current weather, fees are not set in this case.
+     */
+    private final boolean forbidden;
+
+    // Fees in cents.
+    private final int regionalBaseFeeInCents;
+    private final int airTemperatureFeeInCents;
+    private final int windSpeedFeeInCents;
+    private final int weatherPhenomenonFeeInCents;
+    private final int totalDeliveryFeeInCents;
+
+    // Weather data the fee is computed from.
+    private final String stationName;
+    private final float airTemperature;
+    private final float windSpeed;
+    private final String weatherPhenomenon;
+    private final long observationTimestamp;
+    private final long weatherSnapshotVersion;
+
+    /**
+     * Convert an amount in euros to cents, rounded to the nearest cent.
+     */
+    public static int toCents(float euros) {
+        return Math.round(euros * 100);
+    }
+
+    /**
+     * Convert an amount in cents to euros, with scale 2.
+     */
+    public static BigDecimal toEuros(int cents) {
+        return BigDecimal.valueOf(cents, 2);
+    }
+}
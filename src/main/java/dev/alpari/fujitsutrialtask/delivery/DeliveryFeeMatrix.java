@@ -0,0 +1,204 @@
+package dev.alpari.fujitsutrialtask.delivery;
+
+import lombok.Getter;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.zip.CRC32;
+
+/**
+ * Precomputed delivery fees of every vehicle type and location, indexed by location and vehicle type ordinals.
+ *
+ * Immutable, built once per weather snapshot (or regional base fee or location change) and then only read.
+ * Sized by the locations registered when it was built, later locations have no cells. A cell belongs to the
+ * location of its fee only: an ordinal freed by a removed location may be taken by another one.
+ *
+ * Every matrix has a version greater than the one it replaces, fees of the same version are the same.
+ * Versions are counted per node, entity tags are derived from the contents instead: matrices with the same
+ * observations, locations, regional base fees, fee rules and fees have the same entity tag on every node and after
+ * restarts.
+ */
+public class DeliveryFeeMatrix {
+
+    private static final int VEHICLE_COUNT = DeliveryManager.Vehicle.values().length;
+
+    public static final DeliveryFeeMatrix EMPTY = new DeliveryFeeMatrix(0, 0, "W/\"0-0\"", new DeliveryFee[0],
+            new String[0], new byte[0][]);
+
+    @Getter
+    private final long version;
+
+    @Getter
+    private final long weatherSnapshotVersion;
+
+    /*
+     HTTP entity tag of responses served from this matrix. Weak, as response bodies also carry the weather snapshot
+     version, which is counted per node.
+     */
+    @Getter
+    private final String entityTag;
+
+    private final DeliveryFee[] deliveryFees;
+    private final String[] descriptions;
+    private final byte[][] jsons;
+
+    private DeliveryFeeMatrix(long version, long weatherSnapshotVersion, String entityTag, DeliveryFee[] deliveryFees,
+                              String[] descriptions, byte[][] jsons) {
+        this.version = version;
+        this.weatherSnapshotVersion = weatherSnapshotVersion;
+        this.entityTag = entityTag;
+        this.deliveryFees = deliveryFees;
+        this.descriptions = descriptions;
+        this.jsons = jsons;
+    }
+
+    /**
+     * Get delivery fee.
+     *
+     * @return delivery fee or null if there is no weather data for the location.
+     */
+    public DeliveryFee getDeliveryFee(DeliveryManager.Vehicle vehicleType, DeliveryManager.Location location) {
+        int index = cellIndex(vehicleType, location);
+        return index < 0 ? null : deliveryFees[index];
+    }
+
+    /**
+     * Get human-readable description of the delivery fee.
+     *
+     * @return description or null if there is no weather data for the location.
+     */
+    public String getDescription(DeliveryManager.Vehicle vehicleType, DeliveryManager.Location location) {
+        int index = cellIndex(vehicleType, location);
+        return index < 0 ? null : descriptions[index];
+    }
+
+    /**
+     * Get delivery fee breakdown serialized as UTF-8 JSON, the returned array must not be modified.
+     *
+     * @return JSON or null if there is no weather data for the location.
+     */
+    public byte[] getJson(DeliveryManager.Vehicle vehicleType, DeliveryManager.Location location) {
+        int index = cellIndex(vehicleType, location);
+        return index < 0 ? null : jsons[index];
+    }
+
+    // Index of the cell of the location, -1 if there is none.
+    private int cellIndex(DeliveryManager.Vehicle vehicleType, DeliveryManager.Location location) {
+        int index = index(vehicleType, location);
+        return index < deliveryFees.length && deliveryFees[index] != null
+                && deliveryFees[index].getLocation() == location ? index : -1;
+    }
+
+    private static int index(DeliveryManager.Vehicle vehicleType, DeliveryManager.Location location) {
+        return location.ordinal() * VEHICLE_COUNT + vehicleType.ordinal();
+    }
+
+    /**
+     * Collects matrix cells, not thread safe.
+     */
+    public static class Builder {
+
+        private final long version;
+        private final long weatherSnapshotVersion;
+        private final long observationTimestamp;
+        private final DeliveryFee[] deliveryFees;
+        private final String[] descriptions;
+        private final byte[][] jsons;
+
+        // Located locations as "location=station" and regional base fees as "location vehicle fee".
+        private final List<String> stations = new ArrayList<>();
+        private final List<String> regionalBaseFees = new ArrayList<>();
+
+        // Version of the fee rules, fees near a point may use any station.
+        private long feeRulesVersion;
+
+        /**
+         * @param version version of the matrix to build, must be greater than version of the matrix it replaces.
+         * @param weatherSnapshotVersion version of the weather snapshot fees are calculated from.
+         * @param observationTimestamp observations timestamp of the weather snapshot.
+         * @param locationCount number of locations, ordinals of all put locations must be less than it.
+         */
+        public Builder(long version, long weatherSnapshotVersion, long observationTimestamp, int locationCount) {
+
+            int size = locationCount * VEHICLE_COUNT;
+
+            this.version = version;
+            this.weatherSnapshotVersion = weatherSnapshotVersion;
+            this.observationTimestamp = observationTimestamp;
+            this.deliveryFees = new DeliveryFee[size];
+            this.descriptions = new String[size];
+            this.jsons = new byte[size][];
+        }
+
+        public Builder put(DeliveryFee deliveryFee, String description, byte[] json) {
+
+            int index = index(deliveryFee.getVehicleType(), deliveryFee.getLocation());
+            deliveryFees[index] = deliveryFee;
+            descriptions[index] = description;
+            jsons[index] = json;
+            return this;
+        }
+
+        /**
+         * Record weather station of a location with weather data, with fees or not (nearest location lookups).
+         */
+        public Builder station(DeliveryManager.Location location, String stationName) {
+            stations.add(location.name() + "=" + stationName);
+            return this;
+        }
+
+        /**
+         * Record regional base fee of a location, with weather data or not (nearest location lookups).
+         */
+        public Builder regionalBaseFee(DeliveryManager.Location location, DeliveryManager.Vehicle vehicleType,
+                                       int feeInCents) {
+            regionalBaseFees.add(location.name() + " " + vehicleType + " " + feeInCents);
+            return this;
+        }
+
+        /**
+         * Record version of the fee rules fees are calculated with.
+         */
+        public Builder feeRulesVersion(long feeRulesVersion) {
+            this.feeRulesVersion = feeRulesVersion;
+            return this;
+        }
+
+        public DeliveryFeeMatrix build() {
+            return new DeliveryFeeMatrix(version, weatherSnapshotVersion, entityTag(), deliveryFees.clone(),
+                    descriptions.clone(), jsons.clone());
+        }
+
+        // Checksum of the contents in a node-independent order: ordinals of locations differ between nodes.
+        private String entityTag() {
+
+            List<String> contents = new ArrayList<>(stations);
+            contents.addAll(regionalBaseFees);
+            for (DeliveryFee deliveryFee : deliveryFees) {
+                if (deliveryFee == null) continue;
+
+                contents.add(deliveryFee.getLocation().name() + " " + deliveryFee.getVehicleType()
+                        + " " + deliveryFee.isForbidden()
+                        + " " + deliveryFee.getRegionalBaseFeeInCents()
+                        + " " + deliveryFee.getAirTemperatureFeeInCents()
+                        + " " + deliveryFee.getWindSpeedFeeInCents()
+                        + " " + deliveryFee.getWeatherPhenomenonFeeInCents()
+                        + " " + deliveryFee.getTotalDeliveryFeeInCents()
+                        + " " + deliveryFee.getStationName()
+                        + " " + deliveryFee.getAirTemperature()
+                        + " " + deliveryFee.getWindSpeed()
+                        + " " + deliveryFee.getWeatherPhenomenon()
+                        + " " + deliveryFee.getObservationTimestamp());
+            }
+            Collections.sort(contents);
+
+            CRC32 checksum = new CRC32();
+            checksum.update(Long.toString(feeRulesVersion).getBytes(StandardCharsets.UTF_8));
+            for (String content : contents) checksum.update((content + "\n").getBytes(StandardCharsets.UTF_8));
+
+            return "W/\"" + observationTimestamp + "-" + Long.toHexString(checksum.getValue()) + "\"";
+        }
+    }
+}
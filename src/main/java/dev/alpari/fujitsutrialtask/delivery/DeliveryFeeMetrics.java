@@ -0,0 +1,87 @@
+package dev.alpari.fujitsutrialtask.delivery;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Meters of delivery fee lookups and calculation.
+ *
+ * Lookups are timed per vehicle type, location and whether the vehicle was forbidden, so timer counts also give
+ * the forbidden rate. Added locations share one "other" location tag, so the number of timers stays bounded however
+ * many locations are added. Timers are kept in an array and registered on first use.
+ */
+public class DeliveryFeeMetrics {
+
+    private static final int VEHICLE_COUNT = DeliveryManager.Vehicle.values().length;
+
+    // Location tag of added locations, built-in ones are tagged by name.
+    private static final String OTHER_LOCATION = "other";
+
+    private final MeterRegistry meterRegistry;
+    private final Timer matrixUpdate;
+
+    /*
+     Index: (location slot * VEHICLE_COUNT + vehicle ordinal) * 2 + forbidden, where location slot is the ordinal
+     of a built-in location or the built-in count for any added one. Copied on write.
+     */
+    private volatile Timer[] lookupTimers = new Timer[0];
+
+    /**
+     * @param meterRegistry registry to register meters in.
+     */
+    public DeliveryFeeMetrics(MeterRegistry meterRegistry) {
+
+        this.meterRegistry = meterRegistry;
+        this.matrixUpdate = Timer.builder("delivery.fee.matrix.update")
+                .description("Calculating fees of every vehicle type and location")
+                .register(meterRegistry);
+    }
+
+    /**
+     * @param deliveryFee delivery fee that was looked up or calculated.
+     * @param startNanos System.nanoTime() before the lookup.
+     */
+    public void recordLookup(DeliveryFee deliveryFee, long startNanos) {
+
+        long nanos = System.nanoTime() - startNanos;
+
+        DeliveryManager.Location location = deliveryFee.getLocation();
+        int locationSlot = location.isBuiltIn() ? location.ordinal() : DeliveryManager.Location.getBuiltInCount();
+        int index = (locationSlot * VEHICLE_COUNT + deliveryFee.getVehicleType().ordinal()) * 2
+                + (deliveryFee.isForbidden() ? 1 : 0);
+
+        Timer[] timers = lookupTimers;
+        Timer timer = index < timers.length ? timers[index] : null;
+        if (timer == null) timer = registerLookupTimer(deliveryFee, index);
+
+        timer.record(nanos, TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * @param startNanos System.nanoTime() before the update.
+     */
+    public void recordMatrixUpdate(long startNanos) {
+        matrixUpdate.record(System.nanoTime() - startNanos, TimeUnit.NANOSECONDS);
+    }
+
+    private synchronized Timer registerLookupTimer(DeliveryFee deliveryFee, int index) {
+
+        Timer[] timers = lookupTimers;
+        if (index < timers.length && timers[index] != null) return timers[index];
+
+        Timer timer = Timer.builder("delivery.fee")
+                .description("Delivery fee lookups")
+                .tag("vehicle", deliveryFee.getVehicleType().name())
+                .tag("location", deliveryFee.getLocation().isBuiltIn() ? deliveryFee.getLocation().name() : OTHER_LOCATION)
+                .tag("forbidden", Boolean.toString(deliveryFee.isForbidden()))
+                .register(meterRegistry);
+
+        Timer[] updatedTimers = Arrays.copyOf(timers, Math.max(timers.length, index + 1));
+        updatedTimers[index] = timer;
+        lookupTimers = updatedTimers;
+        return timer;
+    }
+}
@@ -1,23 +1,68 @@
 package dev.alpari.fujitsutrialtask.delivery;
 
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import dev.alpari.fujitsutrialtask.database.GeoIndex;
 import dev.alpari.fujitsutrialtask.database.WeatherDataManager;
+import dev.alpari.fujitsutrialtask.database.WeatherSnapshot;
+import dev.alpari.fujitsutrialtask.dto.DeliveryFeeDto;
 import dev.alpari.fujitsutrialtask.model.WeatherData;
+import dev.alpari.fujitsutrialtask.model.WeatherPhenomenonCategory;
+import lombok.AccessLevel;
 import lombok.Getter;
+import lombok.Setter;
 
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.NoSuchElementException;
-import java.util.Set;
 
 @Getter
 public class DeliveryManager {
 
     private final String EXCEPTION_MESSAGE_VEHICLE_USAGE_FORBIDDEN = "Usage of selected vehicle type is forbidden";
 
-    private final WeatherDataManager weatherDataManager = new WeatherDataManager();
+    public static final int DEFAULT_MAX_LOCATION_COUNT = 1000;
 
-    private final Map<String, Set<String>> weatherPhenomenonsDictionary = new HashMap<>();
-    private final Map<String, Float> regionalBaseFees = new HashMap<>();
+    private static final ObjectMapper OBJECT_MAPPER = new ObjectMapper();
+
+    private final WeatherDataManager weatherDataManager;
+
+    // Registered in the registry of the weather data manager.
+    private final DeliveryFeeMetrics deliveryFeeMetrics;
+
+    // Extra fee rules, replaced as a whole on reload.
+    private volatile FeeRules feeRules = FeeRules.DEFAULT;
+
+    // Replaced as a whole on every change.
+    private volatile RegionalBaseFeeTable regionalBaseFees = RegionalBaseFeeTable.EMPTY;
+
+    // Fees of every vehicle type and location for the latest weather snapshot.
+    private volatile DeliveryFeeMatrix deliveryFeeMatrix = DeliveryFeeMatrix.EMPTY;
+
+    // Names of locations by coordinates of their weather stations, rebuilt with the fee matrix.
+    private volatile GeoIndex locationIndex = GeoIndex.EMPTY;
+
+    // Registered locations by ordinal (null where a removed location was) and by name, both replaced as a whole on
+    // every change, lookups take no locks.
+    @Getter(AccessLevel.NONE)
+    private volatile Location[] locationsByOrdinal = Location.BUILT_IN.clone();
+    @Getter(AccessLevel.NONE)
+    private volatile Map<String, Location> locationsByName = Map.of(
+            Location.TALLINN.name(), Location.TALLINN,
+            Location.TARTU.name(), Location.TARTU,
+            Location.PÄRNU.name(), Location.PÄRNU);
+
+    // Most locations registered at once, built-in ones included.
+    @Setter
+    private volatile int maxLocationCount = DEFAULT_MAX_LOCATION_COUNT;
+
+    // Serializes registry changes with their location mapping changes.
+    @Getter(AccessLevel.NONE)
+    private final Object locationLock = new Object();
 
     public enum Vehicle {
         CAR,
@@ -25,25 +70,71 @@ public class DeliveryManager {
         BIKE
     }
 
-    public enum Location {
-        TALLINN,
-        TARTU,
-        PÄRNU
-    }
+    /**
+     * Delivery location: city, town, village, etc.
+     *
+     * Locations are registered in a delivery manager, which has exactly one instance per (upper case) name. Fees of
+     * locations are kept in arrays indexed by ordinal: a new location takes the lowest ordinal freed by a removed
+     * one, so arrays only grow up to the most locations registered at once. Built-in locations have fixed ordinals
+     * and are registered in every delivery manager.
+     */
+    public static final class Location {
+
+        public static final Location TALLINN = new Location("TALLINN", 0);
+        public static final Location TARTU = new Location("TARTU", 1);
+        public static final Location PÄRNU = new Location("PÄRNU", 2);
 
-    public enum Weather {
-        SNOW,
-        SLEET,
-        RAIN,
-        GLAZE,
-        HAIL,
-        THUNDER
+        private static final Location[] BUILT_IN = {TALLINN, TARTU, PÄRNU};
+
+        private final String name;
+        private final int ordinal;
+
+        private Location(String name, int ordinal) {
+            this.name = name;
+            this.ordinal = ordinal;
+        }
+
+        public String name() {
+            return name;
+        }
+
+        public int ordinal() {
+            return ordinal;
+        }
+
+        /**
+         * @return whether this is one of the locations every manager starts with.
+         */
+        public boolean isBuiltIn() {
+            return ordinal < BUILT_IN.length && BUILT_IN[ordinal] == this;
+        }
+
+        static int getBuiltInCount() {
+            return BUILT_IN.length;
+        }
+
+        @Override
+        public String toString() {
+            return name;
+        }
     }
 
     /**
      * Constructor.
      */
     public DeliveryManager() {
+        this(new WeatherDataManager());
+    }
+
+    /**
+     * Constructor.
+     *
+     * @param weatherDataManager source of weather data.
+     */
+    public DeliveryManager(WeatherDataManager weatherDataManager) {
+
+        this.weatherDataManager = weatherDataManager;
+        this.deliveryFeeMetrics = new DeliveryFeeMetrics(weatherDataManager.getMeterRegistry());
 
         // Setup regional based fees.
         setRegionalBaseFee(Vehicle.CAR, Location.TALLINN, 4.0f);
@@ -58,12 +149,8 @@ public class DeliveryManager {
         setRegionalBaseFee(Vehicle.SCOOTER, Location.PÄRNU, 2.5f);
         setRegionalBaseFee(Vehicle.BIKE, Location.PÄRNU, 2.0f);
 
-        // Setup weather phenomenons.
-        weatherPhenomenonsDictionary.put("rain", Set.of("light rain", "moderate rain", "heavy rain", "light shower",
-                "moderate shower", "heavy shower"));
-        weatherPhenomenonsDictionary.put("snow", Set.of("light snow shower", "moderate snow shower", "heavy snow shower",
-                "light snowfall", "moderate snowfall", "heavy snowfall", "blowing snow", "drifting snow"));
-        weatherPhenomenonsDictionary.put("sleet", Set.of("light sleet", "moderate sleet"));
+        // Recalculate fees whenever new weather data arrives.
+        weatherDataManager.addUpdateListener(this::updateDeliveryFeeMatrix);
     }
 
     /**
@@ -77,87 +164,463 @@ public class DeliveryManager {
      */
     public String calculateAndGetDeliveryFee(Vehicle vehicleType, Location location) {
 
-        WeatherData locationWeatherData = getWeatherDataForLocation(location);
+        long start = System.nanoTime();
+        DeliveryFeeMatrix matrix = deliveryFeeMatrix;
+        String description = matrix.getDescription(vehicleType, location);
 
-        float windSpeedFee;
-        try {
-            windSpeedFee = getWindSpeedFee(locationWeatherData.getWindSpeed(), vehicleType);
-        } catch (IllegalArgumentException e) {
-            return e.getMessage();
-        }
+        if (description == null) throw new NoSuchElementException("Could not find data for location: " + location);
 
-        float weatherPhenomenonFee;
-        try {
-            weatherPhenomenonFee = getWeatherPhenomenonFee(locationWeatherData.getWeatherPhenomenon(), vehicleType);
-        } catch (IllegalArgumentException e) {
-            return e.getMessage();
-        }
+        deliveryFeeMetrics.recordLookup(matrix.getDeliveryFee(vehicleType, location), start);
+        return description;
+    }
+
+    /**
+     * Get delivery fee calculated from the latest weather data.
+     *
+     * @param vehicleType vehicle type
+     * @param location location name
+     * @return delivery fee.
+     */
+    public DeliveryFee getDeliveryFee(Vehicle vehicleType, Location location) {
 
-        float regionalBaseFee = getRegionalBaseFee(vehicleType, location);
-        float airTemperatureFee = getAirTemperatureFee(locationWeatherData.getAirTemperature(), vehicleType);
-        float totalDeliveryFee = regionalBaseFee + airTemperatureFee + windSpeedFee + weatherPhenomenonFee;
+        long start = System.nanoTime();
+        DeliveryFee deliveryFee = deliveryFeeMatrix.getDeliveryFee(vehicleType, location);
 
-        return "Input parameters: " + location.toString().toUpperCase() + " and "
-                + vehicleType.toString().toUpperCase() + " -> RBF = " + regionalBaseFee + " €\n"
-                + "Latest weather data for " + location + " (" + locationWeatherData.getStationName() + "):\n"
-                + " Air temperature = " + locationWeatherData.getAirTemperature() + "°C -> ATEF = " + airTemperatureFee + " €\n"
-                + " Wind speed = " + locationWeatherData.getWindSpeed() + " m/s -> WSEF = " + windSpeedFee + " €\n"
-                + " Weather phenomenon = " + locationWeatherData.getWeatherPhenomenon() + " -> WPEF = " + weatherPhenomenonFee + " €\n"
-                + "Total delivery fee = RBF + ATEF + WSEF + WPEF = "
-                + regionalBaseFee + " + " + airTemperatureFee + " + " + windSpeedFee + " + " + weatherPhenomenonFee + " + = "
-                + totalDeliveryFee + " €";
+        if (deliveryFee == null) throw new NoSuchElementException("Could not find data for location: " + location);
+
+        deliveryFeeMetrics.recordLookup(deliveryFee, start);
+        return deliveryFee;
     }
 
     /**
-     * Get the latest weather data for specified location.
+     * Get delivery fee breakdown calculated from the latest weather data as UTF-8 JSON.
+     *
+     * Serialized once per weather snapshot, the returned array must not be modified.
      *
+     * @param vehicleType vehicle type
      * @param location location name
-     * @return latest weather data for location
+     * @return JSON of DeliveryFeeDto.
      */
-    public WeatherData getWeatherDataForLocation(Location location) {
-        return weatherDataManager.getLatestWeatherDataForLocation(location.toString());
+    public byte[] getDeliveryFeeJson(Vehicle vehicleType, Location location) {
+
+        long start = System.nanoTime();
+        DeliveryFeeMatrix matrix = deliveryFeeMatrix;
+        byte[] json = matrix.getJson(vehicleType, location);
+
+        if (json == null) throw new NoSuchElementException("Could not find data for location: " + location);
+
+        deliveryFeeMetrics.recordLookup(matrix.getDeliveryFee(vehicleType, location), start);
+        return json;
     }
 
     /**
-     * Get weather phenomenon fee (WPEF).
+     * Get delivery fee calculated from the weather data observed at or before specified time.
      *
-     * @param locationWeatherPhenomenon weather phenomenon at the location.
-     * @param vehicleType vehicle type.
-     * @return WPEF value (€).
+     * Current regional base fees and location mapping are used. Fee has the version of the current weather snapshot,
+     * the history it is looked up in holds every observation up to that snapshot.
+     *
+     * @param vehicleType vehicle type
+     * @param location location name
+     * @param time time to calculate fee at
+     * @return delivery fee.
      */
-    public float getWeatherPhenomenonFee(String locationWeatherPhenomenon, Vehicle vehicleType) {
+    public DeliveryFee getDeliveryFeeAt(Vehicle vehicleType, Location location, Instant time) {
+
+        long start = System.nanoTime();
+        long weatherSnapshotVersion = weatherDataManager.getWeatherSnapshot().getVersion();
+        WeatherData locationWeatherData = weatherDataManager.getWeatherDataForLocationAt(location.name(), time);
+        DeliveryFee deliveryFee = calculateDeliveryFee(feeRules, vehicleType, location,
+                regionalBaseFees.getFeeInCents(vehicleType, location), locationWeatherData, weatherSnapshotVersion);
+
+        deliveryFeeMetrics.recordLookup(deliveryFee, start);
+        return deliveryFee;
+    }
+
+    /**
+     * Get delivery fee breakdown calculated from the weather data observed at or before specified time as UTF-8 JSON.
+     *
+     * @param vehicleType vehicle type
+     * @param location location name
+     * @param time time to calculate fee at
+     * @return JSON of DeliveryFeeDto.
+     */
+    public byte[] getDeliveryFeeJsonAt(Vehicle vehicleType, Location location, Instant time) {
+        return toJson(getDeliveryFeeAt(vehicleType, location, time));
+    }
+
+    /**
+     * Get delivery fee at a point.
+     *
+     * Regional base fee is taken from the location whose weather station is the nearest and weather data
+     * from the nearest station with valid weather data.
+     *
+     * @param vehicleType vehicle type
+     * @param latitude latitude of the delivery (degrees)
+     * @param longitude longitude of the delivery (degrees)
+     * @return delivery fee.
+     */
+    public DeliveryFee getDeliveryFeeNear(Vehicle vehicleType, double latitude, double longitude) {
+
+        if (!(latitude >= -90 && latitude <= 90)) throw new IllegalArgumentException("Invalid latitude: " + latitude);
+        if (!(longitude >= -180 && longitude <= 180)) throw new IllegalArgumentException("Invalid longitude: " + longitude);
+
+        long start = System.nanoTime();
+        WeatherSnapshot weatherSnapshot = weatherDataManager.getWeatherSnapshot();
+        WeatherData nearestWeatherData = weatherSnapshot.getNearestWeatherData(latitude, longitude);
+        Location nearestLocation = findLocation(locationIndex.findNearest(latitude, longitude));
+
+        if (nearestWeatherData == null || nearestLocation == null)
+            throw new NoSuchElementException("Could not find data near: " + latitude + ", " + longitude);
+
+        DeliveryFee deliveryFee = calculateDeliveryFee(feeRules, vehicleType, nearestLocation,
+                regionalBaseFees.getFeeInCents(vehicleType, nearestLocation), nearestWeatherData,
+                weatherSnapshot.getVersion());
+
+        deliveryFeeMetrics.recordLookup(deliveryFee, start);
+        return deliveryFee;
+    }
+
+    /**
+     * Get delivery fee breakdown at a point as UTF-8 JSON.
+     *
+     * @param vehicleType vehicle type
+     * @param latitude latitude of the delivery (degrees)
+     * @param longitude longitude of the delivery (degrees)
+     * @return JSON of DeliveryFeeDto.
+     */
+    public byte[] getDeliveryFeeJsonNear(Vehicle vehicleType, double latitude, double longitude) {
+        return toJson(getDeliveryFeeNear(vehicleType, latitude, longitude));
+    }
+
+    /**
+     * Add a location or move an existing one to another weather station.
+     *
+     * Location has no delivery fees until its regional base fees are set.
+     *
+     * @param locationName name of the location: city, town, village, etc.
+     * @param stationName name of the weather station.
+     * @return location.
+     * @throws IllegalArgumentException if location name is empty.
+     * @throws IllegalStateException if there are already maxLocationCount locations.
+     */
+    public Location addLocation(String locationName, String stationName) {
+
+        if (locationName == null || locationName.isBlank())
+            throw new IllegalArgumentException("Location name can not be empty.");
+
+        synchronized (locationLock) {
+            Location location = findLocation(locationName);
+            if (location == null) location = registerLocation(locationName.toUpperCase());
+
+            weatherDataManager.setLocationToWeatherStation(location.name(), stationName);
+            return location;
+        }
+    }
+
+    /**
+     * Remove a location with its regional base fees.
+     *
+     * @param locationName location name (case-insensitive).
+     * @return removed location.
+     * @throws NoSuchElementException if there is no such location.
+     */
+    public Location removeLocation(String locationName) {
+
+        synchronized (locationLock) {
+            Location location = findLocation(locationName);
+            if (location == null) throw new NoSuchElementException("No such location with name: " + locationName);
+
+            Location[] updatedLocations = locationsByOrdinal.clone();
+            updatedLocations[location.ordinal()] = null;
+
+            Map<String, Location> updatedLocationsByName = new HashMap<>(locationsByName);
+            updatedLocationsByName.remove(location.name());
+
+            locationsByName = Map.copyOf(updatedLocationsByName);
+            locationsByOrdinal = updatedLocations;
+
+            removeRegionalBaseFees(location);
+            weatherDataManager.removeLocation(location.name());
+            return location;
+        }
+    }
+
+    /**
+     * Find a registered location.
+     *
+     * @param name location name (case-insensitive).
+     * @return location or null if there is no such location.
+     */
+    public Location findLocation(String name) {
+        return name == null ? null : locationsByName.get(name.toUpperCase());
+    }
+
+    /**
+     * Get a registered location.
+     *
+     * @param name location name (case-insensitive).
+     * @return location.
+     * @throws IllegalArgumentException if there is no such location.
+     */
+    public Location getLocation(String name) {
+
+        Location location = findLocation(name);
+        if (location == null) throw new IllegalArgumentException("No such location with name: " + name);
+
+        return location;
+    }
+
+    /**
+     * Get all registered locations in ordinal order.
+     */
+    public List<Location> getLocations() {
+
+        List<Location> locations = new ArrayList<>();
+        for (Location location : locationsByOrdinal) {
+            if (location != null) locations.add(location);
+        }
+        return locations;
+    }
+
+    // Called with the location lock held.
+    private Location registerLocation(String upperCaseName) {
+
+        if (locationsByName.size() >= maxLocationCount)
+            throw new IllegalStateException("Can not have more than " + maxLocationCount + " locations.");
+
+        Location[] locations = locationsByOrdinal;
+        Location location = null;
+
+        for (Location builtInLocation : Location.BUILT_IN) {
+            if (builtInLocation.name().equals(upperCaseName)) location = builtInLocation;
+        }
+
+        if (location == null) {
+            // Lowest ordinal freed by a removed location, ordinals of built-in locations are never taken.
+            int ordinal = Location.BUILT_IN.length;
+            while (ordinal < locations.length && locations[ordinal] != null) ordinal++;
+            location = new Location(upperCaseName, ordinal);
+        }
+
+        Location[] updatedLocations = Arrays.copyOf(locations, Math.max(locations.length, location.ordinal() + 1));
+        updatedLocations[location.ordinal()] = location;
+
+        Map<String, Location> updatedLocationsByName = new HashMap<>(locationsByName);
+        updatedLocationsByName.put(upperCaseName, location);
 
-        if (vehicleType.equals(Vehicle.SCOOTER) || vehicleType.equals(Vehicle.BIKE)) {
+        locationsByName = Map.copyOf(updatedLocationsByName);
+        locationsByOrdinal = updatedLocations;
+        return location;
+    }
+
+    private synchronized void removeRegionalBaseFees(Location location) {
+        regionalBaseFees = regionalBaseFees.withoutLocation(location);
+        updateDeliveryFeeMatrix();
+    }
+
+    /**
+     * Recalculate delivery fees of every vehicle type and location from the latest weather snapshot.
+     */
+    public synchronized void updateDeliveryFeeMatrix() {
+
+        long start = System.nanoTime();
+        WeatherSnapshot weatherSnapshot = weatherDataManager.getWeatherSnapshot();
+        Map<String, String> locations = weatherDataManager.getLocations();
+        RegionalBaseFeeTable regionalBaseFeeTable = regionalBaseFees;
+        FeeRules rules = feeRules;
 
-            locationWeatherPhenomenon = locationWeatherPhenomenon.toLowerCase();
+        Location[] registeredLocations = locationsByOrdinal;
+        // Rebuilt on every change of weather, regional base fees, fee rules or locations.
+        DeliveryFeeMatrix.Builder builder = new DeliveryFeeMatrix.Builder(deliveryFeeMatrix.getVersion() + 1,
+                weatherSnapshot.getVersion(), weatherSnapshot.getObservationTimestamp(), registeredLocations.length);
+        builder.feeRulesVersion(rules.getVersion());
 
-            if (locationWeatherPhenomenon.equals(Weather.GLAZE.toString().toLowerCase())
-                    || locationWeatherPhenomenon.equals(Weather.HAIL.toString().toLowerCase())
-                    || locationWeatherPhenomenon.equals(Weather.THUNDER.toString().toLowerCase())) {
-                throw new IllegalArgumentException(EXCEPTION_MESSAGE_VEHICLE_USAGE_FORBIDDEN);
+        List<WeatherData> locatedWeatherData = new ArrayList<>();
+        List<Location> located = new ArrayList<>();
+
+        for (Location location : registeredLocations) {
+
+            if (location == null) continue;
+
+            for (Vehicle vehicleType : Vehicle.values()) {
+                if (!regionalBaseFeeTable.contains(vehicleType, location)) continue;
+                builder.regionalBaseFee(location, vehicleType, regionalBaseFeeTable.getFeeInCents(vehicleType, location));
             }
 
-            String weatherType = null;
-            for (Map.Entry<String, Set<String>> entry : weatherPhenomenonsDictionary.entrySet()) {
-                // Find type of the weather.
+            WeatherData locationWeatherData = weatherSnapshot.getWeatherData(locations.get(location.name()));
+            if (locationWeatherData == null) continue;
 
-                if (entry.getValue().contains(locationWeatherPhenomenon)) {
-                    weatherType = entry.getKey();
-                    break;
-                }
+            builder.station(location, locationWeatherData.getStationName());
+            if (locationWeatherData.getLatitude() != null && locationWeatherData.getLongitude() != null) {
+                locatedWeatherData.add(locationWeatherData);
+                located.add(location);
             }
 
-            if (weatherType == null) return 0f;
+            for (Vehicle vehicleType : Vehicle.values()) {
+                if (!regionalBaseFeeTable.contains(vehicleType, location)) continue;
 
-            if (weatherType.equals(Weather.SNOW.toString().toLowerCase())
-                    || weatherType.equals(Weather.SLEET.toString().toLowerCase())) {
-                return 1f;
+                DeliveryFee deliveryFee = calculateDeliveryFee(rules, vehicleType, location,
+                        regionalBaseFeeTable.getFeeInCents(vehicleType, location), locationWeatherData,
+                        weatherSnapshot.getVersion());
+                builder.put(deliveryFee, describeDeliveryFee(deliveryFee), toJson(deliveryFee));
             }
+        }
+
+        deliveryFeeMatrix = builder.build();
+        locationIndex = indexLocations(located, locatedWeatherData);
+
+        deliveryFeeMetrics.recordMatrixUpdate(start);
+    }
+
+    private static GeoIndex indexLocations(List<Location> located, List<WeatherData> locatedWeatherData) {
+
+        int size = located.size();
+        String[] names = new String[size];
+        double[] latitudes = new double[size];
+        double[] longitudes = new double[size];
+
+        for (int i = 0; i < size; i++) {
+            names[i] = located.get(i).name();
+            latitudes[i] = locatedWeatherData.get(i).getLatitude();
+            longitudes[i] = locatedWeatherData.get(i).getLongitude();
+        }
+
+        return GeoIndex.of(names, latitudes, longitudes);
+    }
+
+    /**
+     * Calculate delivery fee for specified weather data.
+     *
+     * @param rules extra fee rules
+     * @param vehicleType vehicle type
+     * @param location location name
+     * @param regionalBaseFeeInCents RBF value (cents)
+     * @param locationWeatherData weather data at the location
+     * @param weatherSnapshotVersion version of the weather snapshot weather data is taken from
+     * @return delivery fee.
+     */
+    private static DeliveryFee calculateDeliveryFee(FeeRules rules, Vehicle vehicleType, Location location, int regionalBaseFeeInCents,
+                                             WeatherData locationWeatherData, long weatherSnapshotVersion) {
+
+        // Missing (NaN) readings add no extra fee, every comparison with them is false.
+        DeliveryFee.DeliveryFeeBuilder builder = DeliveryFee.builder()
+                .vehicleType(vehicleType)
+                .location(location)
+                .stationName(locationWeatherData.getStationName())
+                .airTemperature(locationWeatherData.getAirTemperature())
+                .windSpeed(locationWeatherData.getWindSpeed())
+                .weatherPhenomenon(locationWeatherData.getWeatherPhenomenon())
+                .observationTimestamp(locationWeatherData.getObservationTimestamp())
+                .weatherSnapshotVersion(weatherSnapshotVersion);
+
+        int airTemperatureFee = rules.getAirTemperatureFeeInCents(vehicleType, locationWeatherData.getAirTemperature());
+        int windSpeedFee = rules.getWindSpeedFeeInCents(vehicleType, locationWeatherData.getWindSpeed());
+        int weatherPhenomenonFee = rules.getWeatherPhenomenonFeeInCents(vehicleType,
+                locationWeatherData.getWeatherPhenomenonCategory());
+
+        if (airTemperatureFee == FeeRules.FORBIDDEN || windSpeedFee == FeeRules.FORBIDDEN
+                || weatherPhenomenonFee == FeeRules.FORBIDDEN) return builder.forbidden(true).build();
+
+        return builder
+                .regionalBaseFeeInCents(regionalBaseFeeInCents)
+                .airTemperatureFeeInCents(airTemperatureFee)
+                .windSpeedFeeInCents(windSpeedFee)
+                .weatherPhenomenonFeeInCents(weatherPhenomenonFee)
+                .totalDeliveryFeeInCents(regionalBaseFeeInCents + airTemperatureFee + windSpeedFee + weatherPhenomenonFee)
+                .build();
+    }
+
+    /**
+     * Build human-readable description of the delivery fee.
+     *
+     * @param deliveryFee delivery fee
+     * @return all information about delivery fee.
+     */
+    private String describeDeliveryFee(DeliveryFee deliveryFee) {
+
+        if (deliveryFee.isForbidden()) return EXCEPTION_MESSAGE_VEHICLE_USAGE_FORBIDDEN;
+
+        float regionalBaseFee = deliveryFee.getRegionalBaseFeeInCents() / 100f;
+        float airTemperatureFee = deliveryFee.getAirTemperatureFeeInCents() / 100f;
+        float windSpeedFee = deliveryFee.getWindSpeedFeeInCents() / 100f;
+        float weatherPhenomenonFee = deliveryFee.getWeatherPhenomenonFeeInCents() / 100f;
+
+        return "Input parameters: " + deliveryFee.getLocation().toString().toUpperCase() + " and "
+                + deliveryFee.getVehicleType().toString().toUpperCase() + " -> RBF = " + regionalBaseFee + " €\n"
+                + "Latest weather data for " + deliveryFee.getLocation() + " (" + deliveryFee.getStationName() + "):\n"
+                + " Air temperature = " + deliveryFee.getAirTemperature() + "°C -> ATEF = " + airTemperatureFee + " €\n"
+                + " Wind speed = " + deliveryFee.getWindSpeed() + " m/s -> WSEF = " + windSpeedFee + " €\n"
+                + " Weather phenomenon = " + deliveryFee.getWeatherPhenomenon() + " -> WPEF = " + weatherPhenomenonFee + " €\n"
+                + "Total delivery fee = RBF + ATEF + WSEF + WPEF = "
+                + regionalBaseFee + " + " + airTemperatureFee + " + " + windSpeedFee + " + " + weatherPhenomenonFee + " = "
+                + deliveryFee.getTotalDeliveryFeeInCents() / 100f + " €";
+    }
 
-            if (weatherType.equals(Weather.RAIN.toString().toLowerCase())) return 0.5f;
+    /**
+     * Serialize delivery fee breakdown.
+     *
+     * @param deliveryFee delivery fee
+     * @return UTF-8 JSON of DeliveryFeeDto.
+     */
+    private byte[] toJson(DeliveryFee deliveryFee) {
+
+        boolean forbidden = deliveryFee.isForbidden();
+
+        DeliveryFeeDto deliveryFeeDto = DeliveryFeeDto.builder()
+                .location(deliveryFee.getLocation().name())
+                .vehicleType(deliveryFee.getVehicleType().name())
+                .forbidden(forbidden)
+                .regionalBaseFee(forbidden ? null : DeliveryFee.toEuros(deliveryFee.getRegionalBaseFeeInCents()))
+                .airTemperatureFee(forbidden ? null : DeliveryFee.toEuros(deliveryFee.getAirTemperatureFeeInCents()))
+                .windSpeedFee(forbidden ? null : DeliveryFee.toEuros(deliveryFee.getWindSpeedFeeInCents()))
+                .weatherPhenomenonFee(forbidden ? null : DeliveryFee.toEuros(deliveryFee.getWeatherPhenomenonFeeInCents()))
+                .totalDeliveryFee(forbidden ? null : DeliveryFee.toEuros(deliveryFee.getTotalDeliveryFeeInCents()))
+                .stationName(deliveryFee.getStationName())
+                .airTemperature(deliveryFee.getAirTemperature())
+                .windSpeed(deliveryFee.getWindSpeed())
+                .weatherPhenomenon(deliveryFee.getWeatherPhenomenon())
+                .observationTimestamp(deliveryFee.getObservationTimestamp())
+                .weatherSnapshotVersion(deliveryFee.getWeatherSnapshotVersion())
+                .build();
+
+        try {
+            return OBJECT_MAPPER.writeValueAsBytes(deliveryFeeDto);
+        } catch (JsonProcessingException e) {
+            throw new RuntimeException(e);
         }
+    }
+
+    /**
+     * Get the latest weather data for specified location.
+     *
+     * @param location location name
+     * @return latest weather data for location
+     */
+    public WeatherData getWeatherDataForLocation(Location location) {
+        return weatherDataManager.getLatestWeatherDataForLocation(location.toString());
+    }
+
+    /**
+     * Get weather phenomenon fee (WPEF).
+     *
+     * @param locationWeatherPhenomenon weather phenomenon at the location.
+     * @param vehicleType vehicle type.
+     * @return WPEF value (€).
+     */
+    public float getWeatherPhenomenonFee(String locationWeatherPhenomenon, Vehicle vehicleType) {
+        return getWeatherPhenomenonFee(weatherDataManager.getWeatherPhenomenonClassifier()
+                .classify(locationWeatherPhenomenon), vehicleType);
+    }
 
-        return 0f;
+    /**
+     * Get weather phenomenon fee (WPEF).
+     *
+     * @param weatherPhenomenonCategory category of the weather phenomenon at the location.
+     * @param vehicleType vehicle type.
+     * @return WPEF value (€).
+     */
+    public float getWeatherPhenomenonFee(WeatherPhenomenonCategory weatherPhenomenonCategory, Vehicle vehicleType) {
+        return toEurosOrThrow(feeRules.getWeatherPhenomenonFeeInCents(vehicleType, weatherPhenomenonCategory));
     }
 
     /**
@@ -168,12 +631,7 @@ public class DeliveryManager {
      * @return ATEF value (€).
      */
     public float getAirTemperatureFee(float locationAirTemperature, Vehicle vehicleType) {
-
-        if (vehicleType.equals(Vehicle.SCOOTER) || vehicleType.equals(Vehicle.BIKE)) {
-            if (locationAirTemperature < -10.0f) return 1.0f;
-            if (locationAirTemperature >= -10.f && locationAirTemperature <= 0f) return 0.5f;
-        }
-        return 0f;
+        return toEurosOrThrow(feeRules.getAirTemperatureFeeInCents(vehicleType, locationAirTemperature));
     }
 
     /**
@@ -184,15 +642,24 @@ public class DeliveryManager {
      * @return WSEF value.
      */
     public float getWindSpeedFee(float locationWindSpeed, Vehicle vehicleType) {
+        return toEurosOrThrow(feeRules.getWindSpeedFeeInCents(vehicleType, locationWindSpeed));
+    }
 
-        if (vehicleType.equals(Vehicle.BIKE)) {
+    private float toEurosOrThrow(int feeInCents) {
 
-            if (locationWindSpeed > 20.f) throw new IllegalArgumentException(EXCEPTION_MESSAGE_VEHICLE_USAGE_FORBIDDEN);
+        if (feeInCents == FeeRules.FORBIDDEN) throw new IllegalArgumentException(EXCEPTION_MESSAGE_VEHICLE_USAGE_FORBIDDEN);
 
-            if (locationWindSpeed >= 10.f) return 0.5f;
-        }
+        return feeInCents / 100f;
+    }
 
-        return 0f;
+    /**
+     * Replace extra fee rules (ATEF, WSEF, WPEF), delivery fees are recalculated at once.
+     *
+     * @param rules compiled rules.
+     */
+    public synchronized void setFeeRules(FeeRules rules) {
+        feeRules = rules;
+        updateDeliveryFeeMatrix();
     }
 
     /**
@@ -202,8 +669,19 @@ public class DeliveryManager {
      * @param location location.
      * @param fee RBF value (€).
      */
-    public void setRegionalBaseFee(Vehicle vehicleType, Location location, float fee) {
-        regionalBaseFees.put(vehicleType + "," + location, fee);
+    public synchronized void setRegionalBaseFee(Vehicle vehicleType, Location location, float fee) {
+        regionalBaseFees = regionalBaseFees.withFee(vehicleType, location, DeliveryFee.toCents(fee));
+        updateDeliveryFeeMatrix();
+    }
+
+    /**
+     * Replace all regional base fees at once (RBF).
+     *
+     * @param regionalBaseFeeTable new regional base fees.
+     */
+    public synchronized void setRegionalBaseFees(RegionalBaseFeeTable regionalBaseFeeTable) {
+        regionalBaseFees = regionalBaseFeeTable;
+        updateDeliveryFeeMatrix();
     }
 
     /**
@@ -214,10 +692,6 @@ public class DeliveryManager {
      * @return RBF value (€).
      */
     public float getRegionalBaseFee(Vehicle vehicleType, Location location) {
-
-        if (!regionalBaseFees.containsKey(vehicleType + "," + location))
-            throw new NoSuchElementException("No data for these regional base fee parameters.");
-
-        return regionalBaseFees.get(vehicleType + "," + location);
+        return regionalBaseFees.getFeeInCents(vehicleType, location) / 100f;
     }
 }
@@ -0,0 +1,364 @@
+package dev.alpari.fujitsutrialtask.delivery;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import dev.alpari.fujitsutrialtask.dto.FeeBandDto;
+import dev.alpari.fujitsutrialtask.dto.FeeRulesDto;
+import dev.alpari.fujitsutrialtask.dto.VehicleFeeRulesDto;
+import dev.alpari.fujitsutrialtask.model.WeatherPhenomenonCategory;
+import lombok.Getter;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.zip.CRC32;
+
+/**
+ * Extra fee rules (ATEF, WSEF, WPEF) compiled into lookup tables, immutable.
+ *
+ * Bands of a reading are compiled into consecutive intervals covering every float value, found by binary search
+ * over their upper bounds. Phenomenon fees are a table indexed by vehicle type and category. Evaluation does not
+ * allocate. Missing (NaN) readings add no fee.
+ */
+public class FeeRules {
+
+    /**
+     * Fee of a rule forbidding usage of the vehicle type.
+     */
+    public static final int FORBIDDEN = Integer.MIN_VALUE;
+
+    /**
+     * Largest fee of a rule (cents), so that sums of fees can not overflow.
+     */
+    public static final int MAX_FEE_IN_CENTS = 1_000_000;
+
+    private static final ObjectMapper OBJECT_MAPPER = new ObjectMapper();
+
+    private static final int VEHICLE_COUNT = DeliveryManager.Vehicle.values().length;
+    private static final int CATEGORY_COUNT = WeatherPhenomenonCategory.values().length;
+
+    /**
+     * Rules bundled with the application.
+     */
+    public static final FeeRules DEFAULT = readDefault();
+
+    // Declared rules, as compiled.
+    @Getter
+    private final FeeRulesDto source;
+
+    // Checksum of the compiled tables, equal rules have equal versions.
+    @Getter
+    private final long version;
+
+    // By vehicle ordinal.
+    private final BandTable[] airTemperatureFees;
+    private final BandTable[] windSpeedFees;
+
+    // Index: vehicle ordinal * CATEGORY_COUNT + category ordinal.
+    private final int[] weatherPhenomenonFees;
+
+    private FeeRules(FeeRulesDto source, BandTable[] airTemperatureFees, BandTable[] windSpeedFees,
+                     int[] weatherPhenomenonFees) {
+
+        this.source = source;
+        this.airTemperatureFees = airTemperatureFees;
+        this.windSpeedFees = windSpeedFees;
+        this.weatherPhenomenonFees = weatherPhenomenonFees;
+
+        CRC32 checksum = new CRC32();
+        for (BandTable bandTable : airTemperatureFees) bandTable.update(checksum);
+        for (BandTable bandTable : windSpeedFees) bandTable.update(checksum);
+        for (int fee : weatherPhenomenonFees) update(checksum, fee);
+        this.version = checksum.getValue();
+    }
+
+    /**
+     * Compile declared rules.
+     *
+     * @param feeRulesDto declared rules.
+     * @return compiled rules.
+     * @throws IllegalArgumentException if rules are invalid, e.g. bands overlap or a vehicle type is unknown.
+     */
+    public static FeeRules compile(FeeRulesDto feeRulesDto) {
+
+        BandTable[] airTemperatureFees = new BandTable[VEHICLE_COUNT];
+        BandTable[] windSpeedFees = new BandTable[VEHICLE_COUNT];
+        int[] weatherPhenomenonFees = new int[VEHICLE_COUNT * CATEGORY_COUNT];
+
+        Map<String, VehicleFeeRulesDto> vehicles = feeRulesDto.getVehicles() == null ? Map.of() : feeRulesDto.getVehicles();
+        VehicleFeeRulesDto[] vehicleRules = new VehicleFeeRulesDto[VEHICLE_COUNT];
+
+        for (Map.Entry<String, VehicleFeeRulesDto> entry : vehicles.entrySet()) {
+
+            DeliveryManager.Vehicle vehicleType;
+            try {
+                vehicleType = DeliveryManager.Vehicle.valueOf(entry.getKey().toUpperCase(Locale.ROOT));
+            } catch (IllegalArgumentException e) {
+                throw new IllegalArgumentException("No such vehicle type: " + entry.getKey());
+            }
+
+            if (vehicleRules[vehicleType.ordinal()] != null)
+                throw new IllegalArgumentException("Duplicate rules of vehicle type: " + vehicleType);
+            vehicleRules[vehicleType.ordinal()] = entry.getValue() == null ? new VehicleFeeRulesDto() : entry.getValue();
+        }
+
+        for (DeliveryManager.Vehicle vehicleType : DeliveryManager.Vehicle.values()) {
+
+            VehicleFeeRulesDto rules = vehicleRules[vehicleType.ordinal()];
+            if (rules == null) rules = new VehicleFeeRulesDto();
+
+            airTemperatureFees[vehicleType.ordinal()] = BandTable.compile(rules.getAirTemperature(),
+                    vehicleType + " air temperature");
+            windSpeedFees[vehicleType.ordinal()] = BandTable.compile(rules.getWindSpeed(), vehicleType + " wind speed");
+
+            if (rules.getWeatherPhenomenon() == null) continue;
+
+            for (Map.Entry<WeatherPhenomenonCategory, FeeBandDto> entry : rules.getWeatherPhenomenon().entrySet()) {
+
+                FeeBandDto band = entry.getValue();
+                String description = vehicleType + " " + entry.getKey();
+
+                if (entry.getKey() == null || band == null) throw new IllegalArgumentException("Invalid rule: " + description);
+                if (band.getAbove() != null || band.getAtLeast() != null || band.getBelow() != null || band.getAtMost() != null)
+                    throw new IllegalArgumentException("Weather phenomenon rules have no bounds: " + description);
+
+                weatherPhenomenonFees[vehicleType.ordinal() * CATEGORY_COUNT + entry.getKey().ordinal()] =
+                        toFeeInCents(band, description);
+            }
+        }
+
+        return new FeeRules(feeRulesDto, airTemperatureFees, windSpeedFees, weatherPhenomenonFees);
+    }
+
+    /**
+     * Read and compile rules in fee-rules.json format.
+     *
+     * @param inputStream JSON document.
+     * @return compiled rules.
+     * @throws IllegalArgumentException if document or rules are invalid.
+     */
+    public static FeeRules read(InputStream inputStream) throws IOException {
+
+        FeeRulesDto feeRulesDto;
+        try {
+            feeRulesDto = OBJECT_MAPPER.readValue(inputStream, FeeRulesDto.class);
+        } catch (JsonProcessingException e) {
+            throw new IllegalArgumentException("Invalid fee rules: " + e.getOriginalMessage(), e);
+        }
+
+        return compile(feeRulesDto);
+    }
+
+    /**
+     * @return ATEF (cents) or FORBIDDEN.
+     */
+    public int getAirTemperatureFeeInCents(DeliveryManager.Vehicle vehicleType, float airTemperature) {
+        return airTemperatureFees[vehicleType.ordinal()].getFeeInCents(airTemperature);
+    }
+
+    /**
+     * @return WSEF (cents) or FORBIDDEN.
+     */
+    public int getWindSpeedFeeInCents(DeliveryManager.Vehicle vehicleType, float windSpeed) {
+        return windSpeedFees[vehicleType.ordinal()].getFeeInCents(windSpeed);
+    }
+
+    /**
+     * @param weatherPhenomenonCategory category, null is treated as NONE.
+     * @return WPEF (cents) or FORBIDDEN.
+     */
+    public int getWeatherPhenomenonFeeInCents(DeliveryManager.Vehicle vehicleType,
+                                              WeatherPhenomenonCategory weatherPhenomenonCategory) {
+
+        int category = weatherPhenomenonCategory == null ? 0 : weatherPhenomenonCategory.ordinal();
+        return weatherPhenomenonFees[vehicleType.ordinal() * CATEGORY_COUNT + category];
+    }
+
+    /**
+     * @return ATEF + WSEF + WPEF (cents) or FORBIDDEN if any of the rules forbids the vehicle type.
+     */
+    public int getExtraFeeInCents(DeliveryManager.Vehicle vehicleType, float airTemperature, float windSpeed,
+                                  WeatherPhenomenonCategory weatherPhenomenonCategory) {
+
+        int airTemperatureFee = getAirTemperatureFeeInCents(vehicleType, airTemperature);
+        int windSpeedFee = getWindSpeedFeeInCents(vehicleType, windSpeed);
+        int weatherPhenomenonFee = getWeatherPhenomenonFeeInCents(vehicleType, weatherPhenomenonCategory);
+
+        if (airTemperatureFee == FORBIDDEN || windSpeedFee == FORBIDDEN || weatherPhenomenonFee == FORBIDDEN) return FORBIDDEN;
+
+        return airTemperatureFee + windSpeedFee + weatherPhenomenonFee;
+    }
+
+    /**
+     * Total delivery fees of every combination of air temperature and wind speed, for what-if pricing.
+     *
+     * @param vehicleType vehicle type.
+     * @param regionalBaseFeeInCents RBF (cents).
+     * @param weatherPhenomenonCategory category of the weather phenomenon.
+     * @param airTemperatures air temperatures.
+     * @param windSpeeds wind speeds.
+     * @param totalFeesInCents receives total fees (cents) or FORBIDDEN, at airTemperatureIndex * windSpeeds.length
+     *                         + windSpeedIndex. Must hold airTemperatures.length * windSpeeds.length values.
+     */
+    public void evaluateGrid(DeliveryManager.Vehicle vehicleType, int regionalBaseFeeInCents,
+                             WeatherPhenomenonCategory weatherPhenomenonCategory, float[] airTemperatures,
+                             float[] windSpeeds, int[] totalFeesInCents) {
+
+        if (totalFeesInCents.length < airTemperatures.length * windSpeeds.length)
+            throw new IllegalArgumentException("Output holds " + totalFeesInCents.length + " fees, "
+                    + airTemperatures.length * windSpeeds.length + " needed.");
+
+        BandTable windSpeedTable = windSpeedFees[vehicleType.ordinal()];
+        int weatherPhenomenonFee = getWeatherPhenomenonFeeInCents(vehicleType, weatherPhenomenonCategory);
+
+        int index = 0;
+        for (float airTemperature : airTemperatures) {
+
+            int airTemperatureFee = getAirTemperatureFeeInCents(vehicleType, airTemperature);
+            boolean forbidden = airTemperatureFee == FORBIDDEN || weatherPhenomenonFee == FORBIDDEN;
+            int fee = regionalBaseFeeInCents + airTemperatureFee + weatherPhenomenonFee;
+
+            for (float windSpeed : windSpeeds) {
+                int windSpeedFee = windSpeedTable.getFeeInCents(windSpeed);
+                totalFeesInCents[index++] = forbidden || windSpeedFee == FORBIDDEN ? FORBIDDEN : fee + windSpeedFee;
+            }
+        }
+    }
+
+    private static int toFeeInCents(FeeBandDto band, String description) {
+
+        boolean forbidden = Boolean.TRUE.equals(band.getForbidden());
+
+        if (forbidden == (band.getFee() != null))
+            throw new IllegalArgumentException("Rule must have either a fee or be forbidden: " + description);
+
+        if (forbidden) return FORBIDDEN;
+
+        BigDecimal maxFee = BigDecimal.valueOf(MAX_FEE_IN_CENTS, 2);
+        if (band.getFee().signum() < 0) throw new IllegalArgumentException("Fee can not be negative: " + description);
+        if (band.getFee().compareTo(maxFee) > 0)
+            throw new IllegalArgumentException("Fee can not exceed " + maxFee + ": " + description);
+
+        try {
+            return band.getFee().movePointRight(2).intValueExact();
+        } catch (ArithmeticException e) {
+            throw new IllegalArgumentException("Fee must be whole cents: " + description);
+        }
+    }
+
+    private static FeeRules readDefault() {
+
+        try (InputStream inputStream = FeeRules.class.getResourceAsStream("/fee-rules.json")) {
+            if (inputStream == null) throw new IllegalStateException("fee-rules.json is not on the classpath.");
+            return read(inputStream);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private static void update(CRC32 checksum, int value) {
+        checksum.update(value >>> 24);
+        checksum.update(value >>> 16);
+        checksum.update(value >>> 8);
+        checksum.update(value);
+    }
+
+    /**
+     * Fees of consecutive intervals of one reading.
+     *
+     * Readings are mapped to ints preserving their order, interval i covers keys up to upperKeys[i] (inclusive)
+     * and above upperKeys[i - 1]. The last interval ends at Integer.MAX_VALUE.
+     */
+    private static class BandTable {
+
+        private final int[] upperKeys;
+        private final int[] feesInCents;
+
+        private BandTable(int[] upperKeys, int[] feesInCents) {
+            this.upperKeys = upperKeys;
+            this.feesInCents = feesInCents;
+        }
+
+        int getFeeInCents(float reading) {
+
+            if (Float.isNaN(reading)) return 0;
+
+            int index = Arrays.binarySearch(upperKeys, key(reading));
+            return feesInCents[index >= 0 ? index : -index - 1];
+        }
+
+        static BandTable compile(List<FeeBandDto> bands, String description) {
+
+            // Lower and upper key (both inclusive) and fee of every band.
+            List<int[]> intervals = new ArrayList<>();
+
+            if (bands != null) {
+                for (FeeBandDto band : bands) {
+
+                    if (band == null) throw new IllegalArgumentException("Invalid band: " + description);
+                    if (band.getAbove() != null && band.getAtLeast() != null || band.getBelow() != null && band.getAtMost() != null)
+                        throw new IllegalArgumentException("Band has two lower or upper bounds: " + description);
+
+                    long lower = band.getAbove() != null ? (long) key(checkBound(band.getAbove(), description)) + 1
+                            : band.getAtLeast() != null ? key(checkBound(band.getAtLeast(), description)) : Integer.MIN_VALUE;
+                    long upper = band.getBelow() != null ? (long) key(checkBound(band.getBelow(), description)) - 1
+                            : band.getAtMost() != null ? key(checkBound(band.getAtMost(), description)) : Integer.MAX_VALUE;
+
+                    if (lower > upper) throw new IllegalArgumentException("Band is empty: " + description);
+
+                    intervals.add(new int[]{(int) lower, (int) upper, toFeeInCents(band, description)});
+                }
+            }
+
+            intervals.sort(Comparator.comparingInt(interval -> interval[0]));
+
+            // Fill gaps between bands with intervals without a fee.
+            List<int[]> partition = new ArrayList<>();
+            long next = Integer.MIN_VALUE;
+
+            for (int[] interval : intervals) {
+                if (interval[0] < next) throw new IllegalArgumentException("Bands overlap: " + description);
+                if (interval[0] > next) partition.add(new int[]{interval[0] - 1, 0});
+                partition.add(new int[]{interval[1], interval[2]});
+                next = (long) interval[1] + 1;
+            }
+            if (next <= Integer.MAX_VALUE) partition.add(new int[]{Integer.MAX_VALUE, 0});
+
+            int[] upperKeys = new int[partition.size()];
+            int[] feesInCents = new int[partition.size()];
+            for (int i = 0; i < partition.size(); i++) {
+                upperKeys[i] = partition.get(i)[0];
+                feesInCents[i] = partition.get(i)[1];
+            }
+
+            return new BandTable(upperKeys, feesInCents);
+        }
+
+        void update(CRC32 checksum) {
+            FeeRules.update(checksum, upperKeys.length);
+            for (int upperKey : upperKeys) FeeRules.update(checksum, upperKey);
+            for (int feeInCents : feesInCents) FeeRules.update(checksum, feeInCents);
+        }
+
+        private static float checkBound(float bound, String description) {
+            if (Float.isNaN(bound)) throw new IllegalArgumentException("Band bound is not a number: " + description);
+            return bound;
+        }
+
+        /**
+         * Map float to int, preserving order. Negative zero is mapped like zero.
+         */
+        private static int key(float value) {
+
+            int bits = Float.floatToIntBits(value == 0 ? 0f : value);
+            return bits >= 0 ? bits : bits ^ Integer.MAX_VALUE;
+        }
+    }
+}
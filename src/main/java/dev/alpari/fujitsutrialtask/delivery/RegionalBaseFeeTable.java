@@ -0,0 +1,182 @@
+package dev.alpari.fujitsutrialtask.delivery;
+
+import lombok.Getter;
+
+import java.util.Arrays;
+import java.util.NoSuchElementException;
+
+/**
+ * Immutable table of regional base fees (RBF) in cents, indexed by location and vehicle type ordinals.
+ *
+ * Changes create a new table with version increased by one, so a table can be replaced as a whole
+ * without readers ever seeing it partially updated. The table covers locations up to the highest one with a fee,
+ * locations past its end have no fees. Fees of a slot belong to the location they were set for only: an ordinal
+ * freed by a removed location may be taken by another one.
+ */
+public class RegionalBaseFeeTable {
+
+    private static final int VEHICLE_COUNT = DeliveryManager.Vehicle.values().length;
+
+    // Marks cells without a fee.
+    private static final int NO_FEE = -1;
+
+    public static final RegionalBaseFeeTable EMPTY = new RegionalBaseFeeTable(0, new int[0],
+            new DeliveryManager.Location[0]);
+
+    @Getter
+    private final long version;
+
+    private final int[] feesInCents;
+
+    // Location the fees of each slot were set for, indexed by location ordinal.
+    private final DeliveryManager.Location[] locations;
+
+    private RegionalBaseFeeTable(long version, int[] feesInCents, DeliveryManager.Location[] locations) {
+        this.version = version;
+        this.feesInCents = feesInCents;
+        this.locations = locations;
+    }
+
+    /**
+     * Check if table has a fee for specified vehicle type and location.
+     */
+    public boolean contains(DeliveryManager.Vehicle vehicleType, DeliveryManager.Location location) {
+        return feeInCents(vehicleType, location) != NO_FEE;
+    }
+
+    /**
+     * Get regional base fee.
+     *
+     * @param vehicleType vehicle type.
+     * @param location location.
+     * @return RBF value (cents).
+     */
+    public int getFeeInCents(DeliveryManager.Vehicle vehicleType, DeliveryManager.Location location) {
+
+        int feeInCents = feeInCents(vehicleType, location);
+
+        if (feeInCents == NO_FEE) throw new NoSuchElementException("No data for these regional base fee parameters.");
+
+        return feeInCents;
+    }
+
+    /**
+     * Create a copy of this table with one fee set.
+     *
+     * @param vehicleType vehicle type.
+     * @param location location.
+     * @param feeInCents RBF value (cents).
+     * @return new table.
+     */
+    public RegionalBaseFeeTable withFee(DeliveryManager.Vehicle vehicleType, DeliveryManager.Location location,
+                                        int feeInCents) {
+
+        if (feeInCents < 0) throw new IllegalArgumentException("Regional base fee can not be negative.");
+
+        int index = index(vehicleType, location);
+        int[] updatedFeesInCents = copyOf(feesInCents, index + 1);
+        DeliveryManager.Location[] updatedLocations = copyOf(locations, location.ordinal() + 1);
+
+        claim(updatedFeesInCents, updatedLocations, location);
+        updatedFeesInCents[index] = feeInCents;
+        return new RegionalBaseFeeTable(version + 1, updatedFeesInCents, updatedLocations);
+    }
+
+    /**
+     * Create a copy of this table without fees of the location.
+     *
+     * @param location location.
+     * @return new table.
+     */
+    public RegionalBaseFeeTable withoutLocation(DeliveryManager.Location location) {
+
+        int[] updatedFeesInCents = feesInCents.clone();
+        DeliveryManager.Location[] updatedLocations = locations.clone();
+
+        int ordinal = location.ordinal();
+        if (ordinal < updatedLocations.length && updatedLocations[ordinal] == location) {
+            int start = ordinal * VEHICLE_COUNT;
+            Arrays.fill(updatedFeesInCents, start, start + VEHICLE_COUNT, NO_FEE);
+            updatedLocations[ordinal] = null;
+        }
+        return new RegionalBaseFeeTable(version + 1, updatedFeesInCents, updatedLocations);
+    }
+
+    // Fee of the cell if it belongs to the location, otherwise NO_FEE.
+    private int feeInCents(DeliveryManager.Vehicle vehicleType, DeliveryManager.Location location) {
+
+        int ordinal = location.ordinal();
+        if (ordinal >= locations.length || locations[ordinal] != location) return NO_FEE;
+
+        return feesInCents[index(vehicleType, location)];
+    }
+
+    /**
+     * Take the slot of the location, fees left there by a removed location with the same ordinal are dropped.
+     * Arrays must cover the location.
+     */
+    private static void claim(int[] feesInCents, DeliveryManager.Location[] locations, DeliveryManager.Location location) {
+
+        int ordinal = location.ordinal();
+        if (locations[ordinal] == location) return;
+
+        int start = ordinal * VEHICLE_COUNT;
+        Arrays.fill(feesInCents, start, start + VEHICLE_COUNT, NO_FEE);
+        locations[ordinal] = location;
+    }
+
+    private static int index(DeliveryManager.Vehicle vehicleType, DeliveryManager.Location location) {
+        return location.ordinal() * VEHICLE_COUNT + vehicleType.ordinal();
+    }
+
+    /**
+     * Copy fees, grown to hold at least minLength cells (whole locations), new cells have no fee.
+     */
+    private static int[] copyOf(int[] feesInCents, int minLength) {
+
+        if (minLength <= feesInCents.length) return feesInCents.clone();
+
+        int length = (minLength + VEHICLE_COUNT - 1) / VEHICLE_COUNT * VEHICLE_COUNT;
+        int[] copy = Arrays.copyOf(feesInCents, length);
+        Arrays.fill(copy, feesInCents.length, length, NO_FEE);
+        return copy;
+    }
+
+    private static DeliveryManager.Location[] copyOf(DeliveryManager.Location[] locations, int minLength) {
+        return Arrays.copyOf(locations, Math.max(locations.length, minLength));
+    }
+
+    /**
+     * Collects fees of a whole table, not thread safe.
+     */
+    public static class Builder {
+
+        private final long version;
+        private int[] feesInCents = new int[0];
+        private DeliveryManager.Location[] locations = new DeliveryManager.Location[0];
+
+        /**
+         * @param version version of the table to build, should be greater than version of the table it replaces.
+         */
+        public Builder(long version) {
+            this.version = version;
+        }
+
+        public Builder fee(DeliveryManager.Vehicle vehicleType, DeliveryManager.Location location, int feeInCents) {
+
+            if (feeInCents < 0) throw new IllegalArgumentException("Regional base fee can not be negative.");
+
+            int index = index(vehicleType, location);
+            if (index >= feesInCents.length) feesInCents = copyOf(feesInCents, index + 1);
+            if (location.ordinal() >= locations.length) locations = copyOf(locations, location.ordinal() + 1);
+
+            claim(feesInCents, locations, location);
+            feesInCents[index] = feeInCents;
+            return this;
+        }
+
+        public RegionalBaseFeeTable build() {
+            return new RegionalBaseFeeTable(version, feesInCents.clone(), locations.clone());
+        }
+    }
+}
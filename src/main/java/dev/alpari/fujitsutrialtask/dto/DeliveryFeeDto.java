@@ -0,0 +1,35 @@
+package dev.alpari.fujitsutrialtask.dto;
+
+import lombok.Builder;
+import lombok.Data;
+
+import java.math.BigDecimal;
+
+/**
+ * Delivery fee breakdown, fees are in euros.
+ *
+ * Total delivery fee = RBF + ATEF + WSEF + WPEF
+ */
+@Builder
+@Data
+public class DeliveryFeeDto {
+
+    private String location;
+    private String vehicleType;
+
+    // Usage of the vehicle type is forbidden, fees are null in this case.
+    private boolean forbidden;
+
+    private BigDecimal regionalBaseFee;
+    private BigDecimal airTemperatureFee;
+    private BigDecimal windSpeedFee;
+    private BigDecimal weatherPhenomenonFee;
+    private BigDecimal totalDeliveryFee;
+
+    private String stationName;
+    private float airTemperature;
+    private float windSpeed;
+    private String weatherPhenomenon;
+    private long observationTimestamp;
+    private long weatherSnapshotVersion;
+}
@@ -0,0 +1,34 @@
+package dev.alpari.fujitsutrialtask.dto;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+
+/**
+ * Fee of readings in a range, e.g. {"atLeast": -10, "atMost": 0, "fee": 0.5} or {"above": 20, "forbidden": true}.
+ *
+ * A missing bound leaves the range open on that side, at most one lower and one upper bound can be set.
+ */
+@Builder
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class FeeBandDto {
+
+    // Lower bounds: exclusive, inclusive.
+    private Float above;
+    private Float atLeast;
+
+    // Upper bounds: exclusive, inclusive.
+    private Float below;
+    private Float atMost;
+
+    // Fee (€), not set if usage of the vehicle type is forbidden.
+    private BigDecimal fee;
+    private Boolean forbidden;
+}
@@ -0,0 +1,29 @@
+package dev.alpari.fujitsutrialtask.dto;
+
+import dev.alpari.fujitsutrialtask.model.WeatherPhenomenonCategory;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+
+/**
+ * Total delivery fees (€) in hypothetical weather.
+ */
+@Builder
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class FeeGridDto {
+
+    private String location;
+    private String vehicleType;
+    private WeatherPhenomenonCategory weatherPhenomenonCategory;
+    private String feeRules;
+    private float[] airTemperatures;
+    private float[] windSpeeds;
+
+    // [air temperature index][wind speed index], null where usage of the vehicle type is forbidden.
+    private BigDecimal[][] totalDeliveryFees;
+}
@@ -0,0 +1,23 @@
+package dev.alpari.fujitsutrialtask.dto;
+
+import dev.alpari.fujitsutrialtask.model.WeatherPhenomenonCategory;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Hypothetical weather to price a delivery in: every combination of air temperature and wind speed.
+ */
+@Builder
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class FeeGridRequestDto {
+
+    private String location;
+    private String vehicle;
+    private WeatherPhenomenonCategory weatherPhenomenonCategory;
+    private float[] airTemperatures;
+    private float[] windSpeeds;
+}
@@ -0,0 +1,24 @@
+package dev.alpari.fujitsutrialtask.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.Map;
+
+/**
+ * Extra fee rules (ATEF, WSEF, WPEF) as declared in fee-rules.json, compiled into FeeRules.
+ */
+@Builder
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class FeeRulesDto {
+
+    // Describes the tariff, e.g. "2023-03".
+    private String name;
+
+    // Rules by vehicle type. Vehicle types without rules have no extra fees and are never forbidden.
+    private Map<String, VehicleFeeRulesDto> vehicles;
+}
@@ -0,0 +1,29 @@
+package dev.alpari.fujitsutrialtask.dto;
+
+import dev.alpari.fujitsutrialtask.model.WeatherPhenomenonCategory;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Extra fee rules of one vehicle type. Readings outside every band and categories without a rule add no fee.
+ */
+@Builder
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class VehicleFeeRulesDto {
+
+    // Air temperature (°C) bands, must not overlap.
+    private List<FeeBandDto> airTemperature;
+
+    // Wind speed (m/s) bands, must not overlap.
+    private List<FeeBandDto> windSpeed;
+
+    // Bounds of these bands are not used.
+    private Map<WeatherPhenomenonCategory, FeeBandDto> weatherPhenomenon;
+}
@@ -1,18 +1,29 @@
 package dev.alpari.fujitsutrialtask.dto;
 
+import dev.alpari.fujitsutrialtask.model.WeatherPhenomenonCategory;
+import lombok.AllArgsConstructor;
 import lombok.Builder;
 import lombok.Data;
-
-import java.sql.Timestamp;
+import lombok.NoArgsConstructor;
 
 @Builder
 @Data
+@NoArgsConstructor
+@AllArgsConstructor
 public class WeatherDataDto {
 
+    // Assigned by the database, ignored when weather data is added.
+    private int id;
     private String stationName;
     private String stationWmoCode;
     private float airTemperature;
     private float windSpeed;
     private String weatherPhenomenon;
-    private String observationTimestamp;
+    // Station coordinates (degrees), null if unknown.
+    private Double latitude;
+    private Double longitude;
+    // Ignored when weather data is added, it is classified from the weather phenomenon.
+    private WeatherPhenomenonCategory weatherPhenomenonCategory;
+    // Seconds since epoch.
+    private long observationTimestamp;
 }
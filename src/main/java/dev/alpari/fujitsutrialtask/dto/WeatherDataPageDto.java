@@ -0,0 +1,19 @@
+package dev.alpari.fujitsutrialtask.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+import java.util.List;
+
+/**
+ * One page of stored weather data, ordered by observation timestamp and id.
+ */
+@Data
+@AllArgsConstructor
+public class WeatherDataPageDto {
+
+    private List<WeatherDataDto> weatherData;
+
+    // Pass as cursor to get the next page, null if this is the last page.
+    private String nextCursor;
+}
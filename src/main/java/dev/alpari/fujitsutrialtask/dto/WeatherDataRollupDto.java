@@ -0,0 +1,34 @@
+package dev.alpari.fujitsutrialtask.dto;
+
+import dev.alpari.fujitsutrialtask.model.RollupGranularity;
+import dev.alpari.fujitsutrialtask.model.WeatherPhenomenonCategory;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Weather data of a station aggregated over an hour or a day, aggregates are null if no observation had the value.
+ */
+@Builder
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class WeatherDataRollupDto {
+
+    private RollupGranularity granularity;
+    private String stationName;
+    private String stationWmoCode;
+    // Start of the period (seconds since epoch).
+    private long periodStart;
+    private int observationCount;
+    private Float minAirTemperature;
+    private Float maxAirTemperature;
+    private Float avgAirTemperature;
+    private Float minWindSpeed;
+    private Float maxWindSpeed;
+    private Float avgWindSpeed;
+    // Most frequent weather phenomenon in the period.
+    private String weatherPhenomenon;
+    private WeatherPhenomenonCategory weatherPhenomenonCategory;
+}
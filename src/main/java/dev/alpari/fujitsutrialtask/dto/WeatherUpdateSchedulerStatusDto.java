@@ -0,0 +1,35 @@
+package dev.alpari.fujitsutrialtask.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.Instant;
+
+@Builder
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class WeatherUpdateSchedulerStatusDto {
+
+    private boolean running;
+
+    // Poll in progress.
+    private boolean polling;
+
+    private long pollCount;
+
+    // Polls that failed with an exception, they are logged as warnings.
+    private long failedPollCount;
+
+    private Instant lastPollTime;
+
+    // Last poll that read newer observations.
+    private Instant lastUpdateTime;
+
+    private Instant nextPollTime;
+
+    // Timestamp of the latest observations.
+    private Instant observationTime;
+}
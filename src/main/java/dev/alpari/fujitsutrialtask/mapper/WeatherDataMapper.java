@@ -1,7 +1,9 @@
 package dev.alpari.fujitsutrialtask.mapper;
 
 import dev.alpari.fujitsutrialtask.dto.WeatherDataDto;
+import dev.alpari.fujitsutrialtask.dto.WeatherDataRollupDto;
 import dev.alpari.fujitsutrialtask.model.WeatherData;
+import dev.alpari.fujitsutrialtask.model.WeatherDataRollup;
 import org.mapstruct.Mapper;
 import org.mapstruct.ReportingPolicy;
 
@@ -9,4 +11,5 @@ import org.mapstruct.ReportingPolicy;
 public interface WeatherDataMapper {
     WeatherDataDto entityToDto(WeatherData weatherData);
     WeatherData dtoToEntity(WeatherDataDto weatherDataDto);
+    WeatherDataRollupDto rollupToDto(WeatherDataRollup rollup);
 }
@@ -0,0 +1,43 @@
+package dev.alpari.fujitsutrialtask.model;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.GeneratedValue;
+import jakarta.persistence.GenerationType;
+import jakarta.persistence.Id;
+import jakarta.persistence.SequenceGenerator;
+import lombok.AccessLevel;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+import lombok.ToString;
+
+/**
+ * Regional base fee (RBF) of a location and vehicle type.
+ */
+@ToString
+@Getter
+@Setter
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+@Entity
+public class RegionalBaseFee {
+
+    @Setter(AccessLevel.NONE)
+    @Id
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "regional_base_fee_seq")
+    @SequenceGenerator(name = "regional_base_fee_seq", sequenceName = "REGIONAL_BASE_FEE_SEQ", allocationSize = 50)
+    @Column(name = "id", nullable = false)
+    private int id;
+
+    // Location name (upper case).
+    private String location;
+
+    // Name of the DeliveryManager.Vehicle constant.
+    private String vehicleType;
+
+    private int feeInCents;
+}
@@ -0,0 +1,28 @@
+package dev.alpari.fujitsutrialtask.model;
+
+import lombok.Getter;
+
+/**
+ * Length of the period weather data is aggregated over, periods are aligned to UTC.
+ */
+@Getter
+public enum RollupGranularity {
+    HOUR(3600),
+    DAY(86400);
+
+    private final long seconds;
+
+    RollupGranularity(long seconds) {
+        this.seconds = seconds;
+    }
+
+    /**
+     * Get start of the period the timestamp belongs to.
+     *
+     * @param timestamp timestamp (seconds since epoch).
+     * @return start of the period (seconds since epoch).
+     */
+    public long periodStart(long timestamp) {
+        return Math.floorDiv(timestamp, seconds) * seconds;
+    }
+}
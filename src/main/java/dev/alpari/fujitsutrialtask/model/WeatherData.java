@@ -2,9 +2,12 @@ package dev.alpari.fujitsutrialtask.model;
 
 import jakarta.persistence.Column;
 import jakarta.persistence.Entity;
+import jakarta.persistence.EnumType;
+import jakarta.persistence.Enumerated;
 import jakarta.persistence.GeneratedValue;
 import jakarta.persistence.GenerationType;
 import jakarta.persistence.Id;
+import jakarta.persistence.SequenceGenerator;
 import lombok.AccessLevel;
 import lombok.AllArgsConstructor;
 import lombok.Builder;
@@ -13,8 +16,6 @@ import lombok.NoArgsConstructor;
 import lombok.Setter;
 import lombok.ToString;
 
-import java.sql.Timestamp;
-
 @ToString
 @Getter
 @Builder
@@ -25,7 +26,8 @@ public class WeatherData {
 
     @Setter(AccessLevel.NONE)
     @Id
-    @GeneratedValue(strategy = GenerationType.AUTO)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "weather_data_seq")
+    @SequenceGenerator(name = "weather_data_seq", sequenceName = "WEATHER_DATA_SEQ", allocationSize = 50)
     @Column(name = "id", nullable = false)
     private int id;
 
@@ -34,7 +36,20 @@ public class WeatherData {
     private float airTemperature;
     private float windSpeed;
     private String weatherPhenomenon;
-    private String observationTimestamp;
+
+    /**
+     * Station coordinates (degrees), null if unknown.
+     */
+    private Double latitude;
+    private Double longitude;
+
+    @Enumerated(EnumType.STRING)
+    private WeatherPhenomenonCategory weatherPhenomenonCategory;
+
+    /**
+     * Observation time (seconds since epoch).
+     */
+    private long observationTimestamp;
 
     public String toJson() {
 
@@ -0,0 +1,71 @@
+package dev.alpari.fujitsutrialtask.model;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.EnumType;
+import jakarta.persistence.Enumerated;
+import jakarta.persistence.GeneratedValue;
+import jakarta.persistence.GenerationType;
+import jakarta.persistence.Id;
+import jakarta.persistence.SequenceGenerator;
+import lombok.AccessLevel;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+import lombok.ToString;
+
+/**
+ * Weather data of a station aggregated over an hour or a day.
+ *
+ * Aggregates are null if none of the observations in the period had the value.
+ */
+@ToString
+@Getter
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+@Entity
+public class WeatherDataRollup {
+
+    @Setter(AccessLevel.NONE)
+    @Id
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "weather_data_rollup_seq")
+    @SequenceGenerator(name = "weather_data_rollup_seq", sequenceName = "WEATHER_DATA_ROLLUP_SEQ", allocationSize = 50)
+    @Column(name = "id", nullable = false)
+    private int id;
+
+    @Enumerated(EnumType.STRING)
+    private RollupGranularity granularity;
+
+    private String stationName;
+    private String stationWmoCode;
+
+    /**
+     * Start of the period (seconds since epoch).
+     */
+    private long periodStart;
+
+    private int observationCount;
+
+    private Float minAirTemperature;
+    private Float maxAirTemperature;
+    private Float avgAirTemperature;
+    // Number of observations with the reading, later observations are folded into the average with it.
+    private int airTemperatureCount;
+
+    private Float minWindSpeed;
+    private Float maxWindSpeed;
+    private Float avgWindSpeed;
+    private int windSpeedCount;
+
+    // Most frequent weather phenomenon in the period.
+    private String weatherPhenomenon;
+
+    @Enumerated(EnumType.STRING)
+    private WeatherPhenomenonCategory weatherPhenomenonCategory;
+
+    // Number of observations with the most frequent weather phenomenon.
+    private int weatherPhenomenonCount;
+}
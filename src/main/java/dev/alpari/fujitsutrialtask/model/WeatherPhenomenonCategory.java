@@ -0,0 +1,14 @@
+package dev.alpari.fujitsutrialtask.model;
+
+/**
+ * Category of the weather phenomenon, delivery fees depend only on the category.
+ */
+public enum WeatherPhenomenonCategory {
+    NONE,
+    RAIN,
+    SNOW,
+    SLEET,
+    GLAZE,
+    HAIL,
+    THUNDER
+}
@@ -0,0 +1,38 @@
+package dev.alpari.fujitsutrialtask.repository;
+
+import dev.alpari.fujitsutrialtask.model.RegionalBaseFee;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import java.util.Optional;
+
+/**
+ * Regional base fees and the version stamp of the whole set, changes must increase the stamp in their transaction.
+ */
+public interface RegionalBaseFeeRepository extends JpaRepository<RegionalBaseFee, Integer> {
+
+    Optional<RegionalBaseFee> findByLocationAndVehicleType(String location, String vehicleType);
+
+    @Query(nativeQuery = true, value = "SELECT version FROM REGIONAL_BASE_FEE_VERSION")
+    long findVersion();
+
+    /**
+     * Increase the version stamp, the row stays locked until the end of the transaction.
+     *
+     * @return number of updated rows.
+     */
+    @Modifying
+    @Query(nativeQuery = true, value = "UPDATE REGIONAL_BASE_FEE_VERSION SET version = version + 1")
+    int incrementVersion();
+
+    /**
+     * Raise the version stamp to at least the specified version.
+     *
+     * @return number of updated rows.
+     */
+    @Modifying
+    @Query(nativeQuery = true, value = "UPDATE REGIONAL_BASE_FEE_VERSION SET version = GREATEST(version, :version)")
+    int raiseVersion(@Param("version") long version);
+}
@@ -1,10 +1,102 @@
 package dev.alpari.fujitsutrialtask.repository;
 
+import dev.alpari.fujitsutrialtask.dto.WeatherDataDto;
 import dev.alpari.fujitsutrialtask.model.WeatherData;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
 
+import java.util.List;
 import java.util.Optional;
+import java.util.stream.Stream;
 
+/**
+ * Queries by station and observation time are served by the (station_name, observation_timestamp) unique key,
+ * queries of all stations by the (observation_timestamp, id) index.
+ */
 public interface WeatherDataRepository extends JpaRepository<WeatherData, Integer> {
-    Optional<WeatherData> findWeatherDataByStationName(String stationName);
+
+    String SELECT_DTO = "SELECT new dev.alpari.fujitsutrialtask.dto.WeatherDataDto(w.id, w.stationName, "
+            + "w.stationWmoCode, w.airTemperature, w.windSpeed, w.weatherPhenomenon, w.latitude, w.longitude, "
+            + "w.weatherPhenomenonCategory, w.observationTimestamp) "
+            + "FROM WeatherData w ";
+
+    // Rows after the (afterTimestamp, afterId) key from fromTimestamp up to toTimestamp (both inclusive).
+    String AFTER_KEY = "(w.observationTimestamp > :afterTimestamp "
+            + "OR (w.observationTimestamp = :afterTimestamp AND w.id > :afterId)) "
+            + "AND w.observationTimestamp >= :fromTimestamp AND w.observationTimestamp <= :toTimestamp ";
+
+    String ORDER_BY_KEY = "ORDER BY w.observationTimestamp, w.id";
+
+    Optional<WeatherData> findFirstByStationNameOrderByObservationTimestampDesc(String stationName);
+
+    @Query("SELECT w FROM WeatherData w WHERE w.observationTimestamp = "
+            + "(SELECT MAX(l.observationTimestamp) FROM WeatherData l WHERE l.stationName = w.stationName)")
+    List<WeatherData> findLatestOfEveryStation();
+
+    boolean existsByStationNameAndObservationTimestamp(String stationName, long observationTimestamp);
+
+    // Both ends are inclusive.
+    List<WeatherData> findByStationNameAndObservationTimestampBetweenOrderByObservationTimestamp(
+            String stationName, long fromTimestamp, long toTimestamp);
+
+    @Query(SELECT_DTO + "WHERE " + AFTER_KEY + ORDER_BY_KEY)
+    List<WeatherDataDto> findAfter(@Param("afterTimestamp") long afterTimestamp, @Param("afterId") int afterId,
+                                   @Param("fromTimestamp") long fromTimestamp,
+                                   @Param("toTimestamp") long toTimestamp, Pageable pageable);
+
+    @Query(SELECT_DTO + "WHERE w.stationName = :stationName AND " + AFTER_KEY + ORDER_BY_KEY)
+    List<WeatherDataDto> findByStationNameAfter(@Param("stationName") String stationName,
+                                                @Param("afterTimestamp") long afterTimestamp,
+                                                @Param("afterId") int afterId,
+                                                @Param("fromTimestamp") long fromTimestamp,
+                                                @Param("toTimestamp") long toTimestamp, Pageable pageable);
+
+    // Must be consumed inside a transaction.
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "1000"))
+    @Query(SELECT_DTO + "WHERE " + AFTER_KEY + ORDER_BY_KEY)
+    Stream<WeatherDataDto> streamAfter(@Param("afterTimestamp") long afterTimestamp, @Param("afterId") int afterId,
+                                       @Param("fromTimestamp") long fromTimestamp,
+                                       @Param("toTimestamp") long toTimestamp);
+
+    // Must be consumed inside a transaction.
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "1000"))
+    @Query(SELECT_DTO + "WHERE w.stationName = :stationName AND " + AFTER_KEY + ORDER_BY_KEY)
+    Stream<WeatherDataDto> streamByStationNameAfter(@Param("stationName") String stationName,
+                                                    @Param("afterTimestamp") long afterTimestamp,
+                                                    @Param("afterId") int afterId,
+                                                    @Param("fromTimestamp") long fromTimestamp,
+                                                    @Param("toTimestamp") long toTimestamp);
+
+    @Query("SELECT MIN(w.observationTimestamp) FROM WeatherData w")
+    Long findOldestObservationTimestamp();
+
+    @Query("SELECT MAX(w.observationTimestamp) FROM WeatherData w")
+    Long findLatestObservationTimestamp();
+
+    // From is inclusive, to is exclusive.
+    List<WeatherData> findByObservationTimestampGreaterThanEqualAndObservationTimestampLessThan(
+            long fromTimestamp, long toTimestamp, Pageable pageable);
+
+    // Must be consumed inside a transaction.
+    @QueryHints({
+            @QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "1000"),
+            @QueryHint(name = HibernateHints.HINT_READ_ONLY, value = "true")
+    })
+    Stream<WeatherData> streamAllBy();
+
+    // Rows observed at or after fromTimestamp and the latest earlier row of every station. Must be consumed inside
+    // a transaction.
+    @QueryHints({
+            @QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "1000"),
+            @QueryHint(name = HibernateHints.HINT_READ_ONLY, value = "true")
+    })
+    @Query("SELECT w FROM WeatherData w WHERE w.observationTimestamp >= :fromTimestamp "
+            + "OR w.observationTimestamp = (SELECT MAX(l.observationTimestamp) FROM WeatherData l "
+            + "WHERE l.stationName = w.stationName AND l.observationTimestamp < :fromTimestamp)")
+    Stream<WeatherData> streamNeededFrom(@Param("fromTimestamp") long fromTimestamp);
 }
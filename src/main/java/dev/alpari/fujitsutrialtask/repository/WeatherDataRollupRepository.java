@@ -0,0 +1,18 @@
+package dev.alpari.fujitsutrialtask.repository;
+
+import dev.alpari.fujitsutrialtask.model.RollupGranularity;
+import dev.alpari.fujitsutrialtask.model.WeatherDataRollup;
+import org.springframework.data.jpa.repository.JpaRepository;
+
+import java.util.List;
+
+public interface WeatherDataRollupRepository extends JpaRepository<WeatherDataRollup, Integer> {
+
+    // Both ends are inclusive.
+    List<WeatherDataRollup> findByGranularityAndPeriodStartBetween(RollupGranularity granularity,
+                                                                   long fromPeriodStart, long toPeriodStart);
+
+    // Both ends are inclusive.
+    List<WeatherDataRollup> findByGranularityAndStationNameAndPeriodStartBetweenOrderByPeriodStart(
+            RollupGranularity granularity, String stationName, long fromPeriodStart, long toPeriodStart);
+}
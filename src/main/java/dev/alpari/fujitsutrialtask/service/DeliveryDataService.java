@@ -1,15 +1,50 @@
 package dev.alpari.fujitsutrialtask.service;
 
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import dev.alpari.fujitsutrialtask.delivery.DeliveryFee;
+import dev.alpari.fujitsutrialtask.delivery.DeliveryFeeMatrix;
 import dev.alpari.fujitsutrialtask.delivery.DeliveryManager;
+import dev.alpari.fujitsutrialtask.delivery.FeeRules;
+import dev.alpari.fujitsutrialtask.delivery.RegionalBaseFeeTable;
+import dev.alpari.fujitsutrialtask.dto.FeeGridDto;
+import dev.alpari.fujitsutrialtask.dto.FeeGridRequestDto;
+import dev.alpari.fujitsutrialtask.dto.FeeRulesDto;
 import lombok.Getter;
 import lombok.RequiredArgsConstructor;
 import org.springframework.stereotype.Service;
 
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.math.BigDecimal;
+import java.time.Instant;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.TreeMap;
+
 @RequiredArgsConstructor
 @Getter
 @Service
 public class DeliveryDataService {
 
+    private static final ObjectMapper OBJECT_MAPPER = new ObjectMapper();
+    private static final JsonFactory JSON_FACTORY = OBJECT_MAPPER.getFactory();
+
+    // Air temperatures × wind speeds of a what-if request, the whole grid is built in memory and returned at once.
+    static final int MAX_FEE_GRID_SIZE = 10_000;
+
+    // Case-insensitive lookups by enum name, locations are looked up in their registry.
+    private static final Map<String, DeliveryManager.Vehicle> VEHICLE_TYPES = new TreeMap<>(String.CASE_INSENSITIVE_ORDER);
+
+    static {
+        for (DeliveryManager.Vehicle vehicleType : DeliveryManager.Vehicle.values()) VEHICLE_TYPES.put(vehicleType.name(), vehicleType);
+    }
+
     private final DeliveryManager deliveryManager;
 
     /**
@@ -21,19 +56,287 @@ public class DeliveryDataService {
      */
     public String getDeliveryFee(String location, String vehicleType) {
 
-        DeliveryManager.Location locationEnum = null;
-        DeliveryManager.Vehicle vehicleTypeEnum = null;
-
-        for (DeliveryManager.Location location1 : DeliveryManager.Location.values()) {
-            if (location1.name().equals(location.toUpperCase())) locationEnum = location1;
-        }
+        DeliveryManager.Location locationEnum = deliveryManager.findLocation(location);
         if (locationEnum == null) return "No such location with name: " + location;
 
-        for (DeliveryManager.Vehicle vehicleType1 : DeliveryManager.Vehicle.values()) {
-            if (vehicleType1.name().equals(vehicleType.toUpperCase())) vehicleTypeEnum = vehicleType1;
-        }
+        DeliveryManager.Vehicle vehicleTypeEnum = findVehicleType(vehicleType);
         if (vehicleTypeEnum == null) return "No such vehicle type: " + vehicleType;
 
         return deliveryManager.calculateAndGetDeliveryFee(vehicleTypeEnum, locationEnum);
     }
+
+    /**
+     * Get HTTP entity tag of the current delivery fees, it changes whenever any fee may change.
+     *
+     * Read it before the fees: fees may then be newer than the tag, never older.
+     *
+     * @return entity tag (unquoted)
+     */
+    public String getDeliveryFeeEntityTag() {
+        return deliveryManager.getDeliveryFeeMatrix().getEntityTag();
+    }
+
+    /**
+     * Get delivery fee breakdown based on location and vehicle type.
+     *
+     * @param location location name
+     * @param vehicleType vehicle type
+     * @return delivery fee breakdown as UTF-8 JSON, must not be modified
+     * @throws IllegalArgumentException if location or vehicle type is unknown
+     * @throws java.util.NoSuchElementException if there is no weather data for the location
+     */
+    public byte[] getDeliveryFeeJson(String location, String vehicleType) {
+        return deliveryManager.getDeliveryFeeJson(resolveVehicleType(vehicleType), resolveLocation(location));
+    }
+
+    /**
+     * Get delivery fee breakdown based on location, vehicle type and weather at specified time.
+     *
+     * @param location location name
+     * @param vehicleType vehicle type
+     * @param time time to calculate fee at
+     * @return delivery fee breakdown as UTF-8 JSON
+     * @throws IllegalArgumentException if location or vehicle type is unknown
+     * @throws java.util.NoSuchElementException if there is no weather data for the location at that time
+     */
+    public byte[] getDeliveryFeeJsonAt(String location, String vehicleType, Instant time) {
+        return deliveryManager.getDeliveryFeeJsonAt(resolveVehicleType(vehicleType), resolveLocation(location), time);
+    }
+
+    /**
+     * Get delivery fee breakdown at a point, based on the nearest location and weather station.
+     *
+     * @param latitude latitude of the delivery (degrees)
+     * @param longitude longitude of the delivery (degrees)
+     * @param vehicleType vehicle type
+     * @return delivery fee breakdown as UTF-8 JSON
+     * @throws IllegalArgumentException if coordinates are invalid or vehicle type is unknown
+     * @throws java.util.NoSuchElementException if there is no location or weather data to calculate fee from
+     */
+    public byte[] getDeliveryFeeJsonNear(double latitude, double longitude, String vehicleType) {
+        return deliveryManager.getDeliveryFeeJsonNear(resolveVehicleType(vehicleType), latitude, longitude);
+    }
+
+    /**
+     * Add a location or move an existing one to another weather station.
+     *
+     * @param location location name
+     * @param stationName weather station name
+     * @return registered location name (upper case)
+     * @throws IllegalArgumentException if location or station name is empty
+     * @throws IllegalStateException if there are too many locations
+     */
+    public String addLocation(String location, String stationName) {
+
+        if (stationName == null || stationName.isBlank()) throw new IllegalArgumentException("Station name can not be empty.");
+
+        return deliveryManager.addLocation(location, stationName).name();
+    }
+
+    /**
+     * Remove a location with its regional base fees.
+     *
+     * @param location location name
+     * @return removed location name (upper case)
+     * @throws NoSuchElementException if there is no such location
+     */
+    public String removeLocation(String location) {
+        return deliveryManager.removeLocation(location).name();
+    }
+
+    /**
+     * Get extra fee rules in effect.
+     *
+     * @return declared rules
+     */
+    public FeeRulesDto getFeeRules() {
+        return deliveryManager.getFeeRules().getSource();
+    }
+
+    /**
+     * Replace extra fee rules, delivery fees are recalculated at once.
+     *
+     * @param feeRulesDto declared rules
+     * @return version of the compiled rules
+     * @throws IllegalArgumentException if rules are invalid
+     */
+    public long setFeeRules(FeeRulesDto feeRulesDto) {
+
+        if (feeRulesDto == null) throw new IllegalArgumentException("Fee rules can not be empty.");
+
+        FeeRules feeRules = FeeRules.compile(feeRulesDto);
+        deliveryManager.setFeeRules(feeRules);
+        return feeRules.getVersion();
+    }
+
+    /**
+     * Price a delivery in every combination of hypothetical air temperatures and wind speeds.
+     *
+     * Regional base fee in effect and the current extra fee rules are used.
+     *
+     * @param feeGridRequestDto location, vehicle type and hypothetical weather
+     * @return total delivery fees
+     * @throws IllegalArgumentException if location or vehicle type is unknown or the grid is too large
+     * @throws NoSuchElementException if there is no regional base fee for the location and vehicle type
+     */
+    public FeeGridDto evaluateFeeGrid(FeeGridRequestDto feeGridRequestDto) {
+
+        DeliveryManager.Location location = resolveLocation(feeGridRequestDto.getLocation());
+        DeliveryManager.Vehicle vehicleType = resolveVehicleType(feeGridRequestDto.getVehicle());
+
+        float[] airTemperatures = feeGridRequestDto.getAirTemperatures() == null
+                ? new float[]{Float.NaN} : feeGridRequestDto.getAirTemperatures();
+        float[] windSpeeds = feeGridRequestDto.getWindSpeeds() == null
+                ? new float[]{Float.NaN} : feeGridRequestDto.getWindSpeeds();
+
+        if ((long) airTemperatures.length * windSpeeds.length > MAX_FEE_GRID_SIZE)
+            throw new IllegalArgumentException("Fee grid can have at most " + MAX_FEE_GRID_SIZE + " values.");
+
+        RegionalBaseFeeTable regionalBaseFees = deliveryManager.getRegionalBaseFees();
+        if (!regionalBaseFees.contains(vehicleType, location))
+            throw new NoSuchElementException("Could not find regional base fee for location: " + location);
+
+        FeeRules feeRules = deliveryManager.getFeeRules();
+        int[] totalFeesInCents = new int[airTemperatures.length * windSpeeds.length];
+        feeRules.evaluateGrid(vehicleType, regionalBaseFees.getFeeInCents(vehicleType, location),
+                feeGridRequestDto.getWeatherPhenomenonCategory(), airTemperatures, windSpeeds, totalFeesInCents);
+
+        BigDecimal[][] totalDeliveryFees = new BigDecimal[airTemperatures.length][windSpeeds.length];
+        for (int i = 0; i < totalFeesInCents.length; i++) {
+            int feeInCents = totalFeesInCents[i];
+            totalDeliveryFees[i / windSpeeds.length][i % windSpeeds.length] =
+                    feeInCents == FeeRules.FORBIDDEN ? null : DeliveryFee.toEuros(feeInCents);
+        }
+
+        return FeeGridDto.builder()
+                .location(location.name())
+                .vehicleType(vehicleType.name())
+                .weatherPhenomenonCategory(feeGridRequestDto.getWeatherPhenomenonCategory())
+                .feeRules(feeRules.getSource().getName())
+                .airTemperatures(airTemperatures)
+                .windSpeeds(windSpeeds)
+                .totalDeliveryFees(totalDeliveryFees)
+                .build();
+    }
+
+    private DeliveryManager.Location resolveLocation(String location) {
+
+        DeliveryManager.Location locationEnum = deliveryManager.findLocation(location);
+        if (locationEnum == null) throw new IllegalArgumentException("No such location with name: " + location);
+
+        return locationEnum;
+    }
+
+    // Null if there is no such vehicle type, case-insensitive map does not take null keys.
+    private static DeliveryManager.Vehicle findVehicleType(String vehicleType) {
+        return vehicleType == null ? null : VEHICLE_TYPES.get(vehicleType);
+    }
+
+    private DeliveryManager.Vehicle resolveVehicleType(String vehicleType) {
+
+        DeliveryManager.Vehicle vehicleTypeEnum = findVehicleType(vehicleType);
+        if (vehicleTypeEnum == null) throw new IllegalArgumentException("No such vehicle type: " + vehicleType);
+
+        return vehicleTypeEnum;
+    }
+
+    /**
+     * Get delivery fee breakdowns for a batch of location and vehicle type pairs.
+     *
+     * Request is read and results are written one pair at a time, so memory use does not depend on the batch size.
+     * All pairs are resolved against the same weather snapshot.
+     *
+     * Input: JSON objects {"location": ..., "vehicle": ...}, either one per line (NDJSON) or in a JSON array.
+     * Output: one JSON object per line, in the order of input. It is the same breakdown as returned for a single
+     * pair or {"location": ..., "vehicle": ..., "error": ...} if the pair could not be resolved.
+     *
+     * @param inputStream request body
+     * @param outputStream response body
+     * @return number of processed pairs
+     */
+    public long writeDeliveryFees(InputStream inputStream, OutputStream outputStream) throws IOException {
+
+        DeliveryFeeMatrix deliveryFeeMatrix = deliveryManager.getDeliveryFeeMatrix();
+        long count = 0;
+
+        try (JsonParser parser = JSON_FACTORY.createParser(inputStream)) {
+
+            JsonToken token;
+            while ((token = parser.nextToken()) != null) {
+
+                if (token == JsonToken.START_ARRAY || token == JsonToken.END_ARRAY) continue;
+                if (token != JsonToken.START_OBJECT) throw new IllegalArgumentException("Expected JSON object at " + parser.getCurrentLocation());
+
+                String location = null;
+                String vehicleType = null;
+
+                while (parser.nextToken() == JsonToken.FIELD_NAME) {
+
+                    String fieldName = parser.getCurrentName();
+                    parser.nextToken();
+
+                    if ("location".equals(fieldName)) location = readScalar(parser);
+                    else if ("vehicle".equals(fieldName)) vehicleType = readScalar(parser);
+                    else parser.skipChildren();
+                }
+
+                writeDeliveryFee(deliveryFeeMatrix, location, vehicleType, outputStream);
+                count++;
+            }
+        } catch (JsonProcessingException e) {
+            // Part of the response may already be sent, report the problem as the last line.
+            writeMalformedRequest(e.getOriginalMessage(), outputStream);
+        } catch (IllegalArgumentException e) {
+            writeMalformedRequest(e.getMessage(), outputStream);
+        }
+
+        return count;
+    }
+
+    /**
+     * Read the current value as text, objects and arrays are skipped as a whole and read as null.
+     */
+    private static String readScalar(JsonParser parser) throws IOException {
+
+        if (parser.currentToken().isScalarValue()) return parser.getValueAsString();
+
+        parser.skipChildren();
+        return null;
+    }
+
+    private void writeDeliveryFee(DeliveryFeeMatrix deliveryFeeMatrix, String location, String vehicleType,
+                                  OutputStream outputStream) throws IOException {
+
+        DeliveryManager.Location locationEnum = deliveryManager.findLocation(location);
+        DeliveryManager.Vehicle vehicleTypeEnum = findVehicleType(vehicleType);
+
+        String error = null;
+        byte[] json = null;
+
+        if (locationEnum == null) error = "No such location with name: " + location;
+        else if (vehicleTypeEnum == null) error = "No such vehicle type: " + vehicleType;
+        else {
+            json = deliveryFeeMatrix.getJson(vehicleTypeEnum, locationEnum);
+            if (json == null) error = "Could not find data for location: " + locationEnum;
+        }
+
+        if (error != null) {
+            Map<String, String> errorResult = new LinkedHashMap<>();
+            errorResult.put("location", location);
+            errorResult.put("vehicle", vehicleType);
+            errorResult.put("error", error);
+            json = OBJECT_MAPPER.writeValueAsBytes(errorResult);
+        }
+
+        writeLine(json, outputStream);
+    }
+
+    private void writeMalformedRequest(String message, OutputStream outputStream) throws IOException {
+        writeLine(OBJECT_MAPPER.writeValueAsBytes(Map.of("error", "Malformed request: " + message)), outputStream);
+    }
+
+    private void writeLine(byte[] json, OutputStream outputStream) throws IOException {
+        outputStream.write(json);
+        outputStream.write('\n');
+    }
 }
@@ -0,0 +1,160 @@
+package dev.alpari.fujitsutrialtask.service;
+
+import dev.alpari.fujitsutrialtask.delivery.DeliveryFee;
+import dev.alpari.fujitsutrialtask.delivery.DeliveryManager;
+import dev.alpari.fujitsutrialtask.delivery.RegionalBaseFeeTable;
+import dev.alpari.fujitsutrialtask.model.RegionalBaseFee;
+import dev.alpari.fujitsutrialtask.repository.RegionalBaseFeeRepository;
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Keeps regional base fees (RBF) in the database and their copy in the delivery manager up to date.
+ *
+ * Fee lookups only read the in-memory table. Every change increases the version stamp in the database, the table
+ * is reloaded as a whole when the stamp differs from the loaded one: at once after a change on this node and
+ * periodically for changes made by other nodes. Fees of locations not registered in the delivery manager are not
+ * loaded, rows with an unknown vehicle type are logged and skipped.
+ */
+@RequiredArgsConstructor
+@Service
+public class RegionalBaseFeeService {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(RegionalBaseFeeService.class);
+
+    private final RegionalBaseFeeRepository repository;
+    private final DeliveryManager deliveryManager;
+    private final TransactionTemplate transactionTemplate;
+
+    // Version stamp of the table in the delivery manager, -1 until loaded.
+    @Getter
+    private volatile long loadedVersion = -1;
+
+    /**
+     * Store regional base fees of the delivery manager if the database has none, then load them.
+     */
+    public void initialize() {
+
+        RegionalBaseFeeTable regionalBaseFees = deliveryManager.getRegionalBaseFees();
+
+        transactionTemplate.executeWithoutResult(status -> {
+            if (repository.count() > 0) return;
+
+            List<RegionalBaseFee> rows = new ArrayList<>();
+            for (DeliveryManager.Location location : deliveryManager.getLocations()) {
+                for (DeliveryManager.Vehicle vehicleType : DeliveryManager.Vehicle.values()) {
+                    if (!regionalBaseFees.contains(vehicleType, location)) continue;
+
+                    rows.add(RegionalBaseFee.builder()
+                            .location(location.name())
+                            .vehicleType(vehicleType.name())
+                            .feeInCents(regionalBaseFees.getFeeInCents(vehicleType, location))
+                            .build());
+                }
+            }
+
+            repository.saveAll(rows);
+            // Versions of the table stay increasing across the switch to the database.
+            repository.raiseVersion(regionalBaseFees.getVersion());
+        });
+
+        refresh();
+    }
+
+    /**
+     * Store regional base fee of a location and vehicle type, delivery fees are recalculated at once.
+     *
+     * @param location location name
+     * @param vehicleType vehicle type
+     * @param fee RBF value (€)
+     * @throws IllegalArgumentException if location or vehicle type is unknown or fee is negative
+     */
+    public void setRegionalBaseFee(String location, String vehicleType, float fee) {
+
+        DeliveryManager.Location locationEnum = deliveryManager.getLocation(location);
+        DeliveryManager.Vehicle vehicleTypeEnum = resolveVehicleType(vehicleType);
+        int feeInCents = DeliveryFee.toCents(fee);
+
+        if (feeInCents < 0) throw new IllegalArgumentException("Regional base fee can not be negative.");
+
+        transactionTemplate.executeWithoutResult(status -> {
+
+            // Taken first, so concurrent changes of the same fee wait here instead of failing on the unique key.
+            repository.incrementVersion();
+
+            RegionalBaseFee regionalBaseFee = repository.findByLocationAndVehicleType(locationEnum.name(),
+                    vehicleTypeEnum.name()).orElseGet(() -> RegionalBaseFee.builder()
+                    .location(locationEnum.name())
+                    .vehicleType(vehicleTypeEnum.name())
+                    .build());
+            regionalBaseFee.setFeeInCents(feeInCents);
+            repository.save(regionalBaseFee);
+        });
+
+        reload();
+    }
+
+    /**
+     * Reload regional base fees if their version stamp has changed.
+     *
+     * @return true if fees were reloaded.
+     */
+    @Scheduled(initialDelayString = "${delivery.regional-base-fee.refresh-interval:PT10S}",
+            fixedDelayString = "${delivery.regional-base-fee.refresh-interval:PT10S}")
+    public synchronized boolean refresh() {
+
+        if (repository.findVersion() == loadedVersion) return false;
+
+        RegionalBaseFeeTable regionalBaseFees = transactionTemplate.execute(status -> {
+
+            // Read before the fees: fees may be newer than the stamp, never older, a newer change is loaded next time.
+            long version = repository.findVersion();
+            RegionalBaseFeeTable.Builder builder = new RegionalBaseFeeTable.Builder(version);
+
+            for (RegionalBaseFee regionalBaseFee : repository.findAll()) {
+                DeliveryManager.Location location = deliveryManager.findLocation(regionalBaseFee.getLocation());
+                if (location == null) continue;
+
+                // One bad row must not keep every other fee from loading on each refresh.
+                try {
+                    builder.fee(resolveVehicleType(regionalBaseFee.getVehicleType()), location,
+                            regionalBaseFee.getFeeInCents());
+                } catch (IllegalArgumentException e) {
+                    LOGGER.warn("Skipping regional base fee {}: {}", regionalBaseFee.getId(), e.getMessage());
+                }
+            }
+
+            return builder.build();
+        });
+
+        deliveryManager.setRegionalBaseFees(regionalBaseFees);
+        loadedVersion = regionalBaseFees.getVersion();
+        return true;
+    }
+
+    /**
+     * Reload regional base fees regardless of their version stamp, e.g. after a location is added.
+     */
+    public synchronized void reload() {
+        loadedVersion = -1;
+        refresh();
+    }
+
+    private static DeliveryManager.Vehicle resolveVehicleType(String vehicleType) {
+
+        try {
+            return DeliveryManager.Vehicle.valueOf(vehicleType.toUpperCase(Locale.ROOT));
+        } catch (IllegalArgumentException | NullPointerException e) {
+            throw new IllegalArgumentException("No such vehicle type: " + vehicleType);
+        }
+    }
+}
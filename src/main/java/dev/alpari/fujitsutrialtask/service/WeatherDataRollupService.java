@@ -0,0 +1,315 @@
+package dev.alpari.fujitsutrialtask.service;
+
+import dev.alpari.fujitsutrialtask.model.RollupGranularity;
+import dev.alpari.fujitsutrialtask.model.WeatherData;
+import dev.alpari.fujitsutrialtask.model.WeatherDataRollup;
+import dev.alpari.fujitsutrialtask.model.WeatherPhenomenonCategory;
+import dev.alpari.fujitsutrialtask.repository.WeatherDataRepository;
+import dev.alpari.fujitsutrialtask.repository.WeatherDataRollupRepository;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Rolls weather data older than the retention period up into hourly and daily aggregates.
+ *
+ * Compaction goes one UTC day at a time, oldest first. Weather data of the day is read in batches of bounded size,
+ * every batch is folded into the stored aggregates of the day and deleted in one transaction. An interrupted
+ * compaction just continues with the next batch, and weather data added later to an already compacted day is
+ * folded in by the next compaction.
+ *
+ * Minimums, maximums and averages are folded exactly. The most frequent weather phenomenon of a period split over
+ * batches is counted from the phenomenon stored for the earlier batches and the observations of the new batch.
+ *
+ * Scheduled compaction is off unless enabled: compacted weather data is no longer available as raw observations.
+ */
+@Service
+public class WeatherDataRollupService {
+
+    private static final int HOURS_IN_DAY = (int) (RollupGranularity.DAY.getSeconds() / RollupGranularity.HOUR.getSeconds());
+
+    private final WeatherDataRepository weatherDataRepository;
+    private final WeatherDataRollupRepository rollupRepository;
+    private final TransactionTemplate transactionTemplate;
+
+    private final boolean enabled;
+    private final Duration retention;
+    private final int deleteBatchSize;
+
+    public WeatherDataRollupService(WeatherDataRepository weatherDataRepository,
+                                    WeatherDataRollupRepository rollupRepository,
+                                    TransactionTemplate transactionTemplate,
+                                    @Value("${weather.compaction.enabled:false}") boolean enabled,
+                                    @Value("${weather.compaction.retention:P30D}") Duration retention,
+                                    @Value("${weather.compaction.delete-batch-size:1000}") int deleteBatchSize) {
+        this.weatherDataRepository = weatherDataRepository;
+        this.rollupRepository = rollupRepository;
+        this.transactionTemplate = transactionTemplate;
+
+        if (retention.isNegative()) throw new IllegalArgumentException("Compaction retention can not be negative.");
+        if (deleteBatchSize <= 0) throw new IllegalArgumentException("Compaction delete batch size must be positive.");
+
+        this.enabled = enabled;
+        this.retention = retention;
+        this.deleteBatchSize = deleteBatchSize;
+    }
+
+    /**
+     * Get aggregated weather data of the station, oldest first.
+     *
+     * @param stationName station name (upper case).
+     * @param granularity period length.
+     * @param from start of the time range (inclusive), periods starting at or after it are returned.
+     * @param to end of the time range (inclusive).
+     * @return aggregated weather data.
+     */
+    public List<WeatherDataRollup> getRollups(String stationName, RollupGranularity granularity, Instant from, Instant to) {
+        return rollupRepository.findByGranularityAndStationNameAndPeriodStartBetweenOrderByPeriodStart(granularity,
+                stationName, from.getEpochSecond(), to.getEpochSecond());
+    }
+
+    @Scheduled(initialDelayString = "${weather.compaction.interval:PT1H}",
+            fixedDelayString = "${weather.compaction.interval:PT1H}")
+    public void compact() {
+        if (enabled) compact(Instant.now());
+    }
+
+    /**
+     * Compact every whole UTC day older than the retention period.
+     *
+     * @param now current time.
+     * @return number of compacted days.
+     */
+    public int compact(Instant now) {
+
+        long cutoff = RollupGranularity.DAY.periodStart(now.minus(retention).getEpochSecond());
+        int days = 0;
+
+        Long oldestTimestamp;
+        while ((oldestTimestamp = weatherDataRepository.findOldestObservationTimestamp()) != null
+                && oldestTimestamp < cutoff) {
+
+            long dayStart = RollupGranularity.DAY.periodStart(oldestTimestamp);
+            long dayEnd = dayStart + RollupGranularity.DAY.getSeconds();
+
+            // Every batch is rolled up and deleted in its own transaction.
+            int rolledUp;
+            do {
+                rolledUp = transactionTemplate.execute(status -> rollUpBatch(dayStart, dayEnd));
+            } while (rolledUp == deleteBatchSize);
+
+            days++;
+        }
+
+        return days;
+    }
+
+    /**
+     * Fold a batch of weather data of the day into the aggregates of the day and delete the batch.
+     *
+     * @param dayStart start of the day (inclusive).
+     * @param dayEnd end of the day (exclusive).
+     * @return number of rolled up weather data.
+     */
+    private int rollUpBatch(long dayStart, long dayEnd) {
+
+        // Observations of a station are kept together, so its periods are rarely split over batches.
+        List<WeatherData> batch = weatherDataRepository
+                .findByObservationTimestampGreaterThanEqualAndObservationTimestampLessThan(dayStart, dayEnd,
+                        PageRequest.of(0, deleteBatchSize, Sort.by("stationName", "observationTimestamp")));
+        if (batch.isEmpty()) return 0;
+
+        Map<String, StationDay> stationDays = new LinkedHashMap<>();
+        for (WeatherData weatherData : batch) {
+
+            StationDay stationDay = stationDays.computeIfAbsent(weatherData.getStationName(), StationDay::new);
+            int hour = hourOfDay(weatherData.getObservationTimestamp(), dayStart);
+
+            stationDay.day.add(weatherData);
+            if (stationDay.hours[hour] == null) stationDay.hours[hour] = new Aggregate();
+            stationDay.hours[hour].add(weatherData);
+        }
+
+        // Aggregates stored by earlier batches, only periods with observations in this batch change.
+        for (WeatherDataRollup rollup : rollupRepository.findByGranularityAndPeriodStartBetween(RollupGranularity.DAY,
+                dayStart, dayStart)) {
+            StationDay stationDay = stationDays.get(rollup.getStationName());
+            if (stationDay != null) stationDay.day.add(rollup);
+        }
+        for (WeatherDataRollup rollup : rollupRepository.findByGranularityAndPeriodStartBetween(RollupGranularity.HOUR,
+                dayStart, dayEnd - 1)) {
+            StationDay stationDay = stationDays.get(rollup.getStationName());
+            if (stationDay == null) continue;
+            Aggregate hour = stationDay.hours[hourOfDay(rollup.getPeriodStart(), dayStart)];
+            if (hour != null) hour.add(rollup);
+        }
+
+        List<WeatherDataRollup> rollups = new ArrayList<>();
+        for (StationDay stationDay : stationDays.values()) {
+
+            rollups.add(stationDay.day.toRollup(stationDay.stationName, RollupGranularity.DAY, dayStart));
+
+            for (int hour = 0; hour < HOURS_IN_DAY; hour++) {
+                if (stationDay.hours[hour] == null) continue;
+                rollups.add(stationDay.hours[hour].toRollup(stationDay.stationName, RollupGranularity.HOUR,
+                        dayStart + hour * RollupGranularity.HOUR.getSeconds()));
+            }
+        }
+
+        rollupRepository.saveAll(rollups);
+        weatherDataRepository.deleteAllInBatch(batch);
+
+        return batch.size();
+    }
+
+    private static int hourOfDay(long timestamp, long dayStart) {
+        return (int) ((timestamp - dayStart) / RollupGranularity.HOUR.getSeconds());
+    }
+
+    /**
+     * Aggregates of one station and day.
+     */
+    private static class StationDay {
+
+        private final String stationName;
+        private final Aggregate day = new Aggregate();
+        private final Aggregate[] hours = new Aggregate[HOURS_IN_DAY];
+
+        StationDay(String stationName) {
+            this.stationName = stationName;
+        }
+    }
+
+    /**
+     * Aggregates of a single period, missing (NaN) readings are left out.
+     */
+    private static class Aggregate {
+
+        // Id of the stored aggregate folded in, 0 if none.
+        private int rollupId;
+
+        private String stationWmoCode;
+        private int observationCount;
+
+        private final Values airTemperature = new Values();
+        private final Values windSpeed = new Values();
+
+        private final Map<String, Integer> weatherPhenomenonCounts = new HashMap<>();
+        private final Map<String, WeatherPhenomenonCategory> weatherPhenomenonCategories = new HashMap<>();
+
+        void add(WeatherData weatherData) {
+
+            if (weatherData.getStationWmoCode() != null) stationWmoCode = weatherData.getStationWmoCode();
+            observationCount++;
+
+            airTemperature.add(weatherData.getAirTemperature());
+            windSpeed.add(weatherData.getWindSpeed());
+
+            String weatherPhenomenon = weatherData.getWeatherPhenomenon() == null ? "" : weatherData.getWeatherPhenomenon();
+            weatherPhenomenonCounts.merge(weatherPhenomenon, 1, Integer::sum);
+            weatherPhenomenonCategories.putIfAbsent(weatherPhenomenon, weatherData.getWeatherPhenomenonCategory());
+        }
+
+        void add(WeatherDataRollup rollup) {
+
+            rollupId = rollup.getId();
+            if (stationWmoCode == null) stationWmoCode = rollup.getStationWmoCode();
+            observationCount += rollup.getObservationCount();
+
+            airTemperature.add(rollup.getAirTemperatureCount(), rollup.getMinAirTemperature(),
+                    rollup.getMaxAirTemperature(), rollup.getAvgAirTemperature());
+            windSpeed.add(rollup.getWindSpeedCount(), rollup.getMinWindSpeed(), rollup.getMaxWindSpeed(),
+                    rollup.getAvgWindSpeed());
+
+            if (rollup.getWeatherPhenomenon() == null) return;
+            weatherPhenomenonCounts.merge(rollup.getWeatherPhenomenon(), rollup.getWeatherPhenomenonCount(), Integer::sum);
+            weatherPhenomenonCategories.putIfAbsent(rollup.getWeatherPhenomenon(), rollup.getWeatherPhenomenonCategory());
+        }
+
+        WeatherDataRollup toRollup(String stationName, RollupGranularity granularity, long periodStart) {
+
+            String dominantWeatherPhenomenon = null;
+            int dominantCount = 0;
+            for (Map.Entry<String, Integer> entry : weatherPhenomenonCounts.entrySet()) {
+                if (entry.getValue() > dominantCount) {
+                    dominantWeatherPhenomenon = entry.getKey();
+                    dominantCount = entry.getValue();
+                }
+            }
+
+            return WeatherDataRollup.builder()
+                    .id(rollupId)
+                    .granularity(granularity)
+                    .stationName(stationName)
+                    .stationWmoCode(stationWmoCode)
+                    .periodStart(periodStart)
+                    .observationCount(observationCount)
+                    .minAirTemperature(airTemperature.min())
+                    .maxAirTemperature(airTemperature.max())
+                    .avgAirTemperature(airTemperature.avg())
+                    .airTemperatureCount(airTemperature.count)
+                    .minWindSpeed(windSpeed.min())
+                    .maxWindSpeed(windSpeed.max())
+                    .avgWindSpeed(windSpeed.avg())
+                    .windSpeedCount(windSpeed.count)
+                    .weatherPhenomenon(dominantWeatherPhenomenon)
+                    .weatherPhenomenonCategory(weatherPhenomenonCategories.get(dominantWeatherPhenomenon))
+                    .weatherPhenomenonCount(dominantCount)
+                    .build();
+        }
+    }
+
+    /**
+     * Min, max and sum of one reading.
+     */
+    private static class Values {
+
+        private int count;
+        private float min = Float.POSITIVE_INFINITY;
+        private float max = Float.NEGATIVE_INFINITY;
+        private double sum;
+
+        void add(float value) {
+
+            if (Float.isNaN(value)) return;
+
+            count++;
+            min = Math.min(min, value);
+            max = Math.max(max, value);
+            sum += value;
+        }
+
+        void add(int count, Float min, Float max, Float avg) {
+
+            if (count == 0) return;
+
+            this.count += count;
+            this.min = Math.min(this.min, min);
+            this.max = Math.max(this.max, max);
+            sum += (double) avg * count;
+        }
+
+        Float min() {
+            return count == 0 ? null : min;
+        }
+
+        Float max() {
+            return count == 0 ? null : max;
+        }
+
+        Float avg() {
+            return count == 0 ? null : (float) (sum / count);
+        }
+    }
+}
@@ -1,29 +1,310 @@
 package dev.alpari.fujitsutrialtask.service;
 
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
 import dev.alpari.fujitsutrialtask.dto.WeatherDataDto;
+import dev.alpari.fujitsutrialtask.dto.WeatherDataPageDto;
 import dev.alpari.fujitsutrialtask.mapper.WeatherDataMapper;
 import dev.alpari.fujitsutrialtask.model.WeatherData;
 import dev.alpari.fujitsutrialtask.repository.WeatherDataRepository;
+import jakarta.persistence.EntityManager;
 import lombok.RequiredArgsConstructor;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
 
 @RequiredArgsConstructor
 @Service
 public class WeatherDataService {
 
+    private static final int MAX_PAGE_SIZE = 1000;
+    private static final String CURSOR_SEPARATOR = "_";
+
+    // Output is flushed by the generator when its buffer fills up, not after every row.
+    private static final ObjectWriter JSON_WRITER = new ObjectMapper().writer()
+            .without(SerializationFeature.FLUSH_AFTER_WRITE_VALUE);
+
     private final WeatherDataRepository repository;
     private final WeatherDataMapper weatherDataMapper;
+    private final EntityManager entityManager;
+
+    // Timestamp of the latest stored observation by station name, filled on first use of a station.
+    private final Map<String, Long> latestStoredTimestamps = new ConcurrentHashMap<>();
+
+    /**
+     * Get a page of stored weather data, ordered by observation timestamp and id.
+     *
+     * Pages are located by the key of the last row of the previous page, so every page costs the same
+     * regardless of how far into the table it is.
+     *
+     * @param stationName station name (upper case) or null for all stations.
+     * @param from start of the time range (inclusive) or null.
+     * @param to end of the time range (inclusive) or null.
+     * @param cursor next cursor of the previous page or null for the first page.
+     * @param limit maximum number of rows in the page.
+     * @return page of weather data.
+     * @throws IllegalArgumentException if cursor or limit is invalid.
+     */
+    @Transactional(readOnly = true)
+    public WeatherDataPageDto getPage(String stationName, Instant from, Instant to, String cursor, int limit) {
+
+        if (limit < 1 || limit > MAX_PAGE_SIZE)
+            throw new IllegalArgumentException("Limit must be between 1 and " + MAX_PAGE_SIZE + ".");
+
+        long fromTimestamp = from == null ? Long.MIN_VALUE : from.getEpochSecond();
+        long afterTimestamp = fromTimestamp;
+        int afterId = Integer.MIN_VALUE;
 
-    public Iterable<WeatherData> getAll() {
-        return repository.findAll();
+        if (cursor != null) {
+            int separator = cursor.indexOf(CURSOR_SEPARATOR);
+            try {
+                afterTimestamp = Long.parseLong(cursor.substring(0, separator));
+                afterId = Integer.parseInt(cursor.substring(separator + 1));
+            } catch (IndexOutOfBoundsException | NumberFormatException e) {
+                throw new IllegalArgumentException("Invalid cursor: " + cursor);
+            }
+        }
+
+        long toTimestamp = to == null ? Long.MAX_VALUE : to.getEpochSecond();
+        Pageable pageable = PageRequest.of(0, limit);
+
+        List<WeatherDataDto> weatherData = stationName == null
+                ? repository.findAfter(afterTimestamp, afterId, fromTimestamp, toTimestamp, pageable)
+                : repository.findByStationNameAfter(stationName, afterTimestamp, afterId, fromTimestamp, toTimestamp,
+                pageable);
+
+        String nextCursor = null;
+        if (weatherData.size() == limit) {
+            WeatherDataDto last = weatherData.get(weatherData.size() - 1);
+            nextCursor = last.getObservationTimestamp() + CURSOR_SEPARATOR + last.getId();
+        }
+
+        return new WeatherDataPageDto(weatherData, nextCursor);
     }
 
+    /**
+     * Write stored weather data as a JSON array of WeatherDataDto, ordered by observation timestamp and id.
+     *
+     * Rows are read through a database cursor and written as they are read, memory use does not depend
+     * on the number of rows.
+     *
+     * @param stationName station name (upper case) or null for all stations.
+     * @param from start of the time range (inclusive) or null.
+     * @param to end of the time range (inclusive) or null.
+     * @param outputStream stream to write to.
+     * @return number of written rows.
+     */
+    @Transactional(readOnly = true)
+    public long writeAll(String stationName, Instant from, Instant to, OutputStream outputStream) throws IOException {
+
+        long fromTimestamp = from == null ? Long.MIN_VALUE : from.getEpochSecond();
+        long toTimestamp = to == null ? Long.MAX_VALUE : to.getEpochSecond();
+        long count = 0;
+
+        try (Stream<WeatherDataDto> weatherData = stationName == null
+                ? repository.streamAfter(fromTimestamp, Integer.MIN_VALUE, fromTimestamp, toTimestamp)
+                : repository.streamByStationNameAfter(stationName, fromTimestamp, Integer.MIN_VALUE, fromTimestamp,
+                toTimestamp);
+             JsonGenerator generator = JSON_WRITER.getFactory().createGenerator(outputStream)) {
+
+            generator.writeStartArray();
+
+            Iterator<WeatherDataDto> iterator = weatherData.iterator();
+            while (iterator.hasNext()) {
+                JSON_WRITER.writeValue(generator, iterator.next());
+                count++;
+            }
+
+            generator.writeEndArray();
+        }
+
+        return count;
+    }
+
+    /**
+     * Get the latest stored weather data of the station.
+     *
+     * @param stationName station name (upper case).
+     * @return WeatherData object.
+     * @throws java.util.NoSuchElementException if there is no data for the station.
+     */
     public WeatherData getByStationName(String stationName) {
-        return repository.findWeatherDataByStationName(stationName).orElseThrow();
+        return repository.findFirstByStationNameOrderByObservationTimestampDesc(stationName).orElseThrow();
+    }
+
+    /**
+     * Get the latest stored weather data of every station.
+     */
+    public List<WeatherDataDto> getLatestOfEveryStation() {
+        return repository.findLatestOfEveryStation().stream().map(weatherDataMapper::entityToDto).toList();
     }
 
-    public void add(WeatherDataDto weatherDataDto) {
+    /**
+     * Get stored weather data of the station observed in specified time range, oldest first.
+     *
+     * @param stationName station name (upper case).
+     * @param from start of the range (inclusive).
+     * @param to end of the range (inclusive).
+     * @return weather data.
+     */
+    public List<WeatherDataDto> getByStationNameBetween(String stationName, Instant from, Instant to) {
+        return repository.findByStationNameAndObservationTimestampBetweenOrderByObservationTimestamp(stationName,
+                from.getEpochSecond(), to.getEpochSecond()).stream().map(weatherDataMapper::entityToDto).toList();
+    }
+
+    /**
+     * Store weather data unless the station already has an observation with the same timestamp.
+     *
+     * @param weatherDataDto weather data.
+     * @return true if weather data was stored.
+     * @throws IllegalArgumentException if station name is missing.
+     */
+    public boolean add(WeatherDataDto weatherDataDto) {
+
         WeatherData weatherData = weatherDataMapper.dtoToEntity(weatherDataDto);
-        repository.save(weatherData);
+        if (isStored(weatherData)) return false;
+
+        try {
+            repository.save(weatherData);
+        } catch (DataIntegrityViolationException e) {
+            // Stored concurrently.
+            return false;
+        }
+
+        markStored(List.of(weatherData));
+        return true;
+    }
+
+    /**
+     * Store weather data of all stations in a single transaction, rows are inserted in JDBC batches.
+     *
+     * Observations already stored are skipped, so storing the same observations document again writes nothing.
+     *
+     * @param weatherData weather data read from one observations document.
+     * @return number of stored rows.
+     */
+    @Transactional
+    public int addAll(List<WeatherData> weatherData) {
+
+        List<WeatherData> newWeatherData = new ArrayList<>(weatherData.size());
+        for (WeatherData stationWeatherData : weatherData) {
+            if (!isStored(stationWeatherData)) newWeatherData.add(stationWeatherData);
+        }
+
+        if (newWeatherData.isEmpty()) return 0;
+
+        repository.saveAll(newWeatherData);
+        markStored(newWeatherData);
+        return newWeatherData.size();
+    }
+
+    /**
+     * Check if the station already has an observation with the same timestamp.
+     *
+     * Observations are mostly newer than the latest stored one of their station, which is kept in memory,
+     * so only older observations have to be looked up in the database.
+     */
+    private boolean isStored(WeatherData weatherData) {
+
+        String stationName = weatherData.getStationName();
+        if (stationName == null) throw new IllegalArgumentException("Station name is required.");
+
+        Long latestTimestamp = latestStoredTimestamps.get(stationName);
+        if (latestTimestamp == null) {
+            latestTimestamp = repository.findFirstByStationNameOrderByObservationTimestampDesc(stationName)
+                    .map(WeatherData::getObservationTimestamp)
+                    .orElse(Long.MIN_VALUE);
+            latestStoredTimestamps.merge(stationName, latestTimestamp, Math::max);
+        }
+
+        long observationTimestamp = weatherData.getObservationTimestamp();
+
+        if (observationTimestamp > latestTimestamp) return false;
+        if (observationTimestamp == latestTimestamp) return true;
+
+        return repository.existsByStationNameAndObservationTimestamp(stationName, observationTimestamp);
+    }
+
+    /**
+     * Remember stored observations, forget them again if the transaction they are stored in does not commit.
+     */
+    private void markStored(List<WeatherData> weatherData) {
+
+        for (WeatherData stationWeatherData : weatherData) {
+            latestStoredTimestamps.merge(stationWeatherData.getStationName(), stationWeatherData.getObservationTimestamp(),
+                    Math::max);
+        }
+
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) return;
+
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCompletion(int status) {
+                if (status == STATUS_COMMITTED) return;
+
+                // Read again from the database when needed.
+                for (WeatherData stationWeatherData : weatherData) {
+                    latestStoredTimestamps.remove(stationWeatherData.getStationName());
+                }
+            }
+        });
+    }
+
+    /**
+     * Pass every stored row to the action, rows are read in chunks and not kept in memory.
+     *
+     * @param action action to perform on every row.
+     */
+    @Transactional(readOnly = true)
+    public void forEach(Consumer<WeatherData> action) {
+        forEach(repository.streamAllBy(), action);
+    }
+
+    /**
+     * Pass stored rows needed to find weather data at or after specified time to the action: rows observed at or
+     * after it and the latest earlier row of every station. Rows are read in chunks and not kept in memory.
+     *
+     * @param epochSecond time (seconds since epoch).
+     * @param action action to perform on every row.
+     */
+    @Transactional(readOnly = true)
+    public void forEachNeededFrom(long epochSecond, Consumer<WeatherData> action) {
+        forEach(repository.streamNeededFrom(epochSecond), action);
+    }
+
+    /**
+     * Get observation time of the latest stored weather data.
+     *
+     * @return seconds since epoch, null if nothing is stored.
+     */
+    public Long getLatestObservationTimestamp() {
+        return repository.findLatestObservationTimestamp();
+    }
+
+    private void forEach(Stream<WeatherData> weatherData, Consumer<WeatherData> action) {
+
+        try (weatherData) {
+            weatherData.forEach(row -> {
+                action.accept(row);
+                entityManager.detach(row);
+            });
+        }
     }
 }
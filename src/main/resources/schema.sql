@@ -1,11 +1,83 @@
 DROP TABLE IF EXISTS WEATHER_DATA;
+DROP SEQUENCE IF EXISTS WEATHER_DATA_SEQ;
+DROP TABLE IF EXISTS WEATHER_DATA_ROLLUP;
+DROP SEQUENCE IF EXISTS WEATHER_DATA_ROLLUP_SEQ;
+
+-- Ids are allocated by Hibernate in blocks of 50 (pooled optimizer), increment must match allocationSize.
+CREATE SEQUENCE WEATHER_DATA_SEQ START WITH 1 INCREMENT BY 50;
+CREATE SEQUENCE WEATHER_DATA_ROLLUP_SEQ START WITH 1 INCREMENT BY 50;
 
 CREATE TABLE WEATHER_DATA (
-  id INT AUTO_INCREMENT,
-  station_name VARCHAR(255),
+  id INT NOT NULL,
+  station_name VARCHAR(255) NOT NULL,
   station_wmo_code VARCHAR(255),
   air_temperature FLOAT,
   wind_speed FLOAT,
   weather_phenomenon VARCHAR(255),
-  observation_timestamp VARCHAR(255) NOT NULL
+  latitude DOUBLE PRECISION,
+  longitude DOUBLE PRECISION,
+  weather_phenomenon_category VARCHAR(16),
+  -- Seconds since epoch.
+  observation_timestamp BIGINT NOT NULL,
+  CONSTRAINT WEATHER_DATA_PK PRIMARY KEY (id),
+  -- One row per observation of a station. Its index also serves latest weather data and time ranges of a station.
+  CONSTRAINT WEATHER_DATA_STATION_TIME_UK UNIQUE (station_name, observation_timestamp)
+);
+
+-- Pages of all stations in (observation_timestamp, id) order.
+CREATE INDEX WEATHER_DATA_TIME_IDX ON WEATHER_DATA (observation_timestamp, id);
+
+-- Hourly and daily aggregates of weather data older than the retention period, periods start at UTC hours and days.
+CREATE TABLE WEATHER_DATA_ROLLUP (
+  id INT NOT NULL,
+  granularity VARCHAR(8) NOT NULL,
+  station_name VARCHAR(255) NOT NULL,
+  station_wmo_code VARCHAR(255),
+  -- Seconds since epoch.
+  period_start BIGINT NOT NULL,
+  observation_count INT NOT NULL,
+  min_air_temperature FLOAT,
+  max_air_temperature FLOAT,
+  avg_air_temperature FLOAT,
+  -- Number of observations with the reading.
+  air_temperature_count INT NOT NULL,
+  min_wind_speed FLOAT,
+  max_wind_speed FLOAT,
+  avg_wind_speed FLOAT,
+  wind_speed_count INT NOT NULL,
+  weather_phenomenon VARCHAR(255),
+  weather_phenomenon_category VARCHAR(16),
+  -- Number of observations with the weather phenomenon.
+  weather_phenomenon_count INT NOT NULL,
+  CONSTRAINT WEATHER_DATA_ROLLUP_PK PRIMARY KEY (id),
+  CONSTRAINT WEATHER_DATA_ROLLUP_STATION_PERIOD_UK UNIQUE (granularity, station_name, period_start)
+);
+
+-- Rollups of a day.
+CREATE INDEX WEATHER_DATA_ROLLUP_PERIOD_IDX ON WEATHER_DATA_ROLLUP (granularity, period_start);
+
+DROP TABLE IF EXISTS REGIONAL_BASE_FEE;
+DROP SEQUENCE IF EXISTS REGIONAL_BASE_FEE_SEQ;
+DROP TABLE IF EXISTS REGIONAL_BASE_FEE_VERSION;
+
+CREATE SEQUENCE REGIONAL_BASE_FEE_SEQ START WITH 1 INCREMENT BY 50;
+
+-- Regional base fees (RBF), served from memory and reloaded when REGIONAL_BASE_FEE_VERSION changes.
+CREATE TABLE REGIONAL_BASE_FEE (
+  id INT NOT NULL,
+  -- Location name (upper case).
+  location VARCHAR(255) NOT NULL,
+  vehicle_type VARCHAR(16) NOT NULL,
+  fee_in_cents INT NOT NULL,
+  CONSTRAINT REGIONAL_BASE_FEE_PK PRIMARY KEY (id),
+  CONSTRAINT REGIONAL_BASE_FEE_LOCATION_VEHICLE_UK UNIQUE (location, vehicle_type),
+  CONSTRAINT REGIONAL_BASE_FEE_NOT_NEGATIVE CHECK (fee_in_cents >= 0)
 );
+
+-- Single row, increased in the transaction of every change of regional base fees. Updating it also serializes
+-- concurrent changes, so a reader seeing a version sees every change up to it.
+CREATE TABLE REGIONAL_BASE_FEE_VERSION (
+  version BIGINT NOT NULL
+);
+
+INSERT INTO REGIONAL_BASE_FEE_VERSION (version) VALUES (0);
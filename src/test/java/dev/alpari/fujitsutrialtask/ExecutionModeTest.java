@@ -0,0 +1,42 @@
+package dev.alpari.fujitsutrialtask;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class ExecutionModeTest {
+
+    @Test
+    public void testPlatformThreadFactory() {
+
+        Thread thread = ExecutionMode.PLATFORM.threadFactory("worker-").newThread(() -> { });
+
+        assertEquals("worker-0", thread.getName());
+        assertTrue(thread.isDaemon());
+    }
+
+    @Test
+    public void testVirtualModeIsSupportedFromJava21() throws Exception {
+
+        boolean supported = Runtime.version().feature() >= 21;
+        assertEquals(supported, ExecutionMode.VIRTUAL.isSupported());
+
+        if (!supported) {
+            assertThrows(IllegalStateException.class, ExecutionMode.VIRTUAL::requireSupported);
+            return;
+        }
+
+        ExecutorService executorService = ExecutionMode.VIRTUAL.newThreadPerTaskExecutor("virtual-");
+        try {
+            Thread thread = executorService.submit(Thread::currentThread).get(5, TimeUnit.SECONDS);
+            assertEquals("virtual-0", thread.getName());
+        } finally {
+            executorService.shutdown();
+        }
+    }
+}
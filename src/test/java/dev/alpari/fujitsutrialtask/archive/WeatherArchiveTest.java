@@ -0,0 +1,126 @@
+package dev.alpari.fujitsutrialtask.archive;
+
+import dev.alpari.fujitsutrialtask.model.WeatherData;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class WeatherArchiveTest {
+
+    private static final long START = 1679169028L;
+
+    private WeatherData weatherData(String stationName, long observationTimestamp, float airTemperature, float windSpeed) {
+        return WeatherData.builder()
+                .stationName(stationName)
+                .airTemperature(airTemperature)
+                .windSpeed(windSpeed)
+                .observationTimestamp(observationTimestamp)
+                .build();
+    }
+
+    @Test
+    public void testEncodedSeriesIsDecodedExactly() {
+
+        Random random = new Random(42);
+        long[] timestamps = new long[1000];
+        float[] values = new float[1000];
+
+        long timestamp = START;
+        for (int i = 0; i < timestamps.length; i++) {
+            // Regular intervals with jitter and occasional long gaps, values with missing readings.
+            timestamp += i % 100 == 99 ? 86400 * 40 : 3600 + random.nextInt(600) - 300;
+            timestamps[i] = timestamp;
+            values[i] = i % 50 == 0 ? Float.NaN : Math.round(random.nextGaussian() * 100) / 10f;
+        }
+
+        TimeSeriesEncoder encoder = new TimeSeriesEncoder();
+        for (int i = 0; i < timestamps.length; i++) encoder.append(timestamps[i], values[i]);
+
+        TimeSeries timeSeries = new TimeSeries();
+        Segment.of(encoder).scan(Long.MIN_VALUE, Long.MAX_VALUE, timeSeries);
+
+        assertArrayEquals(timestamps, timeSeries.getObservationTimestamps());
+        assertArrayEquals(values, timeSeries.getValues());
+    }
+
+    @Test
+    public void testArchiveIsReadAfterReopening(@TempDir Path directory) throws IOException {
+
+        WeatherArchive weatherArchive = new WeatherArchive(directory, 1000);
+
+        int hours = 24 * 365;
+        for (int hour = 0; hour < hours; hour++) {
+            float airTemperature = Math.round(50 * Math.sin(hour * Math.PI / 12) + 100 * Math.sin(hour * Math.PI / 4380)) / 10f;
+            weatherArchive.append(List.of(
+                    weatherData("TARTU-TÕRAVERE", START + hour * 3600L, airTemperature, 4.2f),
+                    weatherData("PÄRNU", START + hour * 3600L, airTemperature + 1, Float.NaN)));
+        }
+        weatherArchive.flush();
+
+        // Timestamps of slowly changing readings compress to a few bits, raw points take 12 bytes per field.
+        assertTrue(weatherArchive.getSizeInBytes() < hours * 2 * 2 * 4L);
+
+        WeatherArchive reopened = new WeatherArchive(directory, 1000);
+
+        TimeSeries airTemperatures = reopened.read("TARTU-TÕRAVERE", WeatherArchive.Field.AIR_TEMPERATURE,
+                START + 999 * 3600L, START + 1001 * 3600L);
+        assertArrayEquals(new long[]{START + 999 * 3600L, START + 1000 * 3600L, START + 1001 * 3600L},
+                airTemperatures.getObservationTimestamps());
+
+        TimeSeries windSpeeds = reopened.read("PÄRNU", WeatherArchive.Field.WIND_SPEED, Long.MIN_VALUE, Long.MAX_VALUE);
+        assertEquals(hours, windSpeeds.size());
+        assertTrue(Float.isNaN(windSpeeds.getValues()[hours - 1]));
+    }
+
+    @Test
+    public void testUnsealedPointsAreReplayedAfterCrash(@TempDir Path directory) throws IOException {
+
+        WeatherArchive weatherArchive = new WeatherArchive(directory, 3);
+        for (int hour = 0; hour < 5; hour++) {
+            weatherArchive.append(List.of(weatherData("PÄRNU", START + hour * 3600L, hour, hour)));
+        }
+
+        // Partially written point of a crashed append.
+        Path headFile = directory.resolve("P%C3%84RNU").resolve("air_temperature").resolve(SeriesArchive.HEAD_FILE_NAME);
+        Files.write(headFile, new byte[]{1, 2, 3}, StandardOpenOption.APPEND);
+
+        // Reopened without flush(): one sealed segment and two points in the head file.
+        WeatherArchive reopened = new WeatherArchive(directory, 3);
+        TimeSeries timeSeries = reopened.read("PÄRNU", WeatherArchive.Field.AIR_TEMPERATURE,
+                Long.MIN_VALUE, Long.MAX_VALUE);
+        assertArrayEquals(new float[]{0f, 1f, 2f, 3f, 4f}, timeSeries.getValues());
+
+        reopened.append(List.of(weatherData("PÄRNU", START + 5 * 3600L, 5f, 5f)));
+        assertEquals(6, new WeatherArchive(directory, 3).read("PÄRNU", WeatherArchive.Field.AIR_TEMPERATURE,
+                Long.MIN_VALUE, Long.MAX_VALUE).size());
+    }
+
+    @Test
+    public void testAppendIgnoresObservationsNotNewerThanArchived(@TempDir Path directory) throws IOException {
+
+        WeatherArchive weatherArchive = new WeatherArchive(directory);
+
+        List<WeatherData> weatherData = new ArrayList<>();
+        weatherData.add(weatherData("PÄRNU", START, 5.1f, 5.9f));
+        weatherArchive.append(weatherData);
+        weatherArchive.append(weatherData);
+        weatherArchive.append(List.of(weatherData("PÄRNU", START - 3600, 4f, 4f)));
+
+        // Unsealed points are read from memory.
+        TimeSeries timeSeries = weatherArchive.read("PÄRNU", WeatherArchive.Field.AIR_TEMPERATURE,
+                Long.MIN_VALUE, Long.MAX_VALUE);
+        assertArrayEquals(new long[]{START}, timeSeries.getObservationTimestamps());
+        assertArrayEquals(new float[]{5.1f}, timeSeries.getValues());
+    }
+}
@@ -0,0 +1,116 @@
+package dev.alpari.fujitsutrialtask.controller;
+
+import dev.alpari.fujitsutrialtask.delivery.DeliveryManager;
+import dev.alpari.fujitsutrialtask.model.WeatherData;
+import dev.alpari.fujitsutrialtask.repository.WeatherDataRepository;
+import dev.alpari.fujitsutrialtask.service.WeatherDataRollupService;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.HttpHeaders;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.Duration;
+import java.time.Instant;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@SpringBootTest
+@AutoConfigureMockMvc
+public class DeliveryDataControllerTest {
+
+    private final String WEATHER_DATA_XML = "src/main/java/dev/alpari/fujitsutrialtask/database/weather-data.xml";
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private DeliveryManager deliveryManager;
+
+    @Autowired
+    private WeatherDataRepository weatherDataRepository;
+
+    @Autowired
+    private WeatherDataRollupService weatherDataRollupService;
+
+    @Test
+    public void testConditionalFeeRequestIsAnsweredWithoutLookup() throws Exception {
+
+        deliveryManager.getWeatherDataManager().readXmlFromFile(WEATHER_DATA_XML, false);
+
+        String entityTag = mockMvc.perform(get("/api/delivery/fee").param("location", "Tallinn").param("vehicle", "car"))
+                .andExpect(status().isOk())
+                .andExpect(header().exists(HttpHeaders.CACHE_CONTROL))
+                .andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+        assertEquals(deliveryManager.getDeliveryFeeMatrix().getEntityTag(), entityTag);
+
+        long lookups = countCarLookupsInTallinn();
+
+        mockMvc.perform(get("/api/delivery/fee").param("location", "Tallinn").param("vehicle", "car")
+                        .header(HttpHeaders.IF_NONE_MATCH, entityTag))
+                .andExpect(status().isNotModified())
+                .andExpect(header().string(HttpHeaders.ETAG, entityTag))
+                .andExpect(content().bytes(new byte[0]));
+        assertEquals(lookups, countCarLookupsInTallinn());
+
+        // Another tag: fee is looked up and sent.
+        mockMvc.perform(get("/api/delivery/fee").param("location", "Tallinn").param("vehicle", "car")
+                        .header(HttpHeaders.IF_NONE_MATCH, "W/\"0-0\""))
+                .andExpect(status().isOk());
+        assertTrue(countCarLookupsInTallinn() > lookups);
+    }
+
+    @Test
+    public void testFailedFeeRequestIsNotCacheable() throws Exception {
+
+        mockMvc.perform(get("/api/delivery/fee").param("location", "Riga").param("vehicle", "car"))
+                .andExpect(status().isBadRequest())
+                .andExpect(header().doesNotExist(HttpHeaders.ETAG))
+                .andExpect(header().doesNotExist(HttpHeaders.CACHE_CONTROL));
+
+        mockMvc.perform(get("/api/delivery/fee/nearest").param("latitude", "91").param("longitude", "0")
+                        .param("vehicle", "car"))
+                .andExpect(status().isBadRequest())
+                .andExpect(header().doesNotExist(HttpHeaders.ETAG))
+                .andExpect(header().doesNotExist(HttpHeaders.CACHE_CONTROL));
+    }
+
+    @Test
+    @Transactional
+    public void testRollupsAreReturnedWithoutInternalFields() throws Exception {
+
+        // 2023-03-18T00:00:00Z
+        long dayStart = 1679097600L;
+        weatherDataRepository.save(WeatherData.builder().stationName("PÄRNU").airTemperature(-2f).windSpeed(3f)
+                .weatherPhenomenon("").observationTimestamp(dayStart).build());
+        weatherDataRollupService.compact(Instant.ofEpochSecond(dayStart).plus(Duration.ofDays(31)));
+
+        mockMvc.perform(get("/api/weatherdata/rollups").param("station", "Pärnu").param("granularity", "DAY")
+                        .param("from", "2023-03-18T00:00:00Z").param("to", "2023-03-18T00:00:00Z"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[0].stationName").value("PÄRNU"))
+                .andExpect(jsonPath("$[0].periodStart").value(dayStart))
+                .andExpect(jsonPath("$[0].observationCount").value(1))
+                .andExpect(jsonPath("$[0].minAirTemperature").value(-2.0))
+                .andExpect(jsonPath("$[0].id").doesNotExist())
+                .andExpect(jsonPath("$[0].airTemperatureCount").doesNotExist())
+                .andExpect(jsonPath("$[0].weatherPhenomenonCount").doesNotExist());
+    }
+
+    private long countCarLookupsInTallinn() {
+
+        MeterRegistry meterRegistry = deliveryManager.getWeatherDataManager().getMeterRegistry();
+        return meterRegistry.find("delivery.fee").tags("vehicle", "CAR", "location", "TALLINN").timers().stream()
+                .mapToLong(Timer::count).sum();
+    }
+}
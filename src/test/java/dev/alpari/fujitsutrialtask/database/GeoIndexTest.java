@@ -0,0 +1,82 @@
+package dev.alpari.fujitsutrialtask.database;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+public class GeoIndexTest {
+
+    @Test
+    public void testFindNearestMatchesLinearSearch() {
+
+        Random random = new Random(42);
+        int size = 500;
+
+        String[] names = new String[size];
+        double[] latitudes = new double[size];
+        double[] longitudes = new double[size];
+
+        // Roughly the area of Estonia.
+        for (int i = 0; i < size; i++) {
+            names[i] = "STATION-" + i;
+            latitudes[i] = 57.5 + random.nextDouble() * 2.2;
+            longitudes[i] = 21.7 + random.nextDouble() * 6.5;
+        }
+
+        GeoIndex geoIndex = GeoIndex.of(names, latitudes, longitudes);
+        assertEquals(size, geoIndex.size());
+
+        for (int query = 0; query < 2000; query++) {
+
+            double latitude = 57 + random.nextDouble() * 3;
+            double longitude = 21 + random.nextDouble() * 8;
+
+            int nearest = 0;
+            for (int i = 1; i < size; i++) {
+                if (distance(latitude, longitude, latitudes[i], longitudes[i])
+                        < distance(latitude, longitude, latitudes[nearest], longitudes[nearest])) nearest = i;
+            }
+
+            assertEquals(names[nearest], geoIndex.findNearest(latitude, longitude));
+        }
+    }
+
+    @Test
+    public void testFindNearestInEmptyIndex() {
+        assertNull(GeoIndex.of(new String[0], new double[0], new double[0]).findNearest(59.4, 24.7));
+    }
+
+    @Test
+    public void testStationIndexOfWeatherSnapshot() {
+
+        WeatherDataManager weatherDataManager = new WeatherDataManager();
+        weatherDataManager.readXmlFromFile("src/main/java/dev/alpari/fujitsutrialtask/database/weather-data.xml", false);
+
+        WeatherSnapshot weatherSnapshot = weatherDataManager.getWeatherSnapshot();
+
+        // Tallinn city centre, Pirita is closer than Tallinn-Harku.
+        assertEquals("PIRITA", weatherSnapshot.getNearestWeatherData(59.437, 24.7536).getStationName());
+        assertEquals("TARTU-TÕRAVERE", weatherSnapshot.getNearestWeatherData(58.378, 26.729).getStationName());
+
+        // Kuressaare linn has no wind speed reading, it is not indexed.
+        assertEquals("ROOMASSAARE", weatherSnapshot.getNearestWeatherData(58.2642, 22.4894).getStationName());
+    }
+
+    /**
+     * Great-circle distance (radians).
+     */
+    private static double distance(double latitude1, double longitude1, double latitude2, double longitude2) {
+
+        double phi1 = Math.toRadians(latitude1);
+        double phi2 = Math.toRadians(latitude2);
+        double deltaPhi = phi2 - phi1;
+        double deltaLambda = Math.toRadians(longitude2 - longitude1);
+
+        double a = Math.sin(deltaPhi / 2) * Math.sin(deltaPhi / 2)
+                + Math.cos(phi1) * Math.cos(phi2) * Math.sin(deltaLambda / 2) * Math.sin(deltaLambda / 2);
+        return 2 * Math.asin(Math.sqrt(a));
+    }
+}
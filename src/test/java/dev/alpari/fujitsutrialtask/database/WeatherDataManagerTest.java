@@ -1,23 +1,32 @@
 package dev.alpari.fujitsutrialtask.database;
 
+import com.sun.net.httpserver.HttpServer;
+import dev.alpari.fujitsutrialtask.model.WeatherData;
+import dev.alpari.fujitsutrialtask.model.WeatherPhenomenonCategory;
+import io.micrometer.core.instrument.MeterRegistry;
 import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTimeoutPreemptively;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 
 public class WeatherDataManagerTest {
 
-    @Test
-    public void testParseTimestamp() {
-
-        WeatherDataManager weatherDataManager = new WeatherDataManager();
-
-        String expected = "2023-03-13 22:09:57 PM";
-        String result = weatherDataManager.parseTimestamp("1678738197");
-
-        assertEquals(expected, result);
-    }
-
     @Test
     public void testReadXmlWeatherDataFromLink() {
 
@@ -31,21 +40,44 @@ public class WeatherDataManagerTest {
     }
 
     @Test
-    public void testGetWeatherDataForSpecifiedLocation() {
+    public void testGetWeatherDataForSpecifiedLocation() throws IOException {
 
-        // First read the weather data from URl to create a file to read from.
-        WeatherDataManager weatherDataManager = new WeatherDataManager();
+        // Local copy of the feed: bundled snapshot with an ETag, 304 for conditional requests with the same tag.
+        byte[] feed = Files.readAllBytes(Path.of("src/main/java/dev/alpari/fujitsutrialtask/database/weather-data.xml"));
+        AtomicInteger notModifiedCount = new AtomicInteger();
 
-        String url = "https://www.ilmateenistus.ee/ilma_andmed/xml/observations.php";
-        String outputFileName = "test-weather-output.xml";
+        HttpServer httpServer = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 0);
+        httpServer.createContext("/", exchange -> {
+            exchange.getResponseHeaders().set("ETag", "\"1679169028\"");
+            if ("\"1679169028\"".equals(exchange.getRequestHeaders().getFirst("If-None-Match"))) {
+                notModifiedCount.incrementAndGet();
+                exchange.sendResponseHeaders(304, -1);
+            } else {
+                exchange.sendResponseHeaders(200, feed.length);
+                exchange.getResponseBody().write(feed);
+            }
+            exchange.close();
+        });
+        httpServer.start();
 
-        weatherDataManager.readXmlFromLink(url, outputFileName);
+        WeatherDataManager weatherDataManager = new WeatherDataManager();
+        weatherDataManager.setWeatherDataUrl("http://localhost:" + httpServer.getAddress().getPort()
+                + "/ilma_andmed/xml/observations.php");
 
-        // Now read save .xml data, in this test do not save data to database.
-        weatherDataManager.readXmlFromFile("src/main/java/dev/alpari/fujitsutrialtask/database/" + outputFileName, false);
+        try {
+            // In this test do not save data to database.
+            weatherDataManager.updateWeatherData(false);
+            weatherDataManager.updateWeatherData(false);
+        } finally {
+            httpServer.stop(0);
+        }
+
+        // Second update is answered with 304, weather data of the first one is kept.
+        assertEquals(1, notModifiedCount.get());
+        assertEquals(1, weatherDataManager.getWeatherSnapshot().getVersion());
 
         // As a result, weather data for specified stations (i.e. "Tallinn-Harku", "Tartu-Tõravere" and "Pärnu") is received.
-        assertNotNull(weatherDataManager.getLatestWeatherDataForLocation("Tallinn"));
+        assertEquals(4.8f, weatherDataManager.getLatestWeatherDataForLocation("Tallinn").getAirTemperature());
         assertNotNull(weatherDataManager.getLatestWeatherDataForLocation("Tartu"));
         assertNotNull(weatherDataManager.getLatestWeatherDataForLocation("Pärnu"));
 
@@ -53,4 +85,179 @@ public class WeatherDataManagerTest {
         System.out.println("Weather in Tallinn");
         System.out.println(weatherDataManager.getLatestWeatherDataForLocation("Tallinn").toJson());
     }
+
+    @Test
+    public void testReadXmlFromFileReadsEveryStation() {
+
+        WeatherDataManager weatherDataManager = new WeatherDataManager();
+
+        // Bundled snapshot of the feed, contains 155 stations.
+        weatherDataManager.readXmlFromFile("src/main/java/dev/alpari/fujitsutrialtask/database/weather-data.xml", false);
+
+        assertEquals(155, weatherDataManager.getWeatherSnapshot().getWeatherData().size());
+
+        // Station without WMO code and wind speed.
+        WeatherData kuressaare = weatherDataManager.getWeatherSnapshot().getWeatherData("KURESSAARE LINN");
+        assertNull(kuressaare.getStationWmoCode());
+        assertEquals(6.6f, kuressaare.getAirTemperature());
+        assertTrue(Float.isNaN(kuressaare.getWindSpeed()));
+
+        WeatherData tallinn = weatherDataManager.getLatestWeatherDataForLocation("Tallinn");
+        assertEquals("TALLINN-HARKU", tallinn.getStationName());
+        assertEquals("26038", tallinn.getStationWmoCode());
+        assertEquals(4.8f, tallinn.getAirTemperature());
+        assertEquals(6.2f, tallinn.getWindSpeed());
+        assertEquals("Light rain", tallinn.getWeatherPhenomenon());
+        assertEquals(WeatherPhenomenonCategory.RAIN, tallinn.getWeatherPhenomenonCategory());
+        assertEquals(1679169028L, tallinn.getObservationTimestamp());
+    }
+
+    @Test
+    public void testReadXmlFromFileRecordsMetrics() {
+
+        WeatherDataManager weatherDataManager = new WeatherDataManager();
+        MeterRegistry meterRegistry = weatherDataManager.getMeterRegistry();
+
+        assertTrue(Double.isNaN(meterRegistry.get("weather.snapshot.age").gauge().value()));
+
+        // Second read has the same observations timestamp and is skipped.
+        weatherDataManager.readXmlFromFile("src/main/java/dev/alpari/fujitsutrialtask/database/weather-data.xml", false);
+        weatherDataManager.readXmlFromFile("src/main/java/dev/alpari/fujitsutrialtask/database/weather-data.xml", false);
+
+        assertEquals(1, meterRegistry.get("weather.documents").tag("result", "ingested").counter().count());
+        assertEquals(1, meterRegistry.get("weather.documents").tag("result", "unchanged").counter().count());
+        assertEquals(1, meterRegistry.get("weather.feed.parse").timer().count());
+        assertEquals(155, meterRegistry.get("weather.stations.ingested").counter().count());
+
+        // Stations without air temperature or wind speed in the bundled feed.
+        assertEquals(123, meterRegistry.get("weather.stations.skipped").counter().count());
+
+        assertTrue(meterRegistry.get("weather.snapshot.age").gauge().value() > 0);
+    }
+
+    @Test
+    public void testFailedUpdateIsCountedAndKeepsLatestWeatherData() throws IOException {
+
+        WeatherDataManager weatherDataManager = new WeatherDataManager();
+        weatherDataManager.readXmlFromFile("src/main/java/dev/alpari/fujitsutrialtask/database/weather-data.xml", false);
+
+        weatherDataManager.setWeatherDataUrl("http://localhost:" + freePort() + "/ilma_andmed/xml/observations.php");
+        weatherDataManager.updateWeatherData(false);
+
+        MeterRegistry meterRegistry = weatherDataManager.getMeterRegistry();
+        assertEquals(1, meterRegistry.get("weather.failures").tag("operation", "update").counter().count());
+        assertEquals(1, meterRegistry.get("weather.feed.fetch").tag("status", "error").timer().count());
+        assertEquals(4.8f, weatherDataManager.getLatestWeatherDataForLocation("Tallinn").getAirTemperature());
+    }
+
+    @Test
+    public void testSetLocationToWeatherStationRemapsExistingLocation() {
+
+        WeatherDataManager weatherDataManager = new WeatherDataManager();
+        weatherDataManager.readXmlFromFile("src/main/java/dev/alpari/fujitsutrialtask/database/weather-data.xml", false);
+
+        weatherDataManager.setLocationToWeatherStation("Tallinn", "Pirita");
+        assertEquals("PIRITA", weatherDataManager.getLatestWeatherDataForLocation("Tallinn").getStationName());
+
+        weatherDataManager.setLocationToWeatherStation("Kunda", "Kunda");
+        assertEquals(5.8f, weatherDataManager.getLatestWeatherDataForLocation("Kunda").getAirTemperature());
+    }
+
+    @Test
+    public void testReadXmlSkipsObservationsNotNewerThanLatest(@TempDir Path tempDir) throws IOException {
+
+        WeatherDataManager weatherDataManager = new WeatherDataManager();
+
+        Path source = Path.of("src/main/java/dev/alpari/fujitsutrialtask/database/weather-data.xml");
+        String xml = Files.readString(source, StandardCharsets.UTF_8);
+
+        weatherDataManager.readXmlFromFile(source.toString(), false);
+
+        // Same observations timestamp, but different readings: document must not be ingested again.
+        Path sameTimestamp = tempDir.resolve("same-timestamp.xml");
+        Files.writeString(sameTimestamp, xml.replace("<airtemperature>4.8</airtemperature>",
+                "<airtemperature>-4.8</airtemperature>"), StandardCharsets.UTF_8);
+        weatherDataManager.readXmlFromFile(sameTimestamp.toString(), false);
+
+        assertEquals(4.8f, weatherDataManager.getLatestWeatherDataForLocation("Tallinn").getAirTemperature());
+
+        // New observations timestamp: document is ingested.
+        Path newTimestamp = tempDir.resolve("new-timestamp.xml");
+        Files.writeString(newTimestamp, xml.replace("timestamp=\"1679169028\"", "timestamp=\"1679172628\"")
+                .replace("<airtemperature>4.8</airtemperature>", "<airtemperature>-4.8</airtemperature>"),
+                StandardCharsets.UTF_8);
+        weatherDataManager.readXmlFromFile(newTimestamp.toString(), false);
+
+        assertEquals(-4.8f, weatherDataManager.getLatestWeatherDataForLocation("Tallinn").getAirTemperature());
+        assertEquals(1679172628L, weatherDataManager.getWeatherSnapshot().getObservationTimestamp());
+        assertEquals(2, weatherDataManager.getWeatherSnapshot().getVersion());
+
+        // Older observations, e.g. from a stale cache: fees must not go back in time.
+        weatherDataManager.readXmlFromFile(source.toString(), false);
+
+        assertEquals(-4.8f, weatherDataManager.getLatestWeatherDataForLocation("Tallinn").getAirTemperature());
+        assertEquals(2, weatherDataManager.getWeatherSnapshot().getVersion());
+    }
+
+    @Test
+    public void testUnreachableFeedFallsBackToBundledFeedWithoutStoringIt() throws IOException {
+
+        WeatherDataManager weatherDataManager = new WeatherDataManager();
+        weatherDataManager.setWeatherDataSink(weatherData -> {
+            throw new AssertionError("Bundled feed must not be stored.");
+        });
+        weatherDataManager.setWeatherDataUrl("http://localhost:" + freePort() + "/ilma_andmed/xml/observations.php");
+
+        weatherDataManager.updateWeatherData(true);
+
+        assertEquals(1679169028L, weatherDataManager.getWeatherSnapshot().getObservationTimestamp());
+        assertEquals(4.8f, weatherDataManager.getLatestWeatherDataForLocation("Tallinn").getAirTemperature());
+    }
+
+    @Test
+    public void testLocationsChangeWhileFeedIsFetched() throws Exception {
+
+        CountDownLatch requested = new CountDownLatch(1);
+        CountDownLatch respond = new CountDownLatch(1);
+
+        HttpServer httpServer = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 0);
+        httpServer.createContext("/", exchange -> {
+            requested.countDown();
+            try {
+                respond.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            exchange.sendResponseHeaders(304, -1);
+            exchange.close();
+        });
+        httpServer.start();
+
+        WeatherDataManager weatherDataManager = new WeatherDataManager();
+        weatherDataManager.setWeatherDataUrl("http://localhost:" + httpServer.getAddress().getPort() + "/");
+
+        Thread update = new Thread(() -> weatherDataManager.updateWeatherData(false));
+        try {
+            update.start();
+            assertTrue(requested.await(10, TimeUnit.SECONDS));
+
+            // Slow feed does not hold the manager.
+            assertTimeoutPreemptively(Duration.ofSeconds(5), () -> {
+                weatherDataManager.setLocationToWeatherStation("Kunda", "Kunda");
+                weatherDataManager.removeLocation("Kunda");
+            });
+        } finally {
+            respond.countDown();
+            update.join();
+            httpServer.stop(0);
+        }
+    }
+
+    private static int freePort() throws IOException {
+
+        // Nothing listens on a port that was just freed.
+        try (ServerSocket serverSocket = new ServerSocket(0)) {
+            return serverSocket.getLocalPort();
+        }
+    }
 }
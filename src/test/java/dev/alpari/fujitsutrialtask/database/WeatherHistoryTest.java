@@ -0,0 +1,80 @@
+package dev.alpari.fujitsutrialtask.database;
+
+import dev.alpari.fujitsutrialtask.model.WeatherData;
+import dev.alpari.fujitsutrialtask.model.WeatherPhenomenonCategory;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+public class WeatherHistoryTest {
+
+    private WeatherData weatherData(long observationTimestamp, float airTemperature) {
+        return WeatherData.builder()
+                .stationName("TARTU-TÕRAVERE")
+                .stationWmoCode("26242")
+                .airTemperature(airTemperature)
+                .windSpeed(4.2f)
+                .weatherPhenomenon("Light snow shower")
+                .weatherPhenomenonCategory(WeatherPhenomenonCategory.SNOW)
+                .observationTimestamp(observationTimestamp)
+                .build();
+    }
+
+    @Test
+    public void testFindReturnsLatestObservationAtOrBeforeTime() {
+
+        WeatherHistory weatherHistory = new WeatherHistory();
+
+        weatherHistory.add(weatherData(1000, 1f));
+        weatherHistory.add(weatherData(2000, 2f));
+        weatherHistory.add(weatherData(3000, 3f));
+
+        assertNull(weatherHistory.find("TARTU-TÕRAVERE", 999));
+        assertEquals(1f, weatherHistory.find("TARTU-TÕRAVERE", 1000).getAirTemperature());
+        assertEquals(1f, weatherHistory.find("TARTU-TÕRAVERE", 1999).getAirTemperature());
+        assertEquals(3f, weatherHistory.find("TARTU-TÕRAVERE", 5000).getAirTemperature());
+
+        WeatherData weatherData = weatherHistory.find("TARTU-TÕRAVERE", 2500);
+        assertEquals(2f, weatherData.getAirTemperature());
+        assertEquals("26242", weatherData.getStationWmoCode());
+        assertEquals(WeatherPhenomenonCategory.SNOW, weatherData.getWeatherPhenomenonCategory());
+
+        assertNull(weatherHistory.find("PÄRNU", 5000));
+    }
+
+    @Test
+    public void testAddKeepsObservationsSortedAndReplacesSameTimestamp() {
+
+        WeatherHistory weatherHistory = new WeatherHistory();
+
+        // More observations than initial capacity, in descending order.
+        for (int i = 100; i > 0; i--) weatherHistory.add(weatherData(i * 10L, i));
+        weatherHistory.add(weatherData(500, -5f));
+
+        assertEquals(100, weatherHistory.size("TARTU-TÕRAVERE"));
+        assertEquals(1f, weatherHistory.find("TARTU-TÕRAVERE", 15).getAirTemperature());
+        assertEquals(-5f, weatherHistory.find("TARTU-TÕRAVERE", 505).getAirTemperature());
+        assertEquals(100f, weatherHistory.find("TARTU-TÕRAVERE", 1000).getAirTemperature());
+    }
+
+    @Test
+    public void testPruneKeepsObservationsNeededAfterTime() {
+
+        WeatherHistory weatherHistory = new WeatherHistory();
+
+        for (int i = 1; i <= 100; i++) weatherHistory.add(weatherData(i * 10L, i));
+
+        assertEquals(0, weatherHistory.prune(10));
+        assertEquals(49, weatherHistory.prune(505));
+
+        assertEquals(51, weatherHistory.size("TARTU-TÕRAVERE"));
+        assertNull(weatherHistory.find("TARTU-TÕRAVERE", 499));
+        assertEquals(50f, weatherHistory.find("TARTU-TÕRAVERE", 505).getAirTemperature());
+        assertEquals(100f, weatherHistory.find("TARTU-TÕRAVERE", 1000).getAirTemperature());
+
+        // Still accepts observations after pruning.
+        weatherHistory.add(weatherData(1010, 101f));
+        assertEquals(101f, weatherHistory.find("TARTU-TÕRAVERE", 2000).getAirTemperature());
+    }
+}
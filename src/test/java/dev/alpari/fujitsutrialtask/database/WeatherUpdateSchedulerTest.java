@@ -0,0 +1,186 @@
+package dev.alpari.fujitsutrialtask.database;
+
+import dev.alpari.fujitsutrialtask.dto.WeatherUpdateSchedulerStatusDto;
+import org.junit.jupiter.api.Test;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class WeatherUpdateSchedulerTest {
+
+    private static final String WEATHER_DATA_XML = "src/main/java/dev/alpari/fujitsutrialtask/database/weather-data.xml";
+
+    // Observations timestamp of the bundled feed.
+    private static final Instant OBSERVATION_TIME = Instant.ofEpochSecond(1679169028);
+
+    @Test
+    public void testNextDelayWaitsForNextObservationsThenBacksOff() {
+
+        WeatherDataManager weatherDataManager = new WeatherDataManager();
+        weatherDataManager.readXmlFromFile(WEATHER_DATA_XML, false);
+
+        WeatherUpdateScheduler weatherUpdateScheduler = new WeatherUpdateScheduler(weatherDataManager, false,
+                Duration.ofHours(1), Duration.ofSeconds(15), Duration.ofMinutes(1), Clock.systemUTC());
+
+        // New observations were just read: wait until the next ones are expected.
+        assertEquals(Duration.ofMinutes(50),
+                weatherUpdateScheduler.nextDelay(true, OBSERVATION_TIME.plus(Duration.ofMinutes(10))));
+
+        // Next observations are late: poll more and more rarely.
+        Instant late = OBSERVATION_TIME.plus(Duration.ofMinutes(61));
+        assertEquals(Duration.ofSeconds(15), weatherUpdateScheduler.nextDelay(false, late));
+        assertEquals(Duration.ofSeconds(30), weatherUpdateScheduler.nextDelay(false, late));
+        assertEquals(Duration.ofMinutes(1), weatherUpdateScheduler.nextDelay(false, late));
+        assertEquals(Duration.ofMinutes(1), weatherUpdateScheduler.nextDelay(false, late));
+
+        // Back to the minimum interval once observations advance.
+        assertEquals(Duration.ofSeconds(15), weatherUpdateScheduler.nextDelay(true, late));
+    }
+
+    @Test
+    public void testTimeToNextPublish() {
+
+        WeatherDataManager weatherDataManager = new WeatherDataManager();
+        Clock clock = Clock.fixed(OBSERVATION_TIME.plus(Duration.ofMinutes(10)), ZoneOffset.UTC);
+
+        WeatherUpdateScheduler weatherUpdateScheduler = new WeatherUpdateScheduler(weatherDataManager, false,
+                Duration.ofHours(1), Duration.ofSeconds(15), Duration.ofMinutes(1), clock);
+
+        assertEquals(Duration.ZERO, weatherUpdateScheduler.getTimeToNextPublish());
+
+        weatherDataManager.readXmlFromFile(WEATHER_DATA_XML, false);
+        assertEquals(Duration.ofMinutes(50), weatherUpdateScheduler.getTimeToNextPublish());
+
+        // Next observations are late.
+        WeatherUpdateScheduler late = new WeatherUpdateScheduler(weatherDataManager, false, Duration.ofMinutes(5),
+                Duration.ofSeconds(15), Duration.ofMinutes(1), clock);
+        assertEquals(Duration.ZERO, late.getTimeToNextPublish());
+    }
+
+    @Test
+    public void testRequestedUpdatesDoNotOverlap() throws Exception {
+
+        AtomicInteger updates = new AtomicInteger();
+        AtomicInteger inProgress = new AtomicInteger();
+        AtomicInteger maxInProgress = new AtomicInteger();
+
+        WeatherDataManager weatherDataManager = new WeatherDataManager() {
+            @Override
+            public void updateWeatherData(boolean saveDataToDatabase) {
+
+                maxInProgress.accumulateAndGet(inProgress.incrementAndGet(), Math::max);
+                updates.incrementAndGet();
+                try {
+                    Thread.sleep(200);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                } finally {
+                    inProgress.decrementAndGet();
+                }
+            }
+        };
+
+        WeatherUpdateScheduler weatherUpdateScheduler = new WeatherUpdateScheduler(weatherDataManager, false,
+                Duration.ofHours(1), Duration.ofHours(1), Duration.ofHours(1), Clock.systemUTC());
+
+        assertThrows(IllegalStateException.class, weatherUpdateScheduler::requestUpdate);
+
+        weatherUpdateScheduler.start();
+        weatherUpdateScheduler.start();
+
+        try {
+            // Burst of requests while the first poll is in progress: all served by one more poll.
+            Thread.sleep(50);
+            List<CompletableFuture<Void>> requests = new ArrayList<>();
+            for (int i = 0; i < 20; i++) requests.add(weatherUpdateScheduler.requestUpdate());
+
+            CompletableFuture.allOf(requests.toArray(new CompletableFuture[0])).get(5, TimeUnit.SECONDS);
+
+            assertEquals(2, updates.get());
+            assertEquals(1, maxInProgress.get());
+            assertEquals(2, weatherUpdateScheduler.getStatus().getPollCount());
+            assertTrue(weatherUpdateScheduler.getStatus().isRunning());
+        } finally {
+            weatherUpdateScheduler.stop();
+        }
+
+        assertFalse(weatherUpdateScheduler.isRunning());
+    }
+
+    @Test
+    public void testStopResetsPollInProgress() throws Exception {
+
+        CountDownLatch firstPollStarted = new CountDownLatch(1);
+        CountDownLatch firstPollReleased = new CountDownLatch(1);
+        CountDownLatch secondPollDone = new CountDownLatch(1);
+        AtomicInteger updates = new AtomicInteger();
+
+        WeatherDataManager weatherDataManager = new WeatherDataManager() {
+            @Override
+            public void updateWeatherData(boolean saveDataToDatabase) {
+
+                if (updates.incrementAndGet() > 1) {
+                    secondPollDone.countDown();
+                    return;
+                }
+
+                // Fetch that ignores the interrupt and then fails.
+                firstPollStarted.countDown();
+                boolean released = false;
+                while (!released) {
+                    try {
+                        released = firstPollReleased.await(5, TimeUnit.SECONDS);
+                    } catch (InterruptedException e) {
+                        // Ignored.
+                    }
+                }
+                throw new RuntimeException("Feed is unreachable.");
+            }
+        };
+
+        WeatherUpdateScheduler weatherUpdateScheduler = new WeatherUpdateScheduler(weatherDataManager, false,
+                Duration.ofHours(1), Duration.ofHours(1), Duration.ofHours(1), Clock.systemUTC());
+
+        try {
+            weatherUpdateScheduler.start();
+            assertTrue(firstPollStarted.await(5, TimeUnit.SECONDS));
+            assertTrue(weatherUpdateScheduler.getStatus().isPolling());
+
+            weatherUpdateScheduler.stop();
+            assertFalse(weatherUpdateScheduler.getStatus().isPolling());
+
+            // Started again while the interrupted poll is still running.
+            weatherUpdateScheduler.start();
+            assertTrue(secondPollDone.await(5, TimeUnit.SECONDS));
+
+            firstPollReleased.countDown();
+            long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+            while (weatherUpdateScheduler.getStatus().getFailedPollCount() == 0 && System.nanoTime() < deadline) {
+                Thread.sleep(10);
+            }
+
+            // Failure is counted, the interrupted poll schedules nothing.
+            WeatherUpdateSchedulerStatusDto status = weatherUpdateScheduler.getStatus();
+            assertEquals(1, status.getFailedPollCount());
+            assertEquals(2, status.getPollCount());
+            assertFalse(status.isPolling());
+            assertTrue(status.getNextPollTime().isAfter(Instant.now().plus(Duration.ofMinutes(59))));
+            assertEquals(2, updates.get());
+        } finally {
+            weatherUpdateScheduler.stop();
+        }
+    }
+}
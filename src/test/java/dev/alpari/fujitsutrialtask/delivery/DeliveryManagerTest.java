@@ -1,19 +1,40 @@
 package dev.alpari.fujitsutrialtask.delivery;
 
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import dev.alpari.fujitsutrialtask.dto.FeeBandDto;
+import dev.alpari.fujitsutrialtask.dto.FeeRulesDto;
+import dev.alpari.fujitsutrialtask.dto.VehicleFeeRulesDto;
 import dev.alpari.fujitsutrialtask.model.WeatherData;
+import dev.alpari.fujitsutrialtask.model.WeatherPhenomenonCategory;
+import io.micrometer.core.instrument.MeterRegistry;
 import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
 
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
 import java.io.PrintStream;
+import java.util.NoSuchElementException;
 import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.util.Map;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
 import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.junit.jupiter.api.Assertions.fail;
 
 public class DeliveryManagerTest {
 
     private final String EXCEPTION_MESSAGE_VEHICLE_USAGE_FORBIDDEN = "Usage of selected vehicle type is forbidden";
+    private final String WEATHER_DATA_XML = "src/main/java/dev/alpari/fujitsutrialtask/database/weather-data.xml";
 
     @Test
     public void testSetRegionalBaseFee() {
@@ -22,9 +43,9 @@ public class DeliveryManagerTest {
 
         deliveryManager.setRegionalBaseFee(DeliveryManager.Vehicle.BIKE, DeliveryManager.Location.TALLINN, 3.0f);
 
-        // Test if hashmap contains corresponding key.
+        // Test if fee table contains corresponding fee.
         assertTrue(deliveryManager.getRegionalBaseFees()
-                .containsKey(DeliveryManager.Vehicle.BIKE + "," + DeliveryManager.Location.TALLINN));
+                .contains(DeliveryManager.Vehicle.BIKE, DeliveryManager.Location.TALLINN));
 
         // Test if value of this key is correct.
         assertEquals(3.0f, deliveryManager.getRegionalBaseFee(DeliveryManager.Vehicle.BIKE,
@@ -277,6 +298,32 @@ public class DeliveryManagerTest {
         }
     }
 
+    @Test
+    public void testGetWeatherPhenomenonFeeThrowsExceptionWhenThunderstormAndVehicleBike() {
+
+        DeliveryManager deliveryManager = new DeliveryManager();
+
+        try {
+            deliveryManager.getWeatherPhenomenonFee("Thunderstorm", DeliveryManager.Vehicle.BIKE);
+            fail("Should have thrown the exception.");
+        } catch (IllegalArgumentException e) {
+            assertEquals(EXCEPTION_MESSAGE_VEHICLE_USAGE_FORBIDDEN, e.getMessage());
+        }
+    }
+
+    @Test
+    public void testGetWeatherPhenomenonFeeUsesConfiguredCategories() {
+
+        DeliveryManager deliveryManager = new DeliveryManager();
+
+        assertEquals(0f, deliveryManager.getWeatherPhenomenonFee("freezing drizzle", DeliveryManager.Vehicle.BIKE));
+
+        deliveryManager.getWeatherDataManager().getWeatherPhenomenonClassifier()
+                .setCategory("Freezing drizzle", WeatherPhenomenonCategory.SLEET);
+
+        assertEquals(1f, deliveryManager.getWeatherPhenomenonFee("freezing drizzle", DeliveryManager.Vehicle.BIKE));
+    }
+
     @Test
     public void testGetWeatherPhenomenonFeeIsOneWhenWeatherRelatedToSnow() {
 
@@ -413,4 +460,382 @@ public class DeliveryManagerTest {
 
         System.out.println(deliveryManager.calculateAndGetDeliveryFee(vehicleType, location));
     }
+
+    @Test
+    public void testDeliveryFeesAreCalculatedWhenWeatherDataIsRead() {
+
+        DeliveryManager deliveryManager = new DeliveryManager();
+
+        assertThrows(NoSuchElementException.class,
+                () -> deliveryManager.getDeliveryFee(DeliveryManager.Vehicle.BIKE, DeliveryManager.Location.TALLINN));
+
+        // Tallinn-Harku: 4.8°C, 6.2 m/s, light rain.
+        deliveryManager.getWeatherDataManager().readXmlFromFile(WEATHER_DATA_XML, false);
+
+        DeliveryFee deliveryFee = deliveryManager.getDeliveryFee(DeliveryManager.Vehicle.BIKE,
+                DeliveryManager.Location.TALLINN);
+
+        assertFalse(deliveryFee.isForbidden());
+        assertEquals("TALLINN-HARKU", deliveryFee.getStationName());
+        assertEquals(300, deliveryFee.getRegionalBaseFeeInCents());
+        assertEquals(0, deliveryFee.getAirTemperatureFeeInCents());
+        assertEquals(0, deliveryFee.getWindSpeedFeeInCents());
+        assertEquals(50, deliveryFee.getWeatherPhenomenonFeeInCents());
+        assertEquals(350, deliveryFee.getTotalDeliveryFeeInCents());
+        assertEquals(1, deliveryFee.getWeatherSnapshotVersion());
+
+        // Same result is returned until something changes.
+        assertSame(deliveryFee, deliveryManager.getDeliveryFee(DeliveryManager.Vehicle.BIKE,
+                DeliveryManager.Location.TALLINN));
+        assertSame(deliveryManager.calculateAndGetDeliveryFee(DeliveryManager.Vehicle.BIKE, DeliveryManager.Location.TALLINN),
+                deliveryManager.calculateAndGetDeliveryFee(DeliveryManager.Vehicle.BIKE, DeliveryManager.Location.TALLINN));
+    }
+
+    @Test
+    public void testDeliveryFeeLookupsAreTimed(@TempDir Path tempDir) throws IOException {
+
+        DeliveryManager deliveryManager = new DeliveryManager();
+        MeterRegistry meterRegistry = deliveryManager.getWeatherDataManager().getMeterRegistry();
+
+        // Glaze in Tallinn: bikes and scooters are forbidden there.
+        Path glaze = tempDir.resolve("glaze.xml");
+        Files.writeString(glaze, Files.readString(Path.of(WEATHER_DATA_XML), StandardCharsets.UTF_8)
+                .replaceFirst("<phenomenon>Light rain</phenomenon>", "<phenomenon>Glaze</phenomenon>"), StandardCharsets.UTF_8);
+        deliveryManager.getWeatherDataManager().readXmlFromFile(glaze.toString(), false);
+
+        deliveryManager.getDeliveryFee(DeliveryManager.Vehicle.CAR, DeliveryManager.Location.TALLINN);
+        deliveryManager.getDeliveryFeeJson(DeliveryManager.Vehicle.CAR, DeliveryManager.Location.TALLINN);
+        deliveryManager.calculateAndGetDeliveryFee(DeliveryManager.Vehicle.BIKE, DeliveryManager.Location.TALLINN);
+
+        assertEquals(2, meterRegistry.get("delivery.fee").tags("vehicle", "CAR", "location", "TALLINN", "forbidden", "false")
+                .timer().count());
+        assertEquals(1, meterRegistry.get("delivery.fee").tags("vehicle", "BIKE", "location", "TALLINN", "forbidden", "true")
+                .timer().count());
+        assertTrue(meterRegistry.get("delivery.fee.matrix.update").timer().count() > 0);
+
+        // Added locations share one location tag.
+        for (String locationName : new String[]{"Narva", "Kunda"}) {
+            DeliveryManager.Location location = deliveryManager.addLocation(locationName, locationName);
+            deliveryManager.setRegionalBaseFee(DeliveryManager.Vehicle.CAR, location, 3.0f);
+            deliveryManager.getDeliveryFee(DeliveryManager.Vehicle.CAR, location);
+        }
+
+        assertEquals(2, meterRegistry.get("delivery.fee").tags("vehicle", "CAR", "location", "other", "forbidden", "false")
+                .timer().count());
+        assertTrue(meterRegistry.find("delivery.fee").tag("location", "NARVA").timers().isEmpty());
+    }
+
+    @Test
+    public void testDeliveryFeesAreRecalculatedWhenRegionalBaseFeeChanges() {
+
+        DeliveryManager deliveryManager = new DeliveryManager();
+        deliveryManager.getWeatherDataManager().readXmlFromFile(WEATHER_DATA_XML, false);
+
+        deliveryManager.setRegionalBaseFee(DeliveryManager.Vehicle.CAR, DeliveryManager.Location.TARTU, 5.0f);
+
+        assertEquals(500, deliveryManager.getDeliveryFee(DeliveryManager.Vehicle.CAR, DeliveryManager.Location.TARTU)
+                .getTotalDeliveryFeeInCents());
+    }
+
+    @Test
+    public void testDeliveryFeesAreRecalculatedWhenFeeRulesChange() {
+
+        DeliveryManager deliveryManager = new DeliveryManager();
+        deliveryManager.getWeatherDataManager().readXmlFromFile(WEATHER_DATA_XML, false);
+
+        // Tallinn-Harku: 4.8°C, 6.2 m/s, light rain.
+        assertEquals(350, deliveryManager.getDeliveryFee(DeliveryManager.Vehicle.BIKE, DeliveryManager.Location.TALLINN)
+                .getTotalDeliveryFeeInCents());
+
+        FeeRulesDto noBikesInRain = FeeRulesDto.builder()
+                .name("no bikes in rain")
+                .vehicles(Map.of("bike", VehicleFeeRulesDto.builder()
+                        .weatherPhenomenon(Map.of(WeatherPhenomenonCategory.RAIN, FeeBandDto.builder().forbidden(true).build()))
+                        .build()))
+                .build();
+        deliveryManager.setFeeRules(FeeRules.compile(noBikesInRain));
+
+        assertTrue(deliveryManager.getDeliveryFee(DeliveryManager.Vehicle.BIKE, DeliveryManager.Location.TALLINN).isForbidden());
+        assertThrows(IllegalArgumentException.class,
+                () -> deliveryManager.getWeatherPhenomenonFee(WeatherPhenomenonCategory.RAIN, DeliveryManager.Vehicle.BIKE));
+
+        // Scooters have no rules left.
+        assertEquals(350, deliveryManager.getDeliveryFee(DeliveryManager.Vehicle.SCOOTER, DeliveryManager.Location.TALLINN)
+                .getTotalDeliveryFeeInCents());
+    }
+
+    @Test
+    public void testDeliveryFeeMatrixVersionChangesWithEveryFeeChange() {
+
+        DeliveryManager deliveryManager = new DeliveryManager();
+        deliveryManager.getWeatherDataManager().readXmlFromFile(WEATHER_DATA_XML, false);
+
+        DeliveryFeeMatrix matrix = deliveryManager.getDeliveryFeeMatrix();
+        assertTrue(matrix.getEntityTag().startsWith("W/\"1679169028-"));
+
+        // Same observations again: no new snapshot, no new fees.
+        deliveryManager.getWeatherDataManager().readXmlFromFile(WEATHER_DATA_XML, false);
+        assertSame(matrix, deliveryManager.getDeliveryFeeMatrix());
+
+        deliveryManager.setRegionalBaseFee(DeliveryManager.Vehicle.CAR, DeliveryManager.Location.TARTU, 5.0f);
+        DeliveryFeeMatrix regionalBaseFeeChanged = deliveryManager.getDeliveryFeeMatrix();
+        assertTrue(regionalBaseFeeChanged.getVersion() > matrix.getVersion());
+        assertEquals(matrix.getWeatherSnapshotVersion(), regionalBaseFeeChanged.getWeatherSnapshotVersion());
+
+        assertNotEquals(matrix.getEntityTag(), regionalBaseFeeChanged.getEntityTag());
+
+        // Same rules again: new version, same fees.
+        deliveryManager.setFeeRules(FeeRules.DEFAULT);
+        assertTrue(deliveryManager.getDeliveryFeeMatrix().getVersion() > regionalBaseFeeChanged.getVersion());
+        assertEquals(regionalBaseFeeChanged.getEntityTag(), deliveryManager.getDeliveryFeeMatrix().getEntityTag());
+    }
+
+    @Test
+    public void testDeliveryFeeEntityTagDependsOnFeesOnly() {
+
+        DeliveryManager deliveryManager = new DeliveryManager();
+        deliveryManager.getWeatherDataManager().readXmlFromFile(WEATHER_DATA_XML, false);
+
+        // Another node with other matrix versions and location ordinals.
+        DeliveryManager otherDeliveryManager = new DeliveryManager();
+        otherDeliveryManager.addLocation("Kunda", "Kunda");
+        otherDeliveryManager.addLocation("Narva", "Narva");
+        otherDeliveryManager.removeLocation("Kunda");
+        otherDeliveryManager.getWeatherDataManager().readXmlFromFile(WEATHER_DATA_XML, false);
+        DeliveryManager.Location narva = deliveryManager.addLocation("Narva", "Narva");
+
+        assertNotEquals(deliveryManager.getLocation("Narva").ordinal(), otherDeliveryManager.getLocation("Narva").ordinal());
+        assertNotEquals(deliveryManager.getDeliveryFeeMatrix().getVersion(),
+                otherDeliveryManager.getDeliveryFeeMatrix().getVersion());
+        assertEquals(deliveryManager.getDeliveryFeeMatrix().getEntityTag(),
+                otherDeliveryManager.getDeliveryFeeMatrix().getEntityTag());
+
+        // Fee of one node only.
+        deliveryManager.setRegionalBaseFee(DeliveryManager.Vehicle.CAR, narva, 3.0f);
+        assertNotEquals(deliveryManager.getDeliveryFeeMatrix().getEntityTag(),
+                otherDeliveryManager.getDeliveryFeeMatrix().getEntityTag());
+    }
+
+    @Test
+    public void testDeliveryFeeEntityTagChangesWithFeesNearAnyStation() throws IOException {
+
+        DeliveryManager deliveryManager = new DeliveryManager();
+        deliveryManager.getWeatherDataManager().readXmlFromFile(WEATHER_DATA_XML, false);
+        String entityTag = deliveryManager.getDeliveryFeeMatrix().getEntityTag();
+
+        // Below -10°C: no location has such weather, but a station near a point may have.
+        String rules = Files.readString(Path.of("src/main/resources/fee-rules.json"), StandardCharsets.UTF_8)
+                .replaceFirst("\\{\"below\": -10, \"fee\": 1.0}", "{\"below\": -10, \"fee\": 1.5}");
+        deliveryManager.setFeeRules(FeeRules.read(new ByteArrayInputStream(rules.getBytes(StandardCharsets.UTF_8))));
+
+        assertEquals(400, deliveryManager.getDeliveryFee(DeliveryManager.Vehicle.CAR, DeliveryManager.Location.TALLINN)
+                .getTotalDeliveryFeeInCents());
+        assertNotEquals(entityTag, deliveryManager.getDeliveryFeeMatrix().getEntityTag());
+        entityTag = deliveryManager.getDeliveryFeeMatrix().getEntityTag();
+
+        // Regional base fee of a location without weather data, it may still be the nearest one.
+        DeliveryManager.Location location = deliveryManager.addLocation("Nowhere", "No such station");
+        assertEquals(entityTag, deliveryManager.getDeliveryFeeMatrix().getEntityTag());
+        deliveryManager.setRegionalBaseFee(DeliveryManager.Vehicle.CAR, location, 3.0f);
+        assertNotEquals(entityTag, deliveryManager.getDeliveryFeeMatrix().getEntityTag());
+    }
+
+    @Test
+    public void testAddLocation() {
+
+        DeliveryManager deliveryManager = new DeliveryManager();
+        deliveryManager.getWeatherDataManager().readXmlFromFile(WEATHER_DATA_XML, false);
+
+        // Narva: 5.8°C, 7.1 m/s, no phenomenon.
+        DeliveryManager.Location narva = deliveryManager.addLocation("Narva", "Narva");
+        assertSame(narva, deliveryManager.getLocation("narva"));
+        assertThrows(NoSuchElementException.class,
+                () -> deliveryManager.getDeliveryFee(DeliveryManager.Vehicle.BIKE, narva));
+
+        deliveryManager.setRegionalBaseFee(DeliveryManager.Vehicle.BIKE, narva, 2.0f);
+        assertEquals(200, deliveryManager.getDeliveryFee(DeliveryManager.Vehicle.BIKE, narva).getTotalDeliveryFeeInCents());
+
+        // Kuressaare linn has no wind speed reading, it adds no fee.
+        assertSame(narva, deliveryManager.addLocation("NARVA", "Kuressaare linn"));
+
+        DeliveryFee deliveryFee = deliveryManager.getDeliveryFee(DeliveryManager.Vehicle.BIKE, narva);
+        assertEquals("KURESSAARE LINN", deliveryFee.getStationName());
+        assertEquals(200, deliveryFee.getTotalDeliveryFeeInCents());
+
+        // Existing locations are not affected.
+        assertEquals(350, deliveryManager.getDeliveryFee(DeliveryManager.Vehicle.BIKE, DeliveryManager.Location.TALLINN)
+                .getTotalDeliveryFeeInCents());
+    }
+
+    @Test
+    public void testRemoveLocation() {
+
+        DeliveryManager deliveryManager = new DeliveryManager();
+        deliveryManager.getWeatherDataManager().readXmlFromFile(WEATHER_DATA_XML, false);
+
+        DeliveryManager.Location narva = deliveryManager.addLocation("Narva", "Narva");
+        deliveryManager.setRegionalBaseFee(DeliveryManager.Vehicle.BIKE, narva, 2.0f);
+
+        assertSame(narva, deliveryManager.removeLocation("narva"));
+        assertNull(deliveryManager.findLocation("Narva"));
+        assertFalse(deliveryManager.getLocations().contains(narva));
+        assertFalse(deliveryManager.getWeatherDataManager().getLocations().containsKey("NARVA"));
+        assertThrows(NoSuchElementException.class,
+                () -> deliveryManager.getDeliveryFee(DeliveryManager.Vehicle.BIKE, narva));
+        assertThrows(NoSuchElementException.class, () -> deliveryManager.removeLocation("Narva"));
+
+        // Ordinal of the removed location is reused, fees of the removed location are not.
+        DeliveryManager.Location kuressaare = deliveryManager.addLocation("Kuressaare", "Kuressaare linn");
+        assertEquals(narva.ordinal(), kuressaare.ordinal());
+        assertFalse(deliveryManager.getRegionalBaseFees().contains(DeliveryManager.Vehicle.BIKE, kuressaare));
+
+        deliveryManager.setRegionalBaseFee(DeliveryManager.Vehicle.BIKE, kuressaare, 2.5f);
+        assertEquals(250, deliveryManager.getDeliveryFee(DeliveryManager.Vehicle.BIKE, kuressaare)
+                .getTotalDeliveryFeeInCents());
+        assertThrows(NoSuchElementException.class,
+                () -> deliveryManager.getDeliveryFee(DeliveryManager.Vehicle.BIKE, narva));
+    }
+
+    @Test
+    public void testLocationCountIsLimited() {
+
+        DeliveryManager deliveryManager = new DeliveryManager();
+        deliveryManager.setMaxLocationCount(4);
+
+        deliveryManager.addLocation("Narva", "Narva");
+        assertThrows(IllegalStateException.class, () -> deliveryManager.addLocation("Kuressaare", "Kuressaare linn"));
+
+        // Existing locations can still be moved, removed ones free their place.
+        deliveryManager.addLocation("Narva", "Narva-Jõesuu");
+        deliveryManager.removeLocation("Narva");
+        deliveryManager.addLocation("Kuressaare", "Kuressaare linn");
+
+        // Registries are not shared.
+        assertNull(new DeliveryManager().findLocation("Kuressaare"));
+    }
+
+    @Test
+    public void testGetDeliveryFeeNear() {
+
+        DeliveryManager deliveryManager = new DeliveryManager();
+
+        assertThrows(NoSuchElementException.class,
+                () -> deliveryManager.getDeliveryFeeNear(DeliveryManager.Vehicle.BIKE, 59.437, 24.7536));
+
+        deliveryManager.getWeatherDataManager().readXmlFromFile(WEATHER_DATA_XML, false);
+
+        // Tallinn city centre: RBF of Tallinn, weather of Pirita (5.6°C, 11.3 m/s, no phenomenon).
+        DeliveryFee deliveryFee = deliveryManager.getDeliveryFeeNear(DeliveryManager.Vehicle.BIKE, 59.437, 24.7536);
+        assertSame(DeliveryManager.Location.TALLINN, deliveryFee.getLocation());
+        assertEquals("PIRITA", deliveryFee.getStationName());
+        assertEquals(300, deliveryFee.getRegionalBaseFeeInCents());
+        assertEquals(50, deliveryFee.getWindSpeedFeeInCents());
+        assertEquals(350, deliveryFee.getTotalDeliveryFeeInCents());
+
+        // Tartu city centre.
+        deliveryFee = deliveryManager.getDeliveryFeeNear(DeliveryManager.Vehicle.CAR, 58.378, 26.729);
+        assertSame(DeliveryManager.Location.TARTU, deliveryFee.getLocation());
+        assertEquals("TARTU-TÕRAVERE", deliveryFee.getStationName());
+        assertEquals(350, deliveryFee.getTotalDeliveryFeeInCents());
+
+        assertThrows(IllegalArgumentException.class,
+                () -> deliveryManager.getDeliveryFeeNear(DeliveryManager.Vehicle.CAR, 91, 24.7536));
+    }
+
+    @Test
+    public void testSetRegionalBaseFeesReplacesWholeTable() {
+
+        DeliveryManager deliveryManager = new DeliveryManager();
+        RegionalBaseFeeTable oldTable = deliveryManager.getRegionalBaseFees();
+
+        deliveryManager.setRegionalBaseFees(new RegionalBaseFeeTable.Builder(oldTable.getVersion() + 1)
+                .fee(DeliveryManager.Vehicle.CAR, DeliveryManager.Location.TALLINN, 420)
+                .build());
+
+        assertEquals(4.2f, deliveryManager.getRegionalBaseFee(DeliveryManager.Vehicle.CAR, DeliveryManager.Location.TALLINN));
+        assertFalse(deliveryManager.getRegionalBaseFees()
+                .contains(DeliveryManager.Vehicle.BIKE, DeliveryManager.Location.TALLINN));
+
+        // Old table is not modified.
+        assertEquals(3.0f, oldTable.getFeeInCents(DeliveryManager.Vehicle.BIKE, DeliveryManager.Location.TALLINN) / 100f);
+    }
+
+    @Test
+    public void testRegionalBaseFeesOfRemovedLocationAreNotInherited() {
+
+        DeliveryManager deliveryManager = new DeliveryManager();
+        DeliveryManager.Location narva = deliveryManager.addLocation("Narva", "Narva");
+
+        // Table built while Narva was registered, applied after its ordinal is taken by another location.
+        RegionalBaseFeeTable table = new RegionalBaseFeeTable.Builder(deliveryManager.getRegionalBaseFees().getVersion() + 1)
+                .fee(DeliveryManager.Vehicle.BIKE, narva, 200)
+                .build();
+        deliveryManager.removeLocation("Narva");
+        DeliveryManager.Location kuressaare = deliveryManager.addLocation("Kuressaare", "Kuressaare linn");
+        assertEquals(narva.ordinal(), kuressaare.ordinal());
+
+        deliveryManager.setRegionalBaseFees(table);
+        assertFalse(deliveryManager.getRegionalBaseFees().contains(DeliveryManager.Vehicle.BIKE, kuressaare));
+        assertThrows(NoSuchElementException.class,
+                () -> deliveryManager.getRegionalBaseFees().getFeeInCents(DeliveryManager.Vehicle.BIKE, kuressaare));
+
+        // Setting a fee takes the slot over, removing the old location later leaves it alone.
+        RegionalBaseFeeTable updatedTable = table.withFee(DeliveryManager.Vehicle.CAR, kuressaare, 250);
+        assertEquals(250, updatedTable.getFeeInCents(DeliveryManager.Vehicle.CAR, kuressaare));
+        assertFalse(updatedTable.contains(DeliveryManager.Vehicle.BIKE, kuressaare));
+        assertFalse(updatedTable.contains(DeliveryManager.Vehicle.BIKE, narva));
+        assertTrue(updatedTable.withoutLocation(narva).contains(DeliveryManager.Vehicle.CAR, kuressaare));
+    }
+
+    @Test
+    public void testGetDeliveryFeeJson() throws IOException {
+
+        DeliveryManager deliveryManager = new DeliveryManager();
+        deliveryManager.getWeatherDataManager().readXmlFromFile(WEATHER_DATA_XML, false);
+
+        byte[] json = deliveryManager.getDeliveryFeeJson(DeliveryManager.Vehicle.BIKE, DeliveryManager.Location.TALLINN);
+        JsonNode deliveryFee = new ObjectMapper().readTree(json);
+
+        assertEquals("TALLINN", deliveryFee.get("location").asText());
+        assertEquals("BIKE", deliveryFee.get("vehicleType").asText());
+        assertFalse(deliveryFee.get("forbidden").asBoolean());
+        assertEquals(3.0, deliveryFee.get("regionalBaseFee").asDouble());
+        assertEquals(0.5, deliveryFee.get("weatherPhenomenonFee").asDouble());
+        assertEquals(3.5, deliveryFee.get("totalDeliveryFee").asDouble());
+        assertEquals("TALLINN-HARKU", deliveryFee.get("stationName").asText());
+        assertEquals(1, deliveryFee.get("weatherSnapshotVersion").asLong());
+
+        // Serialized once per weather snapshot.
+        assertSame(json, deliveryManager.getDeliveryFeeJson(DeliveryManager.Vehicle.BIKE, DeliveryManager.Location.TALLINN));
+    }
+
+    @Test
+    public void testGetDeliveryFeeAtPastTime(@TempDir Path tempDir) throws IOException {
+
+        DeliveryManager deliveryManager = new DeliveryManager();
+        deliveryManager.getWeatherDataManager().readXmlFromFile(WEATHER_DATA_XML, false);
+
+        // An hour later Tallinn has glaze.
+        Path laterXml = tempDir.resolve("later.xml");
+        Files.writeString(laterXml, Files.readString(Path.of(WEATHER_DATA_XML), StandardCharsets.UTF_8)
+                .replace("timestamp=\"1679169028\"", "timestamp=\"1679172628\"")
+                .replace("<phenomenon>Light rain</phenomenon>", "<phenomenon>Glaze</phenomenon>"), StandardCharsets.UTF_8);
+        deliveryManager.getWeatherDataManager().readXmlFromFile(laterXml.toString(), false);
+
+        assertTrue(deliveryManager.getDeliveryFee(DeliveryManager.Vehicle.BIKE, DeliveryManager.Location.TALLINN).isForbidden());
+
+        DeliveryFee deliveryFee = deliveryManager.getDeliveryFeeAt(DeliveryManager.Vehicle.BIKE,
+                DeliveryManager.Location.TALLINN, Instant.ofEpochSecond(1679172627));
+        assertFalse(deliveryFee.isForbidden());
+        assertEquals(350, deliveryFee.getTotalDeliveryFeeInCents());
+        assertEquals(deliveryManager.getWeatherDataManager().getWeatherSnapshot().getVersion(),
+                deliveryFee.getWeatherSnapshotVersion());
+
+        assertTrue(deliveryManager.getDeliveryFeeAt(DeliveryManager.Vehicle.BIKE, DeliveryManager.Location.TALLINN,
+                Instant.ofEpochSecond(1679172628)).isForbidden());
+
+        // Nothing observed yet.
+        assertThrows(NoSuchElementException.class, () -> deliveryManager.getDeliveryFeeAt(DeliveryManager.Vehicle.BIKE,
+                DeliveryManager.Location.TALLINN, Instant.ofEpochSecond(1679169027)));
+    }
 }
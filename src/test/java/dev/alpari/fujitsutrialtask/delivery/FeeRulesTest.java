@@ -0,0 +1,156 @@
+package dev.alpari.fujitsutrialtask.delivery;
+
+import dev.alpari.fujitsutrialtask.dto.FeeBandDto;
+import dev.alpari.fujitsutrialtask.dto.FeeRulesDto;
+import dev.alpari.fujitsutrialtask.dto.VehicleFeeRulesDto;
+import dev.alpari.fujitsutrialtask.model.WeatherPhenomenonCategory;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+public class FeeRulesTest {
+
+    private static final DeliveryManager.Vehicle CAR = DeliveryManager.Vehicle.CAR;
+    private static final DeliveryManager.Vehicle SCOOTER = DeliveryManager.Vehicle.SCOOTER;
+    private static final DeliveryManager.Vehicle BIKE = DeliveryManager.Vehicle.BIKE;
+
+    @Test
+    public void testDefaultAirTemperatureBands() {
+
+        FeeRules rules = FeeRules.DEFAULT;
+
+        assertEquals(100, rules.getAirTemperatureFeeInCents(SCOOTER, -10.1f));
+        assertEquals(100, rules.getAirTemperatureFeeInCents(SCOOTER, Float.NEGATIVE_INFINITY));
+        assertEquals(50, rules.getAirTemperatureFeeInCents(SCOOTER, -10f));
+        assertEquals(50, rules.getAirTemperatureFeeInCents(BIKE, -0f));
+        assertEquals(50, rules.getAirTemperatureFeeInCents(BIKE, 0f));
+        assertEquals(0, rules.getAirTemperatureFeeInCents(BIKE, Float.MIN_VALUE));
+        assertEquals(0, rules.getAirTemperatureFeeInCents(BIKE, Float.NaN));
+        assertEquals(0, rules.getAirTemperatureFeeInCents(CAR, -20f));
+    }
+
+    @Test
+    public void testDefaultWindSpeedBands() {
+
+        FeeRules rules = FeeRules.DEFAULT;
+
+        assertEquals(0, rules.getWindSpeedFeeInCents(BIKE, 9.9f));
+        assertEquals(50, rules.getWindSpeedFeeInCents(BIKE, 10f));
+        assertEquals(50, rules.getWindSpeedFeeInCents(BIKE, 20f));
+        assertEquals(FeeRules.FORBIDDEN, rules.getWindSpeedFeeInCents(BIKE, 20.1f));
+        assertEquals(0, rules.getWindSpeedFeeInCents(BIKE, Float.NaN));
+        assertEquals(0, rules.getWindSpeedFeeInCents(SCOOTER, 30f));
+    }
+
+    @Test
+    public void testDefaultWeatherPhenomenonFees() {
+
+        FeeRules rules = FeeRules.DEFAULT;
+
+        assertEquals(100, rules.getWeatherPhenomenonFeeInCents(SCOOTER, WeatherPhenomenonCategory.SNOW));
+        assertEquals(50, rules.getWeatherPhenomenonFeeInCents(BIKE, WeatherPhenomenonCategory.RAIN));
+        assertEquals(FeeRules.FORBIDDEN, rules.getWeatherPhenomenonFeeInCents(BIKE, WeatherPhenomenonCategory.THUNDER));
+        assertEquals(0, rules.getWeatherPhenomenonFeeInCents(BIKE, null));
+        assertEquals(0, rules.getWeatherPhenomenonFeeInCents(CAR, WeatherPhenomenonCategory.GLAZE));
+
+        assertEquals(FeeRules.FORBIDDEN, rules.getExtraFeeInCents(BIKE, -5f, 25f, WeatherPhenomenonCategory.NONE));
+        assertEquals(200, rules.getExtraFeeInCents(BIKE, -5f, 15f, WeatherPhenomenonCategory.SLEET));
+    }
+
+    @Test
+    public void testEvaluateGrid() {
+
+        float[] airTemperatures = {-15f, 5f};
+        float[] windSpeeds = {5f, 15f, 25f};
+        int[] totalFees = new int[6];
+
+        FeeRules.DEFAULT.evaluateGrid(BIKE, 300, WeatherPhenomenonCategory.RAIN, airTemperatures, windSpeeds, totalFees);
+
+        assertArrayEquals(new int[]{450, 500, FeeRules.FORBIDDEN, 350, 400, FeeRules.FORBIDDEN}, totalFees);
+
+        assertThrows(IllegalArgumentException.class, () -> FeeRules.DEFAULT.evaluateGrid(BIKE, 300,
+                WeatherPhenomenonCategory.RAIN, airTemperatures, windSpeeds, new int[5]));
+    }
+
+    @Test
+    public void testReadMatchesCompile() throws Exception {
+
+        String json = """
+                {"name": "windy", "vehicles": {"car": {"windSpeed": [{"above": 30, "fee": 2}]}}}
+                """;
+        FeeRules rules = FeeRules.read(new ByteArrayInputStream(json.getBytes(StandardCharsets.UTF_8)));
+
+        assertEquals("windy", rules.getSource().getName());
+        assertEquals(200, rules.getWindSpeedFeeInCents(CAR, 30.5f));
+        assertEquals(0, rules.getWindSpeedFeeInCents(CAR, 30f));
+        assertNotEquals(FeeRules.DEFAULT.getVersion(), rules.getVersion());
+
+        assertThrows(IllegalArgumentException.class,
+                () -> FeeRules.read(new ByteArrayInputStream("{\"vehicles\": [".getBytes(StandardCharsets.UTF_8))));
+    }
+
+    @Test
+    public void testInvalidRulesAreRejected() {
+
+        // Overlapping bands.
+        assertThrows(IllegalArgumentException.class, () -> FeeRules.compile(airTemperatureRules(List.of(
+                FeeBandDto.builder().atMost(0f).fee(BigDecimal.ONE).build(),
+                FeeBandDto.builder().atLeast(0f).fee(BigDecimal.ONE).build()))));
+
+        // Two lower bounds.
+        assertThrows(IllegalArgumentException.class, () -> FeeRules.compile(airTemperatureRules(List.of(
+                FeeBandDto.builder().above(0f).atLeast(1f).fee(BigDecimal.ONE).build()))));
+
+        // Empty band.
+        assertThrows(IllegalArgumentException.class, () -> FeeRules.compile(airTemperatureRules(List.of(
+                FeeBandDto.builder().above(1f).below(1f).fee(BigDecimal.ONE).build()))));
+
+        // Fractions of a cent.
+        assertThrows(IllegalArgumentException.class, () -> FeeRules.compile(airTemperatureRules(List.of(
+                FeeBandDto.builder().fee(new BigDecimal("0.005")).build()))));
+
+        // Negative fee.
+        assertThrows(IllegalArgumentException.class, () -> FeeRules.compile(airTemperatureRules(List.of(
+                FeeBandDto.builder().fee(new BigDecimal("-0.50")).build()))));
+
+        // Fee above the limit.
+        assertThrows(IllegalArgumentException.class, () -> FeeRules.compile(airTemperatureRules(List.of(
+                FeeBandDto.builder().fee(new BigDecimal("10000.01")).build()))));
+
+        // Both a fee and forbidden.
+        assertThrows(IllegalArgumentException.class, () -> FeeRules.compile(airTemperatureRules(List.of(
+                FeeBandDto.builder().fee(BigDecimal.ONE).forbidden(true).build()))));
+
+        // Unknown vehicle type.
+        assertThrows(IllegalArgumentException.class, () -> FeeRules.compile(FeeRulesDto.builder()
+                .vehicles(Map.of("boat", VehicleFeeRulesDto.builder().build())).build()));
+
+        // Bounds of a weather phenomenon.
+        assertThrows(IllegalArgumentException.class, () -> FeeRules.compile(FeeRulesDto.builder()
+                .vehicles(Map.of("car", VehicleFeeRulesDto.builder().weatherPhenomenon(Map.of(WeatherPhenomenonCategory.SNOW,
+                        FeeBandDto.builder().atLeast(0f).fee(BigDecimal.ONE).build())).build())).build()));
+
+        // Fee at the limit is fine.
+        FeeRules.compile(airTemperatureRules(List.of(FeeBandDto.builder().fee(new BigDecimal("10000.00")).build())));
+
+        // Adjacent bands are fine.
+        FeeRules.compile(airTemperatureRules(List.of(
+                FeeBandDto.builder().below(0f).fee(BigDecimal.ONE).build(),
+                FeeBandDto.builder().atLeast(0f).fee(BigDecimal.ZERO).build())));
+    }
+
+    private static FeeRulesDto airTemperatureRules(List<FeeBandDto> bands) {
+        return FeeRulesDto.builder()
+                .vehicles(Map.of("scooter", VehicleFeeRulesDto.builder().airTemperature(bands).build()))
+                .build();
+    }
+}
@@ -0,0 +1,88 @@
+package dev.alpari.fujitsutrialtask.loadtest;
+
+import dev.alpari.fujitsutrialtask.ExecutionMode;
+import dev.alpari.fujitsutrialtask.FujitsuTrialTaskApplication;
+import dev.alpari.fujitsutrialtask.delivery.DeliveryManager;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.boot.web.context.WebServerApplicationContext;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.net.URI;
+import java.net.http.HttpRequest;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Throughput and latency of fee requests with platform and virtual request threads.
+ *
+ * Not part of the regular build, run with:
+ * mvn test -Dtest=FeeRequestLoadTest -Dloadtest=true [-Dloadtest.requests=50000] [-Dloadtest.concurrency=2000]
+ *
+ * Every mode gets a fresh application with the bundled feed ingested. Half of the requests are fee breakdowns
+ * served from memory, the other half read weather data of a station from the database. Virtual mode is measured
+ * only when running on Java 21 or later.
+ */
+@EnabledIfSystemProperty(named = "loadtest", matches = "true")
+public class FeeRequestLoadTest {
+
+    private static final String WEATHER_DATA_XML = "src/main/java/dev/alpari/fujitsutrialtask/database/weather-data.xml";
+
+    private static final List<String> PATHS = List.of(
+            "/api/delivery/fee?location=tallinn&vehicle=bike",
+            "/api/weatherdata/history?station=TALLINN-HARKU&from=2023-03-18T00:00:00Z&to=2023-03-19T00:00:00Z");
+
+    private final int requests = Integer.getInteger("loadtest.requests", 50_000);
+    private final int concurrency = Integer.getInteger("loadtest.concurrency", 2_000);
+
+    @Test
+    public void compareExecutionModes() throws Exception {
+
+        System.out.println(LoadGenerator.header("mode"));
+
+        for (ExecutionMode executionMode : ExecutionMode.values()) {
+
+            if (!executionMode.isSupported()) {
+                System.out.printf("%-16s skipped, requires Java 21 or later%n", executionMode);
+                continue;
+            }
+
+            try (ConfigurableApplicationContext context = start(executionMode)) {
+
+                int port = ((WebServerApplicationContext) context).getWebServer().getPort();
+
+                // Warm up, then measure.
+                run(port, Math.min(requests, 5_000));
+                LoadGenerator.Statistics statistics = run(port, requests).statistics();
+
+                assertEquals(0, statistics.getFailures(), "Failed requests in " + executionMode + " mode.");
+                System.out.println(statistics.format(executionMode.name()));
+            }
+        }
+    }
+
+    private ConfigurableApplicationContext start(ExecutionMode executionMode) {
+
+        ConfigurableApplicationContext context = new SpringApplicationBuilder(FujitsuTrialTaskApplication.class)
+                // Command-line arguments, properties() would only set defaults overridden by application.properties.
+                .run("--server.port=0",
+                        "--weather.execution.mode=" + executionMode,
+                        "--spring.datasource.name=loadtest-" + executionMode.name().toLowerCase(),
+                        "--logging.level.org.springframework.jdbc=INFO",
+                        "--weather.compaction.enabled=false");
+
+        context.getBean(DeliveryManager.class).getWeatherDataManager().readXmlFromFile(WEATHER_DATA_XML, true);
+        return context;
+    }
+
+    private LoadGenerator.Run run(int port, int count) throws InterruptedException {
+
+        HttpRequest[] httpRequests = PATHS.stream()
+                .map(path -> HttpRequest.newBuilder(URI.create("http://localhost:" + port + path)).GET().build())
+                .toArray(HttpRequest[]::new);
+
+        return new LoadGenerator(concurrency).run(count, i -> httpRequests[i % httpRequests.length]);
+    }
+}
@@ -0,0 +1,148 @@
+package dev.alpari.fujitsutrialtask.loadtest;
+
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Semaphore;
+import java.util.function.IntFunction;
+import java.util.function.IntPredicate;
+
+/**
+ * Sends requests with a bounded number in flight and records the latency of each.
+ */
+public class LoadGenerator {
+
+    private final HttpClient httpClient = HttpClient.newBuilder()
+            .version(HttpClient.Version.HTTP_1_1)
+            .connectTimeout(Duration.ofSeconds(30))
+            .build();
+
+    private final int concurrency;
+
+    /**
+     * @param concurrency maximum number of requests in flight.
+     */
+    public LoadGenerator(int concurrency) {
+        this.concurrency = concurrency;
+    }
+
+    /**
+     * Send requests, a request is failed unless answered with 200.
+     *
+     * @param count number of requests.
+     * @param requests creates the request with the given index.
+     * @return latencies of all requests.
+     */
+    public Run run(int count, IntFunction<HttpRequest> requests) throws InterruptedException {
+
+        long[] latencies = new long[count];
+        boolean[] failed = new boolean[count];
+        Semaphore inFlight = new Semaphore(concurrency);
+        CompletableFuture<?>[] responses = new CompletableFuture<?>[count];
+
+        long start = System.nanoTime();
+
+        for (int i = 0; i < count; i++) {
+
+            HttpRequest httpRequest = requests.apply(i);
+            inFlight.acquire();
+
+            int index = i;
+            long sent = System.nanoTime();
+            responses[i] = httpClient.sendAsync(httpRequest, HttpResponse.BodyHandlers.discarding())
+                    .whenComplete((response, error) -> {
+                        latencies[index] = System.nanoTime() - sent;
+                        failed[index] = error != null || response.statusCode() != 200;
+                        inFlight.release();
+                    });
+        }
+
+        CompletableFuture.allOf(responses).exceptionally(error -> null).join();
+        return new Run(latencies, failed, System.nanoTime() - start);
+    }
+
+    public static String header(String label) {
+        return String.format("%-16s %9s %8s %12s %10s %10s %10s %10s", label, "requests", "failed", "requests/s",
+                "p50 ms", "p99 ms", "p999 ms", "max ms");
+    }
+
+    /**
+     * Latencies of one run.
+     */
+    public static class Run {
+
+        private final long[] latencies;
+        private final boolean[] failed;
+        private final long elapsedNanos;
+
+        Run(long[] latencies, boolean[] failed, long elapsedNanos) {
+            this.latencies = latencies;
+            this.failed = failed;
+            this.elapsedNanos = elapsedNanos;
+        }
+
+        public Statistics statistics() {
+            return statistics(index -> true);
+        }
+
+        /**
+         * @param requests selects requests by index.
+         * @return statistics of the selected requests, throughput over the whole run.
+         */
+        public Statistics statistics(IntPredicate requests) {
+
+            long[] selected = new long[latencies.length];
+            int count = 0;
+            int failures = 0;
+
+            for (int i = 0; i < latencies.length; i++) {
+                if (!requests.test(i)) continue;
+                selected[count++] = latencies[i];
+                if (failed[i]) failures++;
+            }
+
+            return new Statistics(Arrays.copyOf(selected, count), failures, elapsedNanos);
+        }
+    }
+
+    public static class Statistics {
+
+        private final long[] latencies;
+        private final int failures;
+        private final long elapsedNanos;
+
+        Statistics(long[] latencies, int failures, long elapsedNanos) {
+            this.latencies = latencies;
+            this.failures = failures;
+            this.elapsedNanos = elapsedNanos;
+            Arrays.sort(this.latencies);
+        }
+
+        public int getFailures() {
+            return failures;
+        }
+
+        public double throughput() {
+            return latencies.length * 1e9 / elapsedNanos;
+        }
+
+        /**
+         * @return latency (ms) at the quantile, nearest rank.
+         */
+        public double percentile(double quantile) {
+
+            if (latencies.length == 0) return Double.NaN;
+
+            int rank = (int) Math.ceil(quantile * latencies.length);
+            return latencies[Math.max(0, rank - 1)] / 1e6;
+        }
+
+        public String format(String label) {
+            return String.format("%-16s %9d %8d %12.0f %10.2f %10.2f %10.2f %10.2f", label, latencies.length, failures,
+                    throughput(), percentile(0.5), percentile(0.99), percentile(0.999), percentile(1));
+        }
+    }
+}
@@ -0,0 +1,179 @@
+package dev.alpari.fujitsutrialtask.loadtest;
+
+import dev.alpari.fujitsutrialtask.FujitsuTrialTaskApplication;
+import dev.alpari.fujitsutrialtask.database.WeatherUpdateScheduler;
+import dev.alpari.fujitsutrialtask.dto.WeatherUpdateSchedulerStatusDto;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.boot.web.context.WebServerApplicationContext;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.net.URI;
+import java.net.URLEncoder;
+import java.net.http.HttpRequest;
+import java.nio.charset.StandardCharsets;
+import java.time.Clock;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * End to end throughput and latency with weather data polled from a local feed stub, runs without network.
+ *
+ * Not part of the regular build, run with:
+ * mvn test -Dtest=OfflineLoadTest -Dloadtest=true [options]
+ *
+ * Options (defaults in brackets):
+ * -Dloadtest.requests [50000], -Dloadtest.concurrency [200],
+ * -Dloadtest.mix weights of getfee, getall and add requests [getfee=90,getall=5,add=5],
+ * -Dloadtest.feed BUNDLED, SYNTHETIC or FORBIDDEN [BUNDLED], -Dloadtest.feed.stations generated stations [1000],
+ * -Dloadtest.feed.interval publish interval, PT0S replays one document [PT5S],
+ * -Dloadtest.mode PLATFORM or VIRTUAL [PLATFORM].
+ *
+ * The scheduler polls the stub while requests are served, so ingestion runs concurrently with the load.
+ */
+@EnabledIfSystemProperty(named = "loadtest", matches = "true")
+public class OfflineLoadTest {
+
+    private static final String[] LOCATIONS = {"tallinn", "tartu", "pärnu"};
+    private static final String[] VEHICLES = {"car", "scooter", "bike"};
+    private static final String[] REQUEST_TYPES = {"getfee", "getall", "add"};
+
+    private final int requests = Integer.getInteger("loadtest.requests", 50_000);
+    private final int concurrency = Integer.getInteger("loadtest.concurrency", 200);
+    private final String mix = System.getProperty("loadtest.mix", "getfee=90,getall=5,add=5");
+    private final WeatherFeedStub.Variant feed = WeatherFeedStub.Variant.valueOf(
+            System.getProperty("loadtest.feed", "BUNDLED").toUpperCase(Locale.ROOT));
+    private final int stations = Integer.getInteger("loadtest.feed.stations", 1_000);
+    private final Duration publishInterval = Duration.parse(System.getProperty("loadtest.feed.interval", "PT5S"));
+    private final String executionMode = System.getProperty("loadtest.mode", "PLATFORM");
+
+    @Test
+    public void serveRequestsWhileIngesting() throws Exception {
+
+        int[] schedule = parseMix(mix);
+
+        try (WeatherFeedStub weatherFeedStub = new WeatherFeedStub(feed, stations, publishInterval, Clock.systemUTC())) {
+
+            weatherFeedStub.start();
+
+            try (ConfigurableApplicationContext context = start(weatherFeedStub.getUrl())) {
+
+                WeatherUpdateScheduler weatherUpdateScheduler = context.getBean(WeatherUpdateScheduler.class);
+                weatherUpdateScheduler.requestUpdate().get(60, TimeUnit.SECONDS);
+                assertTrue(weatherFeedStub.getRequestCount() > 0, "Weather data was not read from the stub.");
+
+                String baseUrl = "http://localhost:" + ((WebServerApplicationContext) context).getWebServer().getPort();
+                long addTimestamp = weatherFeedStub.getTimestamp();
+
+                // Warm up, then measure. Added observations are unique across both runs.
+                LoadGenerator loadGenerator = new LoadGenerator(concurrency);
+                int warmUpRequests = Math.min(requests, 5_000);
+                loadGenerator.run(warmUpRequests, i -> request(baseUrl, schedule[i % schedule.length], i, addTimestamp));
+                LoadGenerator.Run run = loadGenerator.run(requests, i -> request(baseUrl, schedule[i % schedule.length],
+                        warmUpRequests + i, addTimestamp));
+
+                WeatherUpdateSchedulerStatusDto status = weatherUpdateScheduler.getStatus();
+
+                System.out.printf("feed %s, %d stub requests, %d polls, observations of %s, mode %s, concurrency %d%n",
+                        feed, weatherFeedStub.getRequestCount(), status.getPollCount(), status.getObservationTime(),
+                        executionMode, concurrency);
+                System.out.println(LoadGenerator.header("request"));
+                for (int type = 0; type < REQUEST_TYPES.length; type++) {
+                    int requestType = type;
+                    LoadGenerator.Statistics statistics = run.statistics(i -> schedule[i % schedule.length] == requestType);
+                    System.out.println(statistics.format(REQUEST_TYPES[type]));
+                }
+
+                LoadGenerator.Statistics total = run.statistics();
+                System.out.println(total.format("total"));
+
+                assertEquals(0, total.getFailures(), "Failed requests.");
+            }
+        }
+    }
+
+    private ConfigurableApplicationContext start(String weatherDataUrl) {
+
+        Duration period = publishInterval.isZero() ? Duration.ofHours(1) : publishInterval;
+
+        return new SpringApplicationBuilder(FujitsuTrialTaskApplication.class)
+                .run("--server.port=0",
+                        "--weather.feed.url=" + weatherDataUrl,
+                        "--weather.update.auto-start=true",
+                        "--weather.update.period=" + period,
+                        "--weather.update.min-interval=PT0.1S",
+                        "--weather.update.max-interval=PT1S",
+                        "--weather.execution.mode=" + executionMode,
+                        "--spring.datasource.name=loadtest-offline",
+                        "--logging.level.org.springframework.jdbc=INFO",
+                        "--weather.compaction.enabled=false");
+    }
+
+    private static HttpRequest request(String baseUrl, int type, int index, long addTimestamp) {
+
+        switch (REQUEST_TYPES[type]) {
+            case "getfee" -> {
+                String location = URLEncoder.encode(LOCATIONS[index % LOCATIONS.length], StandardCharsets.UTF_8);
+                String vehicle = VEHICLES[index / LOCATIONS.length % VEHICLES.length];
+                return HttpRequest.newBuilder(URI.create(baseUrl + "/api/delivery/getfee/?location=" + location
+                        + "&vehicle=" + vehicle)).GET().build();
+            }
+            case "getall" -> {
+                return HttpRequest.newBuilder(URI.create(baseUrl + "/api/weatherdata/getall?station=TALLINN-HARKU&limit=20"))
+                        .GET().build();
+            }
+            default -> {
+                // A new observation of one of 100 stations, a minute after the previous one of that station.
+                String body = String.format(Locale.ROOT, "{\"stationName\": \"LOADTEST-ADD-%d\", \"stationWmoCode\": \"%d\","
+                                + " \"airTemperature\": %.1f, \"windSpeed\": %.1f, \"weatherPhenomenon\": \"Light rain\","
+                                + " \"observationTimestamp\": %d}",
+                        index % 100, 80000 + index % 100, index % 30 - 10.0, index % 25 * 1.0, addTimestamp + 60L * (index / 100));
+                return HttpRequest.newBuilder(URI.create(baseUrl + "/api/weatherdata/add"))
+                        .header("Content-Type", "application/json")
+                        .POST(HttpRequest.BodyPublishers.ofString(body))
+                        .build();
+            }
+        }
+    }
+
+    /**
+     * @param mix weights of request types, e.g. getfee=90,getall=5,add=5.
+     * @return request types in the order they are sent, repeated for all requests.
+     */
+    private static int[] parseMix(String mix) {
+
+        List<Integer> schedule = new ArrayList<>();
+        int[] weights = new int[REQUEST_TYPES.length];
+
+        for (String entry : mix.split(",")) {
+            String[] parts = entry.trim().split("=");
+            int type = List.of(REQUEST_TYPES).indexOf(parts[0].trim().toLowerCase(Locale.ROOT));
+            if (parts.length != 2 || type < 0) throw new IllegalArgumentException("Invalid request mix: " + mix);
+            weights[type] = Integer.parseInt(parts[1].trim());
+        }
+
+        // Interleave request types instead of sending them in blocks.
+        int total = 0;
+        for (int weight : weights) total += weight;
+        if (total <= 0) throw new IllegalArgumentException("Invalid request mix: " + mix);
+
+        int[] sent = new int[weights.length];
+        for (int i = 0; i < total; i++) {
+            int next = 0;
+            for (int type = 1; type < weights.length; type++) {
+                if ((double) sent[type] / weights[type] < (double) sent[next] / weights[next] || weights[next] == 0) next = type;
+            }
+            sent[next]++;
+            schedule.add(next);
+        }
+
+        return schedule.stream().mapToInt(Integer::intValue).toArray();
+    }
+}
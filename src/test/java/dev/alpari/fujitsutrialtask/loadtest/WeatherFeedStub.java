@@ -0,0 +1,194 @@
+package dev.alpari.fujitsutrialtask.loadtest;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import dev.alpari.fujitsutrialtask.database.SyntheticStations;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Clock;
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Local observations feed for load tests, no network needed.
+ *
+ * Serves the bundled feed or a variant of it. With a publish interval, the observations timestamp advances once per
+ * interval like the real feed's does once per hour, otherwise the same document is replayed. Responses carry an ETag,
+ * conditional requests for an unchanged document are answered with 304.
+ */
+public class WeatherFeedStub implements AutoCloseable {
+
+    public enum Variant {
+
+        /**
+         * Bundled feed as is.
+         */
+        BUNDLED,
+
+        /**
+         * Bundled feed with generated stations added.
+         */
+        SYNTHETIC,
+
+        /**
+         * Bundled feed where every station reports glaze, hail or thunder (same for all, changes every publish),
+         * so bikes and scooters are forbidden everywhere.
+         */
+        FORBIDDEN
+    }
+
+    private static final String WEATHER_DATA_XML = "src/main/java/dev/alpari/fujitsutrialtask/database/weather-data.xml";
+
+    private static final Pattern TIMESTAMP = Pattern.compile("timestamp=\"\\d+\"");
+    private static final Pattern PHENOMENON = Pattern.compile("<phenomenon>[^<]*</phenomenon>|<phenomenon/>");
+
+    private static final String[] FORBIDDEN_PHENOMENA = {"Glaze", "Hail", "Thunder"};
+
+    private final Variant variant;
+    private final int stationCount;
+    private final Duration publishInterval;
+    private final Clock clock;
+    private final String bundledXml;
+    private final HttpServer httpServer;
+
+    private final AtomicLong requestCount = new AtomicLong();
+
+    // Latest served document, generated once per observations timestamp.
+    private volatile Document document;
+
+    /**
+     * @param variant document served.
+     * @param stationCount number of generated stations, used by SYNTHETIC only.
+     * @param publishInterval how often observations timestamp advances, zero to replay the same document.
+     * @param clock clock.
+     */
+    public WeatherFeedStub(Variant variant, int stationCount, Duration publishInterval, Clock clock) {
+
+        this.variant = variant;
+        this.stationCount = stationCount;
+        this.publishInterval = publishInterval;
+        this.clock = clock;
+
+        try {
+            bundledXml = Files.readString(Path.of(WEATHER_DATA_XML));
+            httpServer = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 0);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+
+        httpServer.createContext("/", this::handle);
+    }
+
+    public void start() {
+        httpServer.start();
+    }
+
+    @Override
+    public void close() {
+        httpServer.stop(0);
+    }
+
+    public String getUrl() {
+        return "http://localhost:" + httpServer.getAddress().getPort() + "/ilma_andmed/xml/observations.php";
+    }
+
+    public long getRequestCount() {
+        return requestCount.get();
+    }
+
+    /**
+     * @return observations timestamp currently published (seconds since epoch).
+     */
+    public long getTimestamp() {
+
+        long bundledTimestamp = parseTimestamp(bundledXml);
+        if (publishInterval.isZero()) return bundledTimestamp;
+
+        long intervalSeconds = publishInterval.toSeconds();
+        return clock.instant().getEpochSecond() / intervalSeconds * intervalSeconds;
+    }
+
+    private void handle(HttpExchange exchange) throws IOException {
+
+        requestCount.incrementAndGet();
+        Document current = getDocument();
+
+        try (exchange) {
+            exchange.getResponseHeaders().set("ETag", current.eTag);
+
+            if (current.eTag.equals(exchange.getRequestHeaders().getFirst("If-None-Match"))) {
+                exchange.sendResponseHeaders(304, -1);
+                return;
+            }
+
+            exchange.getResponseHeaders().set("Content-Type", "text/xml; charset=UTF-8");
+            exchange.sendResponseHeaders(200, current.xml.length);
+            try (OutputStream outputStream = exchange.getResponseBody()) {
+                outputStream.write(current.xml);
+            }
+        }
+    }
+
+    private Document getDocument() {
+
+        long timestamp = getTimestamp();
+
+        Document current = document;
+        if (current != null && current.timestamp == timestamp) return current;
+
+        synchronized (this) {
+            if (document == null || document.timestamp != timestamp) document = new Document(timestamp, generate(timestamp));
+            return document;
+        }
+    }
+
+    private byte[] generate(long timestamp) {
+
+        String xml = TIMESTAMP.matcher(bundledXml).replaceFirst("timestamp=\"" + timestamp + "\"");
+
+        switch (variant) {
+            case SYNTHETIC -> xml = xml.replace("</observations>",
+                    // Same stations every time, readings change with the timestamp.
+                    SyntheticStations.generate(stationCount, timestamp) + "</observations>");
+            case FORBIDDEN -> {
+                String phenomenon = FORBIDDEN_PHENOMENA[(int) Math.floorMod(timestamp, (long) FORBIDDEN_PHENOMENA.length)];
+                xml = PHENOMENON.matcher(xml).replaceAll("<phenomenon>" + phenomenon + "</phenomenon>");
+            }
+            default -> {
+            }
+        }
+
+        return xml.getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static long parseTimestamp(String xml) {
+
+        Matcher matcher = TIMESTAMP.matcher(xml);
+        if (!matcher.find()) throw new IllegalStateException("Observations timestamp is missing.");
+
+        String attribute = matcher.group();
+        return Long.parseLong(attribute.substring("timestamp=\"".length(), attribute.length() - 1));
+    }
+
+    private static class Document {
+
+        private final long timestamp;
+        private final byte[] xml;
+        private final String eTag;
+
+        Document(long timestamp, byte[] xml) {
+            this.timestamp = timestamp;
+            this.xml = xml;
+            this.eTag = "\"" + timestamp + "\"";
+        }
+    }
+}
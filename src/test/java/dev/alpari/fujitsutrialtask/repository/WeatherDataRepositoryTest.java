@@ -0,0 +1,68 @@
+package dev.alpari.fujitsutrialtask.repository;
+
+import dev.alpari.fujitsutrialtask.model.WeatherData;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+@SpringBootTest
+@Transactional
+public class WeatherDataRepositoryTest {
+
+    @Autowired
+    private WeatherDataRepository repository;
+
+    private WeatherData weatherData(String stationName, long observationTimestamp, float airTemperature) {
+        return WeatherData.builder()
+                .stationName(stationName)
+                .airTemperature(airTemperature)
+                .observationTimestamp(observationTimestamp)
+                .build();
+    }
+
+    @BeforeEach
+    public void setUp() {
+        repository.saveAll(List.of(
+                weatherData("PÄRNU", 1679172628L, 5.5f),
+                weatherData("TALLINN-HARKU", 1679169028L, 4.8f),
+                weatherData("PÄRNU", 1679169028L, 5.1f),
+                weatherData("TALLINN-HARKU", 1679176228L, 3.9f),
+                weatherData("TALLINN-HARKU", 1679172628L, 4.2f)));
+    }
+
+    @Test
+    public void testFindLatestByStationName() {
+        assertEquals(3.9f, repository.findFirstByStationNameOrderByObservationTimestampDesc("TALLINN-HARKU")
+                .orElseThrow().getAirTemperature());
+    }
+
+    @Test
+    public void testFindLatestOfEveryStation() {
+
+        List<WeatherData> latest = repository.findLatestOfEveryStation();
+
+        assertEquals(2, latest.size());
+        for (WeatherData weatherData : latest) {
+            assertEquals(weatherData.getStationName().equals("PÄRNU") ? 1679172628L : 1679176228L,
+                    weatherData.getObservationTimestamp());
+        }
+    }
+
+    @Test
+    public void testFindByStationNameInTimeRange() {
+
+        List<WeatherData> weatherData = repository
+                .findByStationNameAndObservationTimestampBetweenOrderByObservationTimestamp("TALLINN-HARKU",
+                        1679169028L, 1679172628L);
+
+        assertEquals(2, weatherData.size());
+        assertEquals(4.8f, weatherData.get(0).getAirTemperature());
+        assertEquals(4.2f, weatherData.get(1).getAirTemperature());
+    }
+}
@@ -0,0 +1,145 @@
+package dev.alpari.fujitsutrialtask.service;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import dev.alpari.fujitsutrialtask.delivery.DeliveryManager;
+import dev.alpari.fujitsutrialtask.dto.FeeGridRequestDto;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class DeliveryDataServiceTest {
+
+    private final String WEATHER_DATA_XML = "src/main/java/dev/alpari/fujitsutrialtask/database/weather-data.xml";
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    private DeliveryDataService createDeliveryDataService() {
+
+        DeliveryManager deliveryManager = new DeliveryManager();
+        deliveryManager.getWeatherDataManager().readXmlFromFile(WEATHER_DATA_XML, false);
+        return new DeliveryDataService(deliveryManager);
+    }
+
+    private String[] writeDeliveryFees(DeliveryDataService deliveryDataService, String request) throws IOException {
+
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+        deliveryDataService.writeDeliveryFees(new ByteArrayInputStream(request.getBytes(StandardCharsets.UTF_8)),
+                outputStream);
+        return outputStream.toString(StandardCharsets.UTF_8).split("\n");
+    }
+
+    @Test
+    public void testGetDeliveryFeeIgnoresCase() {
+
+        DeliveryDataService deliveryDataService = createDeliveryDataService();
+
+        assertTrue(deliveryDataService.getDeliveryFee("tallinn", "Bike").startsWith("Input parameters: TALLINN and BIKE"));
+        assertEquals("No such location with name: Riga", deliveryDataService.getDeliveryFee("Riga", "bike"));
+        assertEquals("No such vehicle type: boat", deliveryDataService.getDeliveryFee("tartu", "boat"));
+    }
+
+    @Test
+    public void testMissingVehicleTypeIsRejected() {
+
+        DeliveryDataService deliveryDataService = createDeliveryDataService();
+
+        assertEquals("No such vehicle type: null", deliveryDataService.getDeliveryFee("tartu", null));
+        assertThrows(IllegalArgumentException.class, () -> deliveryDataService.getDeliveryFeeJson("tartu", null));
+        assertThrows(IllegalArgumentException.class,
+                () -> deliveryDataService.getDeliveryFeeJsonNear(58.38, 26.72, null));
+    }
+
+    @Test
+    public void testFeeGridSizeIsLimited() {
+
+        DeliveryDataService deliveryDataService = createDeliveryDataService();
+        FeeGridRequestDto feeGridRequestDto = FeeGridRequestDto.builder()
+                .location("Tallinn")
+                .vehicle("car")
+                .airTemperatures(new float[100])
+                .windSpeeds(new float[DeliveryDataService.MAX_FEE_GRID_SIZE / 100])
+                .build();
+
+        assertEquals(100, deliveryDataService.evaluateFeeGrid(feeGridRequestDto).getTotalDeliveryFees().length);
+
+        feeGridRequestDto.setAirTemperatures(new float[101]);
+        assertThrows(IllegalArgumentException.class, () -> deliveryDataService.evaluateFeeGrid(feeGridRequestDto));
+    }
+
+    @Test
+    public void testWriteDeliveryFeesFromNdjson() throws IOException {
+
+        DeliveryDataService deliveryDataService = createDeliveryDataService();
+
+        String[] lines = writeDeliveryFees(deliveryDataService, """
+                {"location": "tallinn", "vehicle": "bike"}
+                {"location": "Tartu", "vehicle": "CAR"}
+                {"location": "Riga", "vehicle": "car"}
+                """);
+
+        assertEquals(3, lines.length);
+
+        JsonNode first = objectMapper.readTree(lines[0]);
+        assertEquals("TALLINN", first.get("location").asText());
+        assertEquals("BIKE", first.get("vehicleType").asText());
+        assertEquals(3.5, first.get("totalDeliveryFee").asDouble());
+
+        JsonNode second = objectMapper.readTree(lines[1]);
+        assertEquals("TARTU", second.get("location").asText());
+        assertEquals(3.5, second.get("totalDeliveryFee").asDouble());
+
+        JsonNode third = objectMapper.readTree(lines[2]);
+        assertEquals("Riga", third.get("location").asText());
+        assertEquals("No such location with name: Riga", third.get("error").asText());
+    }
+
+    @Test
+    public void testWriteDeliveryFeesFromJsonArray() throws IOException {
+
+        DeliveryDataService deliveryDataService = createDeliveryDataService();
+
+        String[] lines = writeDeliveryFees(deliveryDataService,
+                "[{\"location\": \"pärnu\", \"vehicle\": \"scooter\"}, {\"vehicle\": \"bike\", \"location\": \"pärnu\"}]");
+
+        assertEquals(2, lines.length);
+        assertEquals(2.5, objectMapper.readTree(lines[0]).get("totalDeliveryFee").asDouble());
+        assertEquals(2.0, objectMapper.readTree(lines[1]).get("totalDeliveryFee").asDouble());
+    }
+
+    @Test
+    public void testWriteDeliveryFeesSkipsNestedValues() throws IOException {
+
+        DeliveryDataService deliveryDataService = createDeliveryDataService();
+
+        String[] lines = writeDeliveryFees(deliveryDataService, """
+                {"location": {"x": 1}, "vehicle": "car"}
+                {"location": "tartu", "vehicle": ["bike", {"location": "tallinn"}]}
+                {"location": "tartu", "vehicle": "car"}
+                """);
+
+        assertEquals(3, lines.length);
+        assertEquals("No such location with name: null", objectMapper.readTree(lines[0]).get("error").asText());
+        assertEquals("No such vehicle type: null", objectMapper.readTree(lines[1]).get("error").asText());
+        assertEquals("TARTU", objectMapper.readTree(lines[2]).get("location").asText());
+    }
+
+    @Test
+    public void testWriteDeliveryFeesReportsMalformedRequest() throws IOException {
+
+        DeliveryDataService deliveryDataService = createDeliveryDataService();
+
+        String[] lines = writeDeliveryFees(deliveryDataService, "{\"location\": \"tallinn\", \"vehicle\": \"bike\"}\n{\"location\": ");
+
+        assertEquals(2, lines.length);
+        assertEquals("TALLINN", objectMapper.readTree(lines[0]).get("location").asText());
+        assertTrue(objectMapper.readTree(lines[1]).get("error").asText().startsWith("Malformed request"));
+    }
+}
@@ -0,0 +1,115 @@
+package dev.alpari.fujitsutrialtask.service;
+
+import dev.alpari.fujitsutrialtask.delivery.DeliveryManager;
+import dev.alpari.fujitsutrialtask.model.RegionalBaseFee;
+import dev.alpari.fujitsutrialtask.repository.RegionalBaseFeeRepository;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.transaction.AfterTransaction;
+import org.springframework.transaction.annotation.Transactional;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+@SpringBootTest
+@Transactional
+public class RegionalBaseFeeServiceTest {
+
+    @Autowired
+    private RegionalBaseFeeService regionalBaseFeeService;
+
+    @Autowired
+    private RegionalBaseFeeRepository repository;
+
+    @Autowired
+    private DeliveryManager deliveryManager;
+
+    /**
+     * Database changes of a test are rolled back, but the manager is shared with other tests: drop locations added
+     * here and load the fees as they are after the rollback.
+     */
+    @AfterTransaction
+    public void restoreDeliveryManager() {
+
+        for (String location : new String[]{"Viljandi", "Kuressaare"}) {
+            if (deliveryManager.findLocation(location) != null) deliveryManager.removeLocation(location);
+        }
+
+        regionalBaseFeeService.reload();
+    }
+
+    @Test
+    public void testBuiltInFeesAreStoredOnStartup() {
+
+        assertEquals(350, repository.findByLocationAndVehicleType("TALLINN", "SCOOTER").orElseThrow().getFeeInCents());
+
+        assertEquals(repository.findVersion(), regionalBaseFeeService.getLoadedVersion());
+        assertEquals(repository.findVersion(), deliveryManager.getRegionalBaseFees().getVersion());
+        assertFalse(regionalBaseFeeService.refresh());
+    }
+
+    @Test
+    public void testSetRegionalBaseFeeIsStoredAndServed() {
+
+        deliveryManager.addLocation("Viljandi", "Viljandi");
+        long version = repository.findVersion();
+
+        regionalBaseFeeService.setRegionalBaseFee("Viljandi", "bike", 1.5f);
+
+        assertEquals(version + 1, repository.findVersion());
+        assertEquals(150, repository.findByLocationAndVehicleType("VILJANDI", "BIKE").orElseThrow().getFeeInCents());
+        assertEquals(version + 1, deliveryManager.getRegionalBaseFees().getVersion());
+        assertEquals(1.5f, deliveryManager.getRegionalBaseFee(DeliveryManager.Vehicle.BIKE,
+                deliveryManager.getLocation("viljandi")));
+
+        regionalBaseFeeService.setRegionalBaseFee("Viljandi", "bike", 1.75f);
+        assertEquals(175, repository.findByLocationAndVehicleType("VILJANDI", "BIKE").orElseThrow().getFeeInCents());
+    }
+
+    @Test
+    public void testChangesOfOtherNodesAreLoadedWhenVersionChanges() {
+
+        DeliveryManager.Location location = deliveryManager.addLocation("Kuressaare", "Kuressaare linn");
+
+        // Written by another node.
+        repository.save(RegionalBaseFee.builder().location("KURESSAARE").vehicleType("CAR").feeInCents(275).build());
+        assertFalse(regionalBaseFeeService.refresh());
+        assertFalse(deliveryManager.getRegionalBaseFees().contains(DeliveryManager.Vehicle.CAR, location));
+
+        repository.incrementVersion();
+        assertTrue(regionalBaseFeeService.refresh());
+        assertEquals(2.75f, deliveryManager.getRegionalBaseFee(DeliveryManager.Vehicle.CAR, location));
+        assertFalse(regionalBaseFeeService.refresh());
+    }
+
+    @Test
+    public void testRowsWithUnknownVehicleTypeAreSkipped() {
+
+        DeliveryManager.Location location = deliveryManager.addLocation("Kuressaare", "Kuressaare linn");
+
+        repository.save(RegionalBaseFee.builder().location("KURESSAARE").vehicleType("BOAT").feeInCents(990).build());
+        repository.save(RegionalBaseFee.builder().location("KURESSAARE").vehicleType("CAR").feeInCents(275).build());
+        repository.incrementVersion();
+
+        assertTrue(regionalBaseFeeService.refresh());
+        assertEquals(repository.findVersion(), regionalBaseFeeService.getLoadedVersion());
+        assertEquals(2.75f, deliveryManager.getRegionalBaseFee(DeliveryManager.Vehicle.CAR, location));
+        assertEquals(3.5f, deliveryManager.getRegionalBaseFee(DeliveryManager.Vehicle.SCOOTER,
+                DeliveryManager.Location.TALLINN));
+    }
+
+    @Test
+    public void testInvalidFeesAreRejected() {
+
+        long version = repository.findVersion();
+
+        assertThrows(IllegalArgumentException.class, () -> regionalBaseFeeService.setRegionalBaseFee("Riga", "car", 1f));
+        assertThrows(IllegalArgumentException.class, () -> regionalBaseFeeService.setRegionalBaseFee("Tartu", "boat", 1f));
+        assertThrows(IllegalArgumentException.class, () -> regionalBaseFeeService.setRegionalBaseFee("Tartu", "car", -1f));
+
+        assertEquals(version, repository.findVersion());
+    }
+}
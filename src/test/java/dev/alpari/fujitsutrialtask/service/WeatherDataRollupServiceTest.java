@@ -0,0 +1,156 @@
+package dev.alpari.fujitsutrialtask.service;
+
+import dev.alpari.fujitsutrialtask.model.RollupGranularity;
+import dev.alpari.fujitsutrialtask.model.WeatherData;
+import dev.alpari.fujitsutrialtask.model.WeatherDataRollup;
+import dev.alpari.fujitsutrialtask.model.WeatherPhenomenonCategory;
+import dev.alpari.fujitsutrialtask.repository.WeatherDataRepository;
+import dev.alpari.fujitsutrialtask.repository.WeatherDataRollupRepository;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+@SpringBootTest
+@Transactional
+public class WeatherDataRollupServiceTest {
+
+    // 2023-03-18T00:00:00Z
+    private static final long DAY_START = 1679097600L;
+
+    @Autowired
+    private WeatherDataRollupService weatherDataRollupService;
+
+    @Autowired
+    private WeatherDataRepository repository;
+
+    @Autowired
+    private WeatherDataRollupRepository rollupRepository;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    private WeatherData weatherData(long observationTimestamp, float airTemperature, float windSpeed,
+                                    String weatherPhenomenon, WeatherPhenomenonCategory weatherPhenomenonCategory) {
+        return WeatherData.builder()
+                .stationName("PÄRNU")
+                .stationWmoCode("41803")
+                .airTemperature(airTemperature)
+                .windSpeed(windSpeed)
+                .weatherPhenomenon(weatherPhenomenon)
+                .weatherPhenomenonCategory(weatherPhenomenonCategory)
+                .observationTimestamp(observationTimestamp)
+                .build();
+    }
+
+    @Test
+    public void testCompactRollsUpAndDeletesOldWeatherData() {
+
+        List<WeatherData> weatherData = new ArrayList<>();
+        // Two observations in the first hour, one in every other hour of the day.
+        weatherData.add(weatherData(DAY_START, -2f, 3f, "Light snowfall", WeatherPhenomenonCategory.SNOW));
+        weatherData.add(weatherData(DAY_START + 1800, Float.NaN, 5f, "Light snowfall", WeatherPhenomenonCategory.SNOW));
+        for (int hour = 1; hour < 24; hour++) {
+            weatherData.add(weatherData(DAY_START + hour * 3600L, hour, 4f, "", WeatherPhenomenonCategory.NONE));
+        }
+        // Next day, still within retention.
+        weatherData.add(weatherData(DAY_START + 86400 + 3600, 1f, 1f, "", WeatherPhenomenonCategory.NONE));
+        repository.saveAll(weatherData);
+
+        Instant now = Instant.ofEpochSecond(DAY_START + 86400 + 7200).plus(Duration.ofDays(30));
+        assertEquals(1, weatherDataRollupService.compact(now));
+
+        // Only weather data within retention is left.
+        assertEquals(1, repository.count());
+
+        Instant from = Instant.ofEpochSecond(DAY_START);
+        Instant to = Instant.ofEpochSecond(DAY_START + 86400);
+
+        List<WeatherDataRollup> days = weatherDataRollupService.getRollups("PÄRNU", RollupGranularity.DAY, from, to);
+        assertEquals(1, days.size());
+        assertEquals(25, days.get(0).getObservationCount());
+        assertEquals(-2f, days.get(0).getMinAirTemperature());
+        assertEquals(23f, days.get(0).getMaxAirTemperature());
+        assertEquals(5f, days.get(0).getMaxWindSpeed());
+        assertEquals("", days.get(0).getWeatherPhenomenon());
+
+        List<WeatherDataRollup> hours = weatherDataRollupService.getRollups("PÄRNU", RollupGranularity.HOUR, from, to);
+        assertEquals(24, hours.size());
+        assertEquals(DAY_START, hours.get(0).getPeriodStart());
+        assertEquals(2, hours.get(0).getObservationCount());
+        assertEquals(-2f, hours.get(0).getAvgAirTemperature());
+        assertEquals(4f, hours.get(0).getAvgWindSpeed());
+        assertEquals(WeatherPhenomenonCategory.SNOW, hours.get(0).getWeatherPhenomenonCategory());
+
+        // Nothing left to compact.
+        assertEquals(0, weatherDataRollupService.compact(now));
+    }
+
+    @Test
+    public void testCompactFoldsWeatherDataAddedToCompactedDay() {
+
+        repository.saveAll(List.of(
+                weatherData(DAY_START, -2f, 3f, "Light snowfall", WeatherPhenomenonCategory.SNOW),
+                weatherData(DAY_START + 3600, 4f, 5f, "", WeatherPhenomenonCategory.NONE)));
+
+        Instant now = Instant.ofEpochSecond(DAY_START).plus(Duration.ofDays(31));
+        assertEquals(1, weatherDataRollupService.compact(now));
+
+        // Late observations of the first hour.
+        repository.saveAll(List.of(
+                weatherData(DAY_START + 1200, 6f, Float.NaN, "Light snowfall", WeatherPhenomenonCategory.SNOW),
+                weatherData(DAY_START + 2400, 10f, 7f, "", WeatherPhenomenonCategory.NONE)));
+        assertEquals(1, weatherDataRollupService.compact(now));
+        assertEquals(0, repository.count());
+
+        Instant from = Instant.ofEpochSecond(DAY_START);
+        Instant to = Instant.ofEpochSecond(DAY_START + 86400);
+
+        List<WeatherDataRollup> days = weatherDataRollupService.getRollups("PÄRNU", RollupGranularity.DAY, from, to);
+        assertEquals(1, days.size());
+        assertEquals(4, days.get(0).getObservationCount());
+        assertEquals(-2f, days.get(0).getMinAirTemperature());
+        assertEquals(10f, days.get(0).getMaxAirTemperature());
+        assertEquals(4.5f, days.get(0).getAvgAirTemperature());
+        assertEquals(5f, days.get(0).getAvgWindSpeed());
+
+        List<WeatherDataRollup> hours = weatherDataRollupService.getRollups("PÄRNU", RollupGranularity.HOUR, from, to);
+        assertEquals(2, hours.size());
+        assertEquals(3, hours.get(0).getObservationCount());
+        assertEquals(2, hours.get(0).getWeatherPhenomenonCount());
+        assertEquals(WeatherPhenomenonCategory.SNOW, hours.get(0).getWeatherPhenomenonCategory());
+        assertEquals(5f, hours.get(0).getAvgWindSpeed());
+        assertEquals(1, hours.get(1).getObservationCount());
+    }
+
+    @Test
+    public void testRollupOfMissingReadingsIsNull() {
+
+        repository.save(weatherData(DAY_START, Float.NaN, Float.NaN, "", WeatherPhenomenonCategory.NONE));
+        weatherDataRollupService.compact(Instant.ofEpochSecond(DAY_START).plus(Duration.ofDays(31)));
+
+        WeatherDataRollup day = weatherDataRollupService.getRollups("PÄRNU", RollupGranularity.DAY,
+                Instant.ofEpochSecond(DAY_START), Instant.ofEpochSecond(DAY_START)).get(0);
+        assertNull(day.getMinAirTemperature());
+        assertNull(day.getAvgWindSpeed());
+    }
+
+    @Test
+    public void testInvalidSettingsAreRejected() {
+
+        assertThrows(IllegalArgumentException.class, () -> new WeatherDataRollupService(repository, rollupRepository,
+                transactionTemplate, true, Duration.ofDays(30), 0));
+        assertThrows(IllegalArgumentException.class, () -> new WeatherDataRollupService(repository, rollupRepository,
+                transactionTemplate, true, Duration.ofDays(-1), 1000));
+    }
+}
@@ -0,0 +1,188 @@
+package dev.alpari.fujitsutrialtask.service;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import dev.alpari.fujitsutrialtask.dto.WeatherDataDto;
+import dev.alpari.fujitsutrialtask.dto.WeatherDataPageDto;
+import dev.alpari.fujitsutrialtask.model.WeatherData;
+import dev.alpari.fujitsutrialtask.model.WeatherPhenomenonCategory;
+import dev.alpari.fujitsutrialtask.repository.WeatherDataRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+@SpringBootTest
+@Transactional
+public class WeatherDataServiceTest {
+
+    @Autowired
+    private WeatherDataService weatherDataService;
+
+    @Autowired
+    private WeatherDataRepository repository;
+
+    @BeforeEach
+    public void setUp() {
+
+        List<WeatherData> weatherData = new ArrayList<>();
+        for (int hour = 0; hour < 5; hour++) {
+            for (String stationName : List.of("TALLINN-HARKU", "PÄRNU")) {
+                weatherData.add(WeatherData.builder()
+                        .stationName(stationName)
+                        .airTemperature(hour)
+                        .observationTimestamp(1679169028L + hour * 3600L)
+                        .build());
+            }
+        }
+        repository.saveAll(weatherData);
+    }
+
+    @Test
+    public void testGetPageFollowsCursorToTheEnd() {
+
+        List<Float> airTemperatures = new ArrayList<>();
+        String cursor = null;
+        int pages = 0;
+
+        do {
+            WeatherDataPageDto page = weatherDataService.getPage("PÄRNU", null, null, cursor, 2);
+            page.getWeatherData().forEach(weatherData -> airTemperatures.add(weatherData.getAirTemperature()));
+            cursor = page.getNextCursor();
+            pages++;
+        } while (cursor != null);
+
+        assertEquals(3, pages);
+        assertEquals(List.of(0f, 1f, 2f, 3f, 4f), airTemperatures);
+    }
+
+    @Test
+    public void testGetPageOfTimeRange() {
+
+        WeatherDataPageDto page = weatherDataService.getPage(null, Instant.ofEpochSecond(1679172628L),
+                Instant.ofEpochSecond(1679176228L), null, 10);
+
+        assertEquals(4, page.getWeatherData().size());
+        assertNull(page.getNextCursor());
+        assertEquals(1679172628L, page.getWeatherData().get(0).getObservationTimestamp());
+    }
+
+    @Test
+    public void testGetPageAppliesTimeRangeToCursor() {
+
+        // Cursor before the start of the range.
+        WeatherDataPageDto page = weatherDataService.getPage("PÄRNU", Instant.ofEpochSecond(1679176228L), null,
+                "1679169028_" + Integer.MIN_VALUE, 10);
+
+        assertEquals(3, page.getWeatherData().size());
+        assertEquals(1679176228L, page.getWeatherData().get(0).getObservationTimestamp());
+    }
+
+    @Test
+    public void testGetPageIncludesWeatherPhenomenonCategory() {
+
+        weatherDataService.add(WeatherDataDto.builder()
+                .stationName("TARTU-TÕRAVERE").weatherPhenomenon("Light snow shower")
+                .observationTimestamp(1679169028L).build());
+
+        WeatherDataPageDto page = weatherDataService.getPage("TARTU-TÕRAVERE", null, null, null, 10);
+
+        assertEquals(WeatherPhenomenonCategory.SNOW, page.getWeatherData().get(0).getWeatherPhenomenonCategory());
+    }
+
+    @Test
+    public void testStationCoordinatesAreMapped() {
+
+        weatherDataService.add(WeatherDataDto.builder()
+                .stationName("TARTU-TÕRAVERE").latitude(58.264194).longitude(26.46613)
+                .observationTimestamp(1679169028L).build());
+
+        WeatherDataDto stored = weatherDataService.getByStationNameBetween("TARTU-TÕRAVERE",
+                Instant.ofEpochSecond(1679169028L), Instant.ofEpochSecond(1679169028L)).get(0);
+        assertEquals(58.264194, stored.getLatitude());
+        assertEquals(26.46613, stored.getLongitude());
+
+        WeatherDataDto latest = weatherDataService.getLatestOfEveryStation().stream()
+                .filter(weatherData -> weatherData.getStationName().equals("TARTU-TÕRAVERE")).findFirst().orElseThrow();
+        assertEquals(58.264194, latest.getLatitude());
+
+        WeatherDataDto paged = weatherDataService.getPage("TARTU-TÕRAVERE", null, null, null, 10).getWeatherData().get(0);
+        assertEquals(26.46613, paged.getLongitude());
+
+        // Unknown coordinates stay unknown.
+        assertNull(weatherDataService.getPage("PÄRNU", null, null, null, 1).getWeatherData().get(0).getLatitude());
+    }
+
+    @Test
+    public void testGetPageRejectsInvalidCursorAndLimit() {
+        assertThrows(IllegalArgumentException.class, () -> weatherDataService.getPage(null, null, null, "abc", 10));
+        assertThrows(IllegalArgumentException.class, () -> weatherDataService.getPage(null, null, null, null, 0));
+    }
+
+    @Test
+    public void testWriteAll() throws IOException {
+
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+        long count = weatherDataService.writeAll("TALLINN-HARKU", Instant.ofEpochSecond(1679172628L), null, outputStream);
+
+        JsonNode weatherData = new ObjectMapper().readTree(outputStream.toByteArray());
+
+        assertEquals(4, count);
+        assertEquals(4, weatherData.size());
+        assertEquals("TALLINN-HARKU", weatherData.get(0).get("stationName").asText());
+        assertEquals(1.0, weatherData.get(0).get("airTemperature").asDouble());
+        assertEquals(4.0, weatherData.get(3).get("airTemperature").asDouble());
+    }
+
+    @Test
+    public void testForEachNeededFromSkipsRowsOutsideRange() {
+
+        assertEquals(1679169028L + 4 * 3600L, weatherDataService.getLatestObservationTimestamp());
+
+        List<Long> timestamps = new ArrayList<>();
+        weatherDataService.forEachNeededFrom(1679169028L + 2 * 3600L + 1,
+                weatherData -> {
+                    if (weatherData.getStationName().equals("PÄRNU")) timestamps.add(weatherData.getObservationTimestamp());
+                });
+
+        // The latest earlier row is kept for lookups at the start of the range.
+        assertEquals(List.of(1679169028L + 2 * 3600L, 1679169028L + 3 * 3600L, 1679169028L + 4 * 3600L),
+                timestamps.stream().sorted().toList());
+    }
+
+    @Test
+    public void testAddAllSkipsStoredObservations() {
+
+        List<WeatherData> weatherData = List.of(
+                WeatherData.builder().stationName("TARTU-TÕRAVERE").observationTimestamp(1679169028L).build(),
+                WeatherData.builder().stationName("TARTU-TÕRAVERE").observationTimestamp(1679172628L).build());
+
+        assertEquals(2, weatherDataService.addAll(weatherData));
+
+        // Same observations again, and an older observation of a station with newer ones stored.
+        assertEquals(0, weatherDataService.addAll(List.of(
+                WeatherData.builder().stationName("TARTU-TÕRAVERE").observationTimestamp(1679172628L).build(),
+                WeatherData.builder().stationName("PÄRNU").observationTimestamp(1679172628L).build())));
+
+        // Older observation not stored yet.
+        assertEquals(1, weatherDataService.addAll(List.of(
+                WeatherData.builder().stationName("PÄRNU").observationTimestamp(1679165428L).build())));
+
+        assertFalse(weatherDataService.add(WeatherDataDto.builder()
+                .stationName("PÄRNU").observationTimestamp(1679165428L).build()));
+
+        assertEquals(13, repository.count());
+    }
+}